@@ -0,0 +1,108 @@
+package wavl;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * fromSorted, and a batch of new random keys, a tenth of the size of the
+ * tree, inserted and deleted with insertAll and deleteAll and one key at a
+ * time. the score is the number of whole batches per second, so that the
+ * rate of rebalances divided by the score is the number of rebalancing
+ * operations per batch.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BulkBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	private Keys keys;
+	private int[] batch;
+	private String[] batchInfos;
+
+	@Setup
+	public void setUp() {
+		this.keys = new Keys(Keys.Workload.RANDOM, this.size);
+		Random rnd = new Random(this.size);
+		this.batch = new int[Math.max(1, this.size / 10)];
+		this.batchInfos = new String[this.batch.length];
+		for (int i = 0; i < this.batch.length; i++) {
+			this.batch[i] = rnd.nextInt(this.size) * 2 + 1; // odd keys are never in the tree
+			this.batchInfos[i] = String.valueOf(this.batch[i]);
+		}
+	}
+
+	/**
+	 * a tree of all keys for every invocation
+	 */
+	@State(Scope.Thread)
+	public static class Fresh {
+		WAVLTree tree;
+
+		@Setup(Level.Invocation)
+		public void build(BulkBenchmark benchmark) {
+			this.tree = WAVLTree.fromSorted(benchmark.keys.sortedKeys, benchmark.keys.sortedInfos);
+		}
+	}
+
+	/**
+	 * a tree of all keys and the batch for every invocation
+	 */
+	@State(Scope.Thread)
+	public static class WithBatch {
+		WAVLTree tree;
+
+		@Setup(Level.Invocation)
+		public void build(BulkBenchmark benchmark) {
+			this.tree = WAVLTree.fromSorted(benchmark.keys.sortedKeys, benchmark.keys.sortedInfos);
+			this.tree.insertAll(benchmark.batch, benchmark.batchInfos);
+		}
+	}
+
+	@Benchmark
+	public WAVLTree fromSorted() {
+		return WAVLTree.fromSorted(this.keys.sortedKeys, this.keys.sortedInfos);
+	}
+
+	@Benchmark
+	public void insertLoop(Fresh fresh, Rebalances counters) {
+		for (int i = 0; i < this.batch.length; i++) {
+			counters.add(fresh.tree.insert(this.batch[i], this.batchInfos[i]));
+		}
+	}
+
+	@Benchmark
+	public void insertAll(Fresh fresh, Rebalances counters) {
+		counters.add(fresh.tree.insertAll(this.batch, this.batchInfos));
+	}
+
+	@Benchmark
+	public void deleteLoop(WithBatch withBatch, Rebalances counters) {
+		for (int k : this.batch) {
+			counters.add(withBatch.tree.delete(k));
+		}
+	}
+
+	@Benchmark
+	public void deleteAll(WithBatch withBatch, Rebalances counters) {
+		counters.add(withBatch.tree.deleteAll(this.batch));
+	}
+}
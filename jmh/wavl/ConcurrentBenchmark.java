@@ -0,0 +1,186 @@
+package wavl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * a mix of searches and writes from all the available threads, on the
+ * thread-safe trees and on ConcurrentSkipListMap and a WAVLTree behind a
+ * single lock. every write inserts or deletes a random key, so the size of
+ * the tree stays about the same.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+public class ConcurrentBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	@Param({ "ConcurrentWAVLTree", "ShardedWAVLMap", "ConcurrentRelaxedWAVLTree", "ConcurrentSkipListMap",
+			"SynchronizedWAVLTree" })
+	String impl;
+
+	@Param({ "5", "50" })
+	int writePercent;
+
+	private IntKeyTree<String> tree;
+
+	@Setup
+	public void setUp() {
+		this.tree = create(this.impl);
+		Keys keys = new Keys(Keys.Workload.RANDOM, this.size);
+		for (int i = 0; i < this.size; i++) {
+			this.tree.insert(keys.insertOrder[i], keys.infos[i]);
+		}
+	}
+
+	/**
+	 * the random keys of a single thread
+	 */
+	@State(Scope.Thread)
+	public static class Mix {
+		private ThreadLocalRandom random;
+
+		@Setup(Level.Iteration)
+		public void setUp() {
+			this.random = ThreadLocalRandom.current();
+		}
+	}
+
+	@Benchmark
+	public Object mixed(Mix mix) {
+		int k = 2 * mix.random.nextInt(this.size);
+		if (mix.random.nextInt(100) >= this.writePercent) {
+			return this.tree.search(k);
+		}
+		if (mix.random.nextBoolean()) {
+			return this.tree.insert(k, "x");
+		}
+		return this.tree.delete(k);
+	}
+
+	private static IntKeyTree<String> create(String impl) {
+		switch (impl) {
+		case "ConcurrentWAVLTree":
+			return new ConcurrentWAVLTree();
+		case "ShardedWAVLMap":
+			return new ShardedWAVLMap();
+		case "ConcurrentRelaxedWAVLTree":
+			return new ConcurrentRelaxedWAVLTree();
+		case "ConcurrentSkipListMap":
+			return new SkipListTree();
+		case "SynchronizedWAVLTree":
+			return new SynchronizedTree(new WAVLTree());
+		default:
+			throw new IllegalArgumentException("unknown tree: " + impl);
+		}
+	}
+
+	/**
+	 * a ConcurrentSkipListMap as a tree. insert and delete do not rebalance,
+	 * so they return 0 when they succeed.
+	 */
+	private static final class SkipListTree implements IntKeyTree<String> {
+		private final ConcurrentSkipListMap<Integer, String> map = new ConcurrentSkipListMap<>();
+
+		public String search(int k) {
+			return this.map.get(k);
+		}
+
+		public int insert(int k, String info) {
+			return this.map.putIfAbsent(k, info) == null ? 0 : -1;
+		}
+
+		public int delete(int k) {
+			return this.map.remove(k) == null ? -1 : 0;
+		}
+
+		public boolean empty() {
+			return this.map.isEmpty();
+		}
+
+		public String min() {
+			Map.Entry<Integer, String> entry = this.map.firstEntry();
+			return entry != null ? entry.getValue() : null;
+		}
+
+		public String max() {
+			Map.Entry<Integer, String> entry = this.map.lastEntry();
+			return entry != null ? entry.getValue() : null;
+		}
+
+		public int[] keysToArray() {
+			return this.map.keySet().stream().mapToInt(k -> k).toArray();
+		}
+
+		public Object[] infoToArray() {
+			return this.map.values().toArray();
+		}
+
+		public int size() {
+			return this.map.size();
+		}
+	}
+
+	/**
+	 * a tree behind a single lock
+	 */
+	private static final class SynchronizedTree implements IntKeyTree<String> {
+		private final IntKeyTree<String> tree;
+
+		private SynchronizedTree(IntKeyTree<String> tree) {
+			this.tree = tree;
+		}
+
+		public synchronized boolean empty() {
+			return this.tree.empty();
+		}
+
+		public synchronized String search(int k) {
+			return this.tree.search(k);
+		}
+
+		public synchronized int insert(int k, String info) {
+			return this.tree.insert(k, info);
+		}
+
+		public synchronized int delete(int k) {
+			return this.tree.delete(k);
+		}
+
+		public synchronized String min() {
+			return this.tree.min();
+		}
+
+		public synchronized String max() {
+			return this.tree.max();
+		}
+
+		public synchronized int[] keysToArray() {
+			return this.tree.keysToArray();
+		}
+
+		public synchronized Object[] infoToArray() {
+			return this.tree.infoToArray();
+		}
+
+		public synchronized int size() {
+			return this.tree.size();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package wavl;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * searches with and without finger mode, for keys that follow each other
+ * in order, keys that stay close to the previous one, and random keys,
+ * where the finger only costs.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FingerBenchmark {
+
+	/**
+	 * the keys of the LOCAL access stay within this many keys of
+	 * the previous one
+	 */
+	private static final int LOCAL_DISTANCE = 16;
+
+	public enum Access {
+		SEQUENTIAL, LOCAL, RANDOM
+	}
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	@Param({ "SEQUENTIAL", "LOCAL", "RANDOM" })
+	Access access;
+
+	@Param({ "false", "true" })
+	boolean finger;
+
+	private WAVLTree tree;
+	private int[] accessOrder;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Keys keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = keys.wavlTree();
+		this.tree.setFingerSearch(this.finger);
+		switch (this.access) {
+		case SEQUENTIAL:
+			this.accessOrder = keys.sortedKeys;
+			break;
+		case LOCAL:
+			this.accessOrder = new int[this.size];
+			Random random = new Random(2016);
+			int i = 0;
+			for (int j = 0; j < this.size; j++) {
+				i = Math.floorMod(i + random.nextInt(2 * LOCAL_DISTANCE + 1) - LOCAL_DISTANCE, this.size);
+				this.accessOrder[j] = keys.sortedKeys[i];
+			}
+			break;
+		default:
+			this.accessOrder = keys.accessOrder;
+		}
+	}
+
+	@Benchmark
+	public String search() {
+		int k = this.accessOrder[this.next];
+		this.next = this.next + 1 == this.accessOrder.length ? 0 : this.next + 1;
+		return this.tree.search(k);
+	}
+}
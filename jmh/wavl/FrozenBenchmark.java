@@ -0,0 +1,54 @@
+package wavl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * searches in a FrozenWAVLTree against the WAVLTree it was frozen from
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FrozenBenchmark {
+
+	@Param({ "1000", "1000000", "10000000" })
+	int size;
+
+	private Keys keys;
+	private WAVLTree tree;
+	private FrozenWAVLTree frozen;
+
+	@Setup
+	public void setUp() {
+		this.keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = this.keys.wavlTree();
+		this.frozen = this.tree.freeze();
+	}
+
+	@Benchmark
+	public String searchWAVLTree() {
+		return this.tree.search(this.keys.next());
+	}
+
+	@Benchmark
+	public String searchFrozen() {
+		return this.frozen.search(this.keys.next());
+	}
+
+	@Benchmark
+	public Integer ceilingKeyWAVLTree() {
+		return this.tree.ceilingKey(this.keys.next() + 1);
+	}
+
+	@Benchmark
+	public Integer ceilingKeyFrozen() {
+		return this.frozen.ceilingKey(this.keys.next() + 1);
+	}
+}
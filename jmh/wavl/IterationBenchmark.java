@@ -0,0 +1,98 @@
+package wavl;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * visits every item of the tree: by iterator, sequential and parallel
+ * streams, and the sorted arrays, against the arrays of TreeMap. the score
+ * is the time of visiting all size items.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IterationBenchmark {
+
+	/**
+	 * more writes than the tree keeps pending, so the arrays are filled from
+	 * the tree again
+	 */
+	private static final int REFILL_WRITES = 2000;
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	private WAVLTree tree;
+	private TreeMap<Integer, String> treeMap;
+
+	@Setup
+	public void setUp() {
+		Keys keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = keys.wavlTree();
+		this.treeMap = keys.treeMap();
+	}
+
+	@Benchmark
+	public long iterator() {
+		long h = 0;
+		for (WAVLTree.WAVLNode node : this.tree) {
+			h += node.getInfo().length();
+		}
+		return h;
+	}
+
+	@Benchmark
+	public long streamSum() {
+		return this.tree.stream().mapToLong(WAVLTree.WAVLNode::getKey).sum();
+	}
+
+	@Benchmark
+	public long parallelStreamSum() {
+		return this.tree.parallelStream().mapToLong(WAVLTree.WAVLNode::getKey).sum();
+	}
+
+	/**
+	 * a single write is pending, and is merged into new arrays
+	 */
+	@Benchmark
+	public void toArraysMerged(Blackhole bh) {
+		this.tree.insert(-1, "");
+		this.tree.delete(-1);
+		bh.consume(this.tree.keysToArray());
+		bh.consume(this.tree.infoToArray());
+	}
+
+	@Benchmark
+	public void toArraysRefilled(Blackhole bh) {
+		for (int k = -1; k >= -REFILL_WRITES; k--) {
+			this.tree.insert(k, "");
+		}
+		for (int k = -1; k >= -REFILL_WRITES; k--) {
+			this.tree.delete(k);
+		}
+		bh.consume(this.tree.keysToArray());
+		bh.consume(this.tree.infoToArray());
+	}
+
+	@Benchmark
+	public void toArraysTreeMap(Blackhole bh) {
+		bh.consume(this.treeMap.keySet().toArray());
+		bh.consume(this.treeMap.values().toArray());
+	}
+}
@@ -0,0 +1,135 @@
+package wavl;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * the keys and infos of a benchmark of n keys.
+ * <p>
+ * the keys are the even numbers from 0 to 2n - 2, so odd keys are never in
+ * a tree. they are used for misses, and for inserts that the matching
+ * delete undoes, so a tree stays the same across invocations.
+ */
+public final class Keys {
+
+	private static final double ZIPF_EXPONENT = 0.99;
+
+	/**
+	 * the order in which keys are inserted and accessed
+	 */
+	public enum Workload {
+		SEQUENTIAL, RANDOM, ZIPFIAN
+	}
+
+	/**
+	 * every key once, in the order of the workload
+	 */
+	final int[] insertOrder;
+	/**
+	 * the infos of insertOrder
+	 */
+	final String[] infos;
+	/**
+	 * n keys of the tree, in the order of the workload. zipfian repeats the
+	 * popular keys, which are spread over the key space.
+	 */
+	final int[] accessOrder;
+	final int[] sortedKeys;
+	final String[] sortedInfos;
+
+	private int next;
+
+	Keys(Workload workload, int n) {
+		Random rnd = new Random(2016);
+		this.sortedKeys = new int[n];
+		this.sortedInfos = new String[n];
+		for (int i = 0; i < n; i++) {
+			this.sortedKeys[i] = i * 2;
+			this.sortedInfos[i] = String.valueOf(i * 2);
+		}
+
+		this.insertOrder = this.sortedKeys.clone();
+		this.accessOrder = this.sortedKeys.clone();
+		if (workload != Workload.SEQUENTIAL) {
+			shuffle(this.insertOrder, rnd);
+			shuffle(this.accessOrder, rnd);
+		}
+		if (workload == Workload.ZIPFIAN) {
+			int[] hot = this.sortedKeys.clone();
+			shuffle(hot, rnd);
+			double[] cdf = zipfCdf(n);
+			for (int i = 0; i < n; i++) {
+				this.accessOrder[i] = hot[zipfIndex(cdf, rnd.nextDouble())];
+			}
+		}
+		this.infos = new String[n];
+		for (int i = 0; i < n; i++) {
+			this.infos[i] = String.valueOf(this.insertOrder[i]);
+		}
+	}
+
+	int size() {
+		return this.insertOrder.length;
+	}
+
+	/**
+	 * returns the next key of the access order, starting over after the last
+	 */
+	int next() {
+		int k = this.accessOrder[this.next];
+		if (++this.next == this.accessOrder.length) {
+			this.next = 0;
+		}
+		return k;
+	}
+
+	/**
+	 * returns a tree of all keys, inserted in the order of the workload
+	 */
+	WAVLTree wavlTree() {
+		WAVLTree tree = new WAVLTree();
+		for (int i = 0; i < this.insertOrder.length; i++) {
+			tree.insert(this.insertOrder[i], this.infos[i]);
+		}
+		return tree;
+	}
+
+	TreeMap<Integer, String> treeMap() {
+		TreeMap<Integer, String> map = new TreeMap<>();
+		for (int i = 0; i < this.insertOrder.length; i++) {
+			map.put(this.insertOrder[i], this.infos[i]);
+		}
+		return map;
+	}
+
+	private static void shuffle(int[] arr, Random rnd) {
+		for (int i = arr.length - 1; i > 0; i--) {
+			int j = rnd.nextInt(i + 1);
+			int tmp = arr[i];
+			arr[i] = arr[j];
+			arr[j] = tmp;
+		}
+	}
+
+	/**
+	 * cumulative distribution of a zipf distribution over n elements
+	 */
+	private static double[] zipfCdf(int n) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	private static int zipfIndex(double[] cdf, double u) {
+		int i = Arrays.binarySearch(cdf, u);
+		return i >= 0 ? i : Math.min(-i - 1, cdf.length - 1);
+	}
+}
@@ -0,0 +1,114 @@
+package wavl;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the ordered lookups of WAVLTree against TreeMap: select and rank,
+ * nearest keys, successor walks, and short range queries of up to
+ * SCAN_LENGTH keys by scan, Cursor and subMap.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NavigationBenchmark {
+
+	private static final int SCAN_LENGTH = 16;
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	private Keys keys;
+	private WAVLTree tree;
+	private TreeMap<Integer, String> treeMap;
+	private WAVLTree.Cursor cursor;
+	private long scanned;
+	private final WAVLTree.EntryVisitor visitor = (key, info) -> this.scanned += key;
+
+	@Setup
+	public void setUp() {
+		this.keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = this.keys.wavlTree();
+		this.treeMap = this.keys.treeMap();
+		this.cursor = this.tree.cursor();
+	}
+
+	@Benchmark
+	public int rankSelect() {
+		return this.tree.select(this.tree.rank(this.keys.next()));
+	}
+
+	/**
+	 * odd keys are never in the tree, so these are true floor lookups
+	 */
+	@Benchmark
+	public Integer floorKeyWAVLTree() {
+		return this.tree.floorKey(this.keys.next() + 1);
+	}
+
+	@Benchmark
+	public int floorKeyOrDefaultWAVLTree() {
+		return this.tree.floorKeyOrDefault(this.keys.next() + 1, -1);
+	}
+
+	@Benchmark
+	public Integer floorKeyTreeMap() {
+		return this.treeMap.floorKey(this.keys.next() + 1);
+	}
+
+	/**
+	 * walks the whole tree, so the score is the time of size steps
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long successorWalk() {
+		long h = 0;
+		for (WAVLTree.WAVLNode node = this.tree.ceilingEntry(Integer.MIN_VALUE); node != null; node = this.tree
+				.successor(node)) {
+			h += node.getKey();
+		}
+		return h;
+	}
+
+	@Benchmark
+	public long scan() {
+		int k = this.keys.next();
+		this.tree.scan(k, k + 2 * SCAN_LENGTH - 1, this.visitor);
+		return this.scanned;
+	}
+
+	@Benchmark
+	public long cursor() {
+		long h = 0;
+		boolean valid = this.cursor.seek(this.keys.next());
+		for (int i = 0; valid && i < SCAN_LENGTH; i++) {
+			h += this.cursor.key();
+			valid = this.cursor.next();
+		}
+		return h;
+	}
+
+	@Benchmark
+	public long subMap() {
+		int k = this.keys.next();
+		long h = 0;
+		for (int key : this.treeMap.subMap(k, true, k + 2 * SCAN_LENGTH - 1, true).keySet()) {
+			h += key;
+		}
+		return h;
+	}
+}
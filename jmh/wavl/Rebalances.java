@@ -0,0 +1,33 @@
+package wavl;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * counts the rebalancing operations that the trees return from insert and
+ * delete. JMH reports the count as a rate next to the score of the
+ * benchmark, so the ratio of the two is the number of rebalancing
+ * operations per operation. in average time mode the count would be
+ * reported as a time, so only throughput benchmarks use it.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Rebalances {
+
+	public long rebalances;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		this.rebalances = 0;
+	}
+
+	/**
+	 * adds the result of an insert or delete, which is -1 if nothing changed
+	 */
+	void add(int result) {
+		this.rebalances += Math.max(0, result);
+	}
+}
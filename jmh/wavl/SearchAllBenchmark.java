@@ -0,0 +1,72 @@
+package wavl;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * searches a batch of BATCH random keys, one after the other and with
+ * searchAll, in random and in sorted order. the score is the time of the
+ * whole batch.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchAllBenchmark {
+
+	private static final int BATCH = 4096;
+
+	@Param({ "1000", "1000000", "10000000" })
+	int size;
+
+	@Param({ "false", "true" })
+	boolean sorted;
+
+	private WAVLTree tree;
+	private int[] batch;
+	private String[] out;
+
+	@Setup
+	public void setUp() {
+		Keys keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = keys.wavlTree();
+		Random random = new Random(2016);
+		this.batch = new int[BATCH];
+		for (int i = 0; i < BATCH; i++) {
+			this.batch[i] = keys.sortedKeys[random.nextInt(this.size)];
+		}
+		if (this.sorted) {
+			Arrays.sort(this.batch);
+		}
+		this.out = new String[BATCH];
+	}
+
+	@Benchmark
+	public String[] searchLoop() {
+		for (int i = 0; i < BATCH; i++) {
+			this.out[i] = this.tree.search(this.batch[i]);
+		}
+		return this.out;
+	}
+
+	@Benchmark
+	public String[] searchAll() {
+		this.tree.searchAll(this.batch, this.out);
+		return this.out;
+	}
+}
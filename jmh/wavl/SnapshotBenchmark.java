@@ -0,0 +1,79 @@
+package wavl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * writes a snapshot file of the tree and loads it, against building the
+ * tree by inserting every item again, which is what a restart without
+ * snapshots costs. every invocation handles the whole tree, so the
+ * benchmarks run a few single shots.
+ * <p>
+ * the keys and infos of Keys take about 116 bytes per entry, the tree 40
+ * and a loaded tree with its own infos 88, so a size of 50000000 needs
+ * about 12 GB of heap. pass it with -p size=50000000 -jvmArgs -Xmx14g on a
+ * machine that has the memory.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotBenchmark {
+
+	@Param({ "1000000", "10000000" })
+	int size;
+
+	private Keys keys;
+	private WAVLTree tree;
+	private Path file;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = this.keys.wavlTree();
+		this.file = Files.createTempFile("wavl", ".snapshot");
+		this.tree.writeTo(this.file);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(this.file);
+	}
+
+	@Benchmark
+	public Path writeTo() throws IOException {
+		this.tree.writeTo(this.file);
+		return this.file;
+	}
+
+	@Benchmark
+	public WAVLTree load() throws IOException {
+		return WAVLTree.load(this.file);
+	}
+
+	@Benchmark
+	public WAVLTree insert() {
+		WAVLTree tree = new WAVLTree();
+		for (int i = 0; i < this.size; i++) {
+			tree.insert(this.keys.insertOrder[i], this.keys.infos[i]);
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,69 @@
+package wavl;
+
+import java.util.Comparator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * searches in the trees built on AbstractWAVLTree, with primitive long keys,
+ * generic info and keys compared by a Comparator, against WAVLTree. with
+ * the GC profiler on, the boxing of the Comparator keys shows up as
+ * allocation.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpecializationBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	private Keys keys;
+	private WAVLTree tree;
+	private LongWAVLTree longTree;
+	private GenericWAVLTree<String> genericTree;
+	private ComparatorWAVLTree<Integer, String> comparatorTree;
+
+	@Setup
+	public void setUp() {
+		this.keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = this.keys.wavlTree();
+		this.longTree = new LongWAVLTree();
+		this.genericTree = new GenericWAVLTree<>();
+		this.comparatorTree = new ComparatorWAVLTree<>(Comparator.naturalOrder());
+		for (int i = 0; i < this.size; i++) {
+			int k = this.keys.insertOrder[i];
+			this.longTree.insert(k, this.keys.infos[i]);
+			this.genericTree.insert(k, this.keys.infos[i]);
+			this.comparatorTree.insert(k, this.keys.infos[i]);
+		}
+	}
+
+	@Benchmark
+	public String searchWAVLTree() {
+		return this.tree.search(this.keys.next());
+	}
+
+	@Benchmark
+	public String searchLongWAVLTree() {
+		return this.longTree.search(this.keys.next());
+	}
+
+	@Benchmark
+	public String searchGenericWAVLTree() {
+		return this.genericTree.search(this.keys.next());
+	}
+
+	@Benchmark
+	public String searchComparatorWAVLTree() {
+		return this.comparatorTree.search(this.keys.next());
+	}
+}
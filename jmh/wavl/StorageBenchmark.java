@@ -0,0 +1,113 @@
+package wavl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * the trees that store their nodes differently, against WAVLTree on the
+ * same random keys: parallel arrays (IntWAVLTree), direct buffers
+ * (OffHeapWAVLTree), path copying (PersistentWAVLTree), rank difference
+ * bits (CompactWAVLTree) and no parent pointers (StackWAVLTree).
+ * <p>
+ * fill inserts all keys into a new tree, so its score is the time of size
+ * inserts. the infos are made before, so with the GC profiler, the
+ * gc.alloc.rate.norm of fill divided by size is the heap every tree takes
+ * per entry.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StorageBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	@Param({ "WAVLTree", "IntWAVLTree", "OffHeapWAVLTree", "PersistentWAVLTree", "CompactWAVLTree",
+			"StackWAVLTree" })
+	String impl;
+
+	private Keys keys;
+	private IntKeyTree<String> tree;
+
+	@Setup
+	public void setUp() {
+		this.keys = new Keys(Keys.Workload.RANDOM, this.size);
+		this.tree = filledTree();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		close(this.tree);
+	}
+
+	private IntKeyTree<String> create() {
+		switch (this.impl) {
+		case "WAVLTree":
+			return new WAVLTree();
+		case "IntWAVLTree":
+			return new IntWAVLTree();
+		case "OffHeapWAVLTree":
+			return new OffHeapWAVLTree();
+		case "PersistentWAVLTree":
+			return new PersistentWAVLTree();
+		case "CompactWAVLTree":
+			return new CompactWAVLTree();
+		case "StackWAVLTree":
+			return new StackWAVLTree();
+		default:
+			throw new IllegalArgumentException("unknown tree: " + this.impl);
+		}
+	}
+
+	private IntKeyTree<String> filledTree() {
+		IntKeyTree<String> tree = create();
+		for (int i = 0; i < this.size; i++) {
+			tree.insert(this.keys.insertOrder[i], this.keys.infos[i]);
+		}
+		return tree;
+	}
+
+	private static void close(IntKeyTree<String> tree) throws Exception {
+		if (tree instanceof AutoCloseable) {
+			((AutoCloseable) tree).close();
+		}
+	}
+
+	/**
+	 * includes closing the trees that hold memory outside of the heap
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int fill() throws Exception {
+		IntKeyTree<String> tree = filledTree();
+		int size = tree.size();
+		close(tree);
+		return size;
+	}
+
+	@Benchmark
+	public String search() {
+		return this.tree.search(this.keys.next());
+	}
+
+	@Benchmark
+	public void insertDelete(Rebalances counters) {
+		int k = this.keys.next() + 1;
+		counters.add(this.tree.insert(k, ""));
+		counters.add(this.tree.delete(k));
+	}
+}
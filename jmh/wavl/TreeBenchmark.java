@@ -0,0 +1,183 @@
+package wavl;
+
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * WAVLTree against java.util.TreeMap, for insert, delete, search, min/max
+ * and the sorted arrays, on sequential, random and zipfian keys.
+ * <p>
+ * fill and drain insert or delete all keys, so their score is the time of
+ * size operations. the other benchmarks are single operations on a tree of
+ * size keys. insertDelete inserts a key that is not in the tree and deletes
+ * it again, and counts the rebalancing operations. searchWAVLTreeMap goes
+ * through the NavigableMap view, and searchWAVLTreeMapBoxed through the Object
+ * overload of get, to show what the view and the boxing add.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TreeBenchmark {
+
+	@Param({ "1000", "1000000" })
+	int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM", "ZIPFIAN" })
+	Keys.Workload workload;
+
+	private Keys keys;
+	private WAVLTree tree;
+	private TreeMap<Integer, String> treeMap;
+	private WAVLTreeMap map;
+
+	@Setup
+	public void setUp() {
+		this.keys = new Keys(this.workload, this.size);
+		this.tree = this.keys.wavlTree();
+		this.treeMap = this.keys.treeMap();
+		this.map = this.tree.asMap();
+	}
+
+	/**
+	 * a tree of all keys for every invocation, for the benchmarks that empty
+	 * it
+	 */
+	@State(Scope.Thread)
+	public static class FullWAVLTree {
+		WAVLTree tree;
+
+		@Setup(Level.Invocation)
+		public void fill(TreeBenchmark benchmark) {
+			this.tree = benchmark.keys.wavlTree();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class FullTreeMap {
+		TreeMap<Integer, String> map;
+
+		@Setup(Level.Invocation)
+		public void fill(TreeBenchmark benchmark) {
+			this.map = benchmark.keys.treeMap();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public WAVLTree fillWAVLTree() {
+		return this.keys.wavlTree();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public TreeMap<Integer, String> fillTreeMap() {
+		return this.keys.treeMap();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void drainWAVLTree(FullWAVLTree full) {
+		for (int k : this.keys.accessOrder) {
+			full.tree.delete(k);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void drainTreeMap(FullTreeMap full) {
+		for (int k : this.keys.accessOrder) {
+			full.map.remove(k);
+		}
+	}
+
+	@Benchmark
+	public void insertDeleteWAVLTree(Rebalances counters) {
+		int k = this.keys.next() + 1;
+		counters.add(this.tree.insert(k, ""));
+		counters.add(this.tree.delete(k));
+	}
+
+	@Benchmark
+	public String insertDeleteTreeMap() {
+		int k = this.keys.next() + 1;
+		this.treeMap.put(k, "");
+		return this.treeMap.remove(k);
+	}
+
+	@Benchmark
+	public String searchWAVLTree() {
+		return this.tree.search(this.keys.next());
+	}
+
+	@Benchmark
+	public String searchWAVLTreeMap() {
+		return this.map.get(this.keys.next());
+	}
+
+	@Benchmark
+	public String searchWAVLTreeMapBoxed() {
+		return this.map.get((Object) this.keys.next());
+	}
+
+	@Benchmark
+	public String searchTreeMap() {
+		return this.treeMap.get(this.keys.next());
+	}
+
+	@Benchmark
+	public void minMaxWAVLTree(Blackhole bh) {
+		bh.consume(this.tree.min());
+		bh.consume(this.tree.max());
+	}
+
+	@Benchmark
+	public void minMaxTreeMap(Blackhole bh) {
+		bh.consume(this.treeMap.firstEntry().getValue());
+		bh.consume(this.treeMap.lastEntry().getValue());
+	}
+
+	/**
+	 * the arrays of an unchanged tree are cached, so every invocation changes
+	 * the tree first
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void toArraysWAVLTree(Blackhole bh) {
+		int k = this.keys.next() + 1;
+		this.tree.insert(k, "");
+		this.tree.delete(k);
+		bh.consume(this.tree.keysToArray());
+		bh.consume(this.tree.infoToArray());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void toArraysTreeMap(Blackhole bh) {
+		int k = this.keys.next() + 1;
+		this.treeMap.put(k, "");
+		this.treeMap.remove(k);
+		bh.consume(this.treeMap.keySet().toArray());
+		bh.consume(this.treeMap.values().toArray());
+	}
+}
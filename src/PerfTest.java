@@ -1,6 +0,0 @@
-
-/**
- * Created by Ofir on 24/12/2016.
- */
-public class PerfTest {
-}
@@ -0,0 +1,491 @@
+package wavl;
+
+import wavl.AbstractWAVLTree.RankDiff;
+
+/**
+ *
+ * AbstractIntWAVLTree
+ * <p>
+ * The rebalancing core of AbstractWAVLTree for trees whose nodes are not
+ * objects but int handles, like the slots of IntWAVLTree and the records of
+ * OffHeapWAVLTree. the subclass stores the nodes and reads and writes their
+ * links and ranks through the accessor methods, and the core links, unlinks
+ * and rebalances them. NIL stands for a missing node.
+ * <p>
+ * the subclass finds where a key belongs and allocates the new node before
+ * calling insertUnder, and frees the node after deleteNode returns.
+ */
+
+abstract class AbstractIntWAVLTree {
+
+	static final int NIL = -1;
+
+	int root = NIL;
+	int min = NIL;
+	int max = NIL;
+	int size;
+
+	/*
+	 * node access. node is never NIL, but the children and the parent that
+	 * are read or written can be.
+	 */
+
+	abstract int key(int node);
+
+	abstract int rank(int node);
+
+	abstract void setRank(int node, int rank);
+
+	abstract int parent(int node);
+
+	abstract int left(int node);
+
+	abstract int right(int node);
+
+	abstract void setParent(int node, int parent);
+
+	abstract void setLeft(int node, int left);
+
+	abstract void setRight(int node, int right);
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * links a new node as a child of parent, or as the root if the tree is
+	 * empty, and rebalances the tree. returns the number of rebalancing
+	 * operations.
+	 *
+	 * @param parent  - the last node on the search path of the new key, or NIL
+	 *                if the tree is empty
+	 * @param newNode - the node to be inserted, a leaf of rank 0
+	 * @param left    - should be set to true if the new key is smaller than the
+	 *                key of parent
+	 */
+	int insertUnder(int parent, int newNode, boolean left) {
+		this.size++;
+		if (parent == NIL) {
+			setRoot(newNode);
+			this.min = newNode;
+			this.max = newNode;
+			return 0;
+		}
+
+		// a new node is the smallest only if it is the left child of the smallest
+		if (left) {
+			setLeftChild(parent, newNode);
+			if (parent == this.min) {
+				this.min = newNode;
+			}
+		} else {
+			setRightChild(parent, newNode);
+			if (parent == this.max) {
+				this.max = newNode;
+			}
+		}
+		return rebalanceAfterInsertion(parent);
+	}
+
+	/**
+	 * unlinks a node of the tree and rebalances the tree. returns the number
+	 * of rebalancing operations. the node itself is left to the subclass to
+	 * free.
+	 */
+	int deleteNode(int node) {
+		// the smallest node has no left child, so it is followed by its right
+		// child, which is a leaf, or else by its parent
+		if (node == this.min) {
+			this.min = right(node) != NIL ? right(node) : parent(node);
+		}
+		if (node == this.max) {
+			this.max = left(node) != NIL ? left(node) : parent(node);
+		}
+		int parent = parent(node);
+		boolean isLeftChild = parent != NIL && left(parent) == node;
+		int res;
+
+		// case 1: the node to be deleted has no children.
+		if (left(node) == NIL && right(node) == NIL) {
+			replaceChild(parent, NIL, isLeftChild);
+			res = rebalanceAfterDeletion(parent);
+
+			// case 2: the node to be deleted has only one child, which is a leaf
+		} else if (left(node) == NIL || right(node) == NIL) {
+			int child = left(node) != NIL ? left(node) : right(node);
+			replaceChild(parent, child, isLeftChild);
+			res = rebalanceAfterDeletion(parent);
+
+			// case 3: the node to be deleted has 2 children
+		} else {
+			res = rebalanceAfterDeletion(deleteNodeWithTwoChildren(node, isLeftChild));
+		}
+
+		this.size--;
+		return res;
+	}
+
+	/**
+	 * finds the minimal node in a sub-tree
+	 */
+	int min(int node) {
+		while (left(node) != NIL) {
+			node = left(node);
+		}
+		return node;
+	}
+
+	/**
+	 * returns the node with the next larger key, or NIL if there is none
+	 */
+	int successor(int node) {
+		if (right(node) != NIL) {
+			return min(right(node));
+		}
+		int parent = parent(node);
+		while (parent != NIL && right(parent) == node) {
+			node = parent;
+			parent = parent(node);
+		}
+		return parent;
+	}
+
+	/**
+	 * checks the rank rules, the parent links and the order of the keys.
+	 * returns the number of nodes in the tree.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkInvariants() {
+		int count = checkInvariants(this.root, NIL, Long.MIN_VALUE, Long.MAX_VALUE);
+		if (count != this.size) {
+			throw new IllegalStateException("tree has " + count + " nodes but size " + this.size);
+		}
+		return count;
+	}
+
+	private int checkInvariants(int node, int parent, long lo, long hi) {
+		if (node == NIL) {
+			return 0;
+		}
+		int key = key(node);
+		if (key <= lo || key >= hi) {
+			throw new IllegalStateException("key " + key + " is out of order");
+		}
+		if (parent(node) != parent) {
+			throw new IllegalStateException("node " + key + " has the wrong parent");
+		}
+		int left = getRank(node) - getRank(left(node));
+		int right = getRank(node) - getRank(right(node));
+		if (left < 1 || left > 2 || right < 1 || right > 2 || (left == 2 && right == 2 && getRank(node) == 1)) {
+			throw new IllegalStateException("node " + key + " has rank differences " + left + "," + right);
+		}
+		return 1 + checkInvariants(left(node), node, lo, key) + checkInvariants(right(node), node, key, hi);
+	}
+
+	/**
+	 * returns the rank of a node or -1 if node is NIL (external node)
+	 */
+	private int getRank(int node) {
+		if (node == NIL) { // external leaf
+			return -1;
+		}
+		return rank(node);
+	}
+
+	private boolean isLeaf(int node) {
+		return left(node) == NIL && right(node) == NIL;
+	}
+
+	private RankDiff rankDiff(int node) {
+		int rank = rank(node);
+		return RankDiff.of(rank - getRank(left(node)), rank - getRank(right(node)));
+	}
+
+	/*
+	 * important: use ONLY the next functions to set children and the root.
+	 * these functions also maintain parents of nodes.
+	 */
+
+	private void setRoot(int node) {
+		this.root = node;
+		if (node != NIL) {
+			setParent(node, NIL);
+		}
+	}
+
+	private void setLeftChild(int node, int child) {
+		setLeft(node, child);
+		if (child != NIL) {
+			setParent(child, node);
+		}
+	}
+
+	private void setRightChild(int node, int child) {
+		setRight(node, child);
+		if (child != NIL) {
+			setParent(child, node);
+		}
+	}
+
+	/**
+	 * replaces the child of a parent on the given side, or the root if the
+	 * parent is NIL
+	 */
+	private void replaceChild(int parent, int child, boolean isLeftChild) {
+		if (parent == NIL) {
+			setRoot(child);
+		} else if (isLeftChild) {
+			setLeftChild(parent, child);
+		} else {
+			setRightChild(parent, child);
+		}
+	}
+
+	/**
+	 * replaces a node that has two children with its successor. returns the
+	 * successor's old parent, or the successor itself if the parent is the
+	 * node we deleted.
+	 */
+	private int deleteNodeWithTwoChildren(int node, boolean isLeftChild) {
+		int successor = min(right(node));
+		int successorParent = parent(successor) != node ? parent(successor) : NIL;
+
+		if (successorParent != NIL) {
+			setLeftChild(successorParent, right(successor));
+		}
+		replaceChild(parent(node), successor, isLeftChild);
+		setLeftChild(successor, left(node));
+		if (successorParent != NIL) { // to prevent a node from being its own child
+			setRightChild(successor, right(node));
+		}
+		setRank(successor, rank(node));
+
+		return successorParent != NIL ? successorParent : successor;
+	}
+
+	/**
+	 * rebalances the tree, starting from the parent of a node that was
+	 * inserted. returns the amount of rebalancing operations needed.
+	 */
+	private int rebalanceAfterInsertion(int node) {
+		RankDiff prev = RankDiff.D1_1;
+		int counter = 0;
+
+		while (node != NIL) {
+			switch (rankDiff(node)) {
+				case D0_1: // promotion
+					setRank(node, rank(node) + 1);
+					counter++;
+					prev = RankDiff.D1_2;
+					break;
+
+				case D1_0: // promotion. symmetrical case
+					setRank(node, rank(node) + 1);
+					counter++;
+					prev = RankDiff.D2_1;
+					break;
+
+				case D0_2: // rotation required
+					if (prev == RankDiff.D1_2) {
+						rotateRight(node, false);
+						counter++;
+					} else {
+						doubleRotateLeftRight(node, false);
+						counter += 2;
+					}
+					return counter;
+
+				case D2_0: // rotation required. symmetrical case
+					if (prev == RankDiff.D2_1) {
+						rotateLeft(node, false);
+						counter++;
+					} else {
+						doubleRotateRightLeft(node, false);
+						counter += 2;
+					}
+					return counter;
+
+				default:
+					return counter;
+			}
+			node = parent(node);
+		}
+
+		return counter;
+	}
+
+	/**
+	 * rebalances the tree after a deletion to maintain valid rank differences.
+	 * returns the amount of rebalancing operations needed.
+	 */
+	private int rebalanceAfterDeletion(int node) {
+		if (node == NIL) { // reached root. tree is balanced
+			return 0;
+		}
+
+		int counter = 0;
+		RankDiff diff = rankDiff(node);
+
+		// we start by demoting a 2,2 leaf if we have one
+		if (diff == RankDiff.D2_2 && isLeaf(node)) {
+			setRank(node, rank(node) - 1);
+			counter++;
+			node = parent(node);
+			if (node == NIL) {
+				return counter;
+			}
+			diff = rankDiff(node);
+		}
+
+		while (true) {
+			switch (diff) {
+				case D3_2: // single demote
+				case D2_3:
+					setRank(node, rank(node) - 1);
+					counter++;
+					break;
+
+				case D3_1: {
+					int child = right(node);
+					RankDiff prev = rankDiff(child);
+					if (prev == RankDiff.D2_2) { // double demote
+						setRank(node, rank(node) - 1);
+						setRank(child, rank(child) - 1);
+						counter += 2;
+						break;
+					} else if (prev == RankDiff.D1_1 || prev == RankDiff.D2_1) { // rotation
+						rotateLeft(node, true);
+						// after rotation we might have created a 2,2 leaf, check and fix
+						if (rankDiff(node) == RankDiff.D2_2 && isLeaf(node)) {
+							setRank(node, rank(node) - 1);
+						}
+						return counter + 1;
+					} else { // double rotation
+						doubleRotateRightLeft(node, true);
+						return counter + 2;
+					}
+				}
+
+				case D1_3: { // symmetrical case to D3_1
+					int child = left(node);
+					RankDiff prev = rankDiff(child);
+					if (prev == RankDiff.D2_2) { // double demote
+						setRank(node, rank(node) - 1);
+						setRank(child, rank(child) - 1);
+						counter += 2;
+						break;
+					} else if (prev == RankDiff.D1_1 || prev == RankDiff.D1_2) { // rotation
+						rotateRight(node, true);
+						// after rotation we might have created a 2,2 leaf, check and fix
+						if (rankDiff(node) == RankDiff.D2_2 && isLeaf(node)) {
+							setRank(node, rank(node) - 1);
+						}
+						return counter + 1;
+					} else { // double rotation
+						doubleRotateLeftRight(node, true);
+						return counter + 2;
+					}
+				}
+
+				default:
+					return counter;
+			}
+			node = parent(node);
+			if (node == NIL) {
+				return counter;
+			}
+			diff = rankDiff(node);
+		}
+	}
+
+	/**
+	 * rotates a node to the right.
+	 *
+	 * @param node          - node to be rotated
+	 * @param afterDeletion - should be set to true only if the rotation is done after a
+	 *                      delete operation. rotation after insertion requires different
+	 *                      rank maintaining than after deletion.
+	 */
+	private void rotateRight(int node, boolean afterDeletion) {
+		int oldParent = parent(node);
+		boolean isLeftChild = oldParent != NIL && left(oldParent) == node;
+
+		int k = left(node);
+		setLeftChild(node, right(k));
+		setRightChild(k, node);
+
+		finishRotation(node, k, oldParent, isLeftChild, afterDeletion);
+	}
+
+	/**
+	 * rotates a node to the left.
+	 *
+	 * @param node          - node to be rotated
+	 * @param afterDeletion - should be set to true only if the rotation is done after a
+	 *                      delete operation. rotation after insertion requires different
+	 *                      rank maintaining than after deletion.
+	 */
+	private void rotateLeft(int node, boolean afterDeletion) {
+		int oldParent = parent(node);
+		boolean isLeftChild = oldParent != NIL && left(oldParent) == node;
+
+		int k = right(node);
+		setRightChild(node, left(k));
+		setLeftChild(k, node);
+
+		finishRotation(node, k, oldParent, isLeftChild, afterDeletion);
+	}
+
+	/**
+	 * connects the rotated sub-tree to the tree, and maintains the ranks of
+	 * the rotated nodes
+	 */
+	private void finishRotation(int node, int k, int oldParent, boolean isLeftChild, boolean afterDeletion) {
+		replaceChild(oldParent, k, isLeftChild);
+		setRank(node, rank(node) - 1);
+		if (afterDeletion) {
+			setRank(k, rank(k) + 1);
+		}
+	}
+
+	/**
+	 * makes a double rotation. first, a rotation to the left of the left child,
+	 * then, a rotation to the right of the given node
+	 */
+	private void doubleRotateLeftRight(int node, boolean afterDeletion) {
+		rotateLeft(left(node), afterDeletion);
+		rotateRight(node, afterDeletion);
+
+		if (afterDeletion) {
+			setRank(node, rank(node) - 1);
+		} else {
+			setRank(parent(node), rank(parent(node)) + 1);
+		}
+	}
+
+	/**
+	 * makes a double rotation. first, a rotation to the right of the right
+	 * child, then, a rotation to the left of the given node
+	 */
+	private void doubleRotateRightLeft(int node, boolean afterDeletion) {
+		rotateRight(right(node), afterDeletion);
+		rotateLeft(node, afterDeletion);
+
+		if (afterDeletion) {
+			setRank(node, rank(node) - 1);
+		} else {
+			setRank(parent(node), rank(parent(node)) + 1);
+		}
+	}
+}
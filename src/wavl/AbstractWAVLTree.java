@@ -0,0 +1,592 @@
+package wavl;
+
+/**
+ *
+ * AbstractWAVLTree
+ * <p>
+ * The rebalancing core shared by the WAVL trees with node objects. it only
+ * works on the links and ranks of nodes, and never looks at keys: a subclass
+ * finds where a key belongs with its own comparisons, creates its own node
+ * type with a key and info, and lets the core link, unlink and rebalance it.
+ * so comparisons of primitive keys are never boxed.
+ * <p>
+ * a subclass that keeps more in its nodes than links and ranks, like the
+ * sub-tree sizes of WAVLTree, overrides childrenChanged and pathChanged.
+ * the trees that keep their nodes in arrays have the same core over int
+ * handles in AbstractIntWAVLTree.
+ *
+ * @param <N> - the node type of the subclass
+ */
+
+abstract class AbstractWAVLTree<N extends AbstractWAVLTree.Node<N>> {
+
+	private enum NodeType {
+		LEAF, UNARY_RIGHT, UNARY_LEFT, TWO_CHILDREN;
+
+		static NodeType of(Node<?> node) {
+			if (node.leftChild != null && node.rightChild != null) {
+				return TWO_CHILDREN;
+			} else if (node.leftChild != null) {
+				return UNARY_LEFT;
+			} else if (node.rightChild != null) {
+				return UNARY_RIGHT;
+			} else {
+				return LEAF;
+			}
+		}
+	}
+
+	// this enum represents the rank differences of a node. AbstractIntWAVLTree
+	// uses it too.
+	enum RankDiff {
+		D0_1, D0_2, D1_0, D1_1, D1_2, D1_3, D2_0, D2_1, D2_2, D2_3, D3_1, D3_2;
+
+		static RankDiff of(Node<?> node) {
+			if (node == null) {
+				return null;
+			}
+			return of(node.rank - getRank(node.leftChild), node.rank - getRank(node.rightChild));
+		}
+
+		static RankDiff of(int diffLeft, int diffRight) {
+			if (diffLeft == 0) {
+				return diffRight == 1 ? D0_1 : D0_2;
+			} else if (diffLeft == 1) {
+				if (diffRight == 0) {
+					return D1_0;
+				} else if (diffRight == 1) {
+					return D1_1;
+				} else if (diffRight == 2) {
+					return D1_2;
+				}
+				return D1_3;
+			} else if (diffLeft == 2) {
+				if (diffRight == 0) {
+					return D2_0;
+				} else if (diffRight == 1) {
+					return D2_1;
+				} else if (diffRight == 2) {
+					return D2_2;
+				}
+				return D2_3;
+			} else { // diffLeft == 3
+				return diffRight == 1 ? D3_1 : D3_2;
+			}
+		}
+	}
+
+	/**
+	 * the links and rank of a node. subclasses add the key and the info.
+	 */
+	abstract static class Node<N extends Node<N>> {
+		int rank;
+		N parent;
+		N leftChild;
+		N rightChild;
+
+		int getRank() {
+			return this.rank;
+		}
+
+		N getParent() {
+			return this.parent;
+		}
+
+		N getLeftChild() {
+			return this.leftChild;
+		}
+
+		N getRightChild() {
+			return this.rightChild;
+		}
+	}
+
+	N root;
+	N min;
+	N max;
+	int size;
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * returns the root WAVL node, or null if the tree is empty
+	 */
+	N getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * checks the rank rules and the parent links. the core never looks at
+	 * keys, so the order of the keys is left to the subclass. returns the
+	 * number of nodes in the tree.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkInvariants() {
+		int count = checkInvariants(this.root, null);
+		if (count != this.size) {
+			throw new IllegalStateException("tree has " + count + " nodes but size " + this.size);
+		}
+		return count;
+	}
+
+	private int checkInvariants(N node, N parent) {
+		if (node == null) {
+			return 0;
+		}
+		if (node.parent != parent) {
+			throw new IllegalStateException("a node of rank " + node.rank + " has the wrong parent");
+		}
+		int left = node.rank - getRank(node.leftChild);
+		int right = node.rank - getRank(node.rightChild);
+		if (left < 1 || left > 2 || right < 1 || right > 2 || (left == 2 && right == 2 && node.rank == 1)) {
+			throw new IllegalStateException("a node has rank differences " + left + "," + right);
+		}
+		return 1 + checkInvariants(node.leftChild, node) + checkInvariants(node.rightChild, node);
+	}
+
+	/**
+	 * links a new node as a child of parent, or as the root if the tree is
+	 * empty, and rebalances the tree. returns the number of rebalancing
+	 * operations.
+	 *
+	 * @param parent  - the last node on the search path of the new key, or null
+	 *                if the tree is empty
+	 * @param newNode - the node to be inserted
+	 * @param left    - should be set to true if the new key is smaller than the
+	 *                key of parent
+	 */
+	int insertUnder(N parent, N newNode, boolean left) {
+		this.size++;
+		if (parent == null) {
+			this.root = newNode;
+			this.min = newNode;
+			this.max = newNode;
+			return 0;
+		}
+
+		// a new node is the smallest only if it is the left child of the smallest
+		if (left) {
+			setLeftChild(parent, newNode);
+			if (parent == this.min) {
+				this.min = newNode;
+			}
+		} else {
+			setRightChild(parent, newNode);
+			if (parent == this.max) {
+				this.max = newNode;
+			}
+		}
+		pathChanged(parent);
+		return rebalanceAbove(newNode);
+	}
+
+	/**
+	 * unlinks a node of the tree and rebalances the tree. returns the number
+	 * of rebalancing operations.
+	 */
+	int deleteNode(N node) {
+		if (node == this.min) {
+			this.min = successor(node);
+		}
+		if (node == this.max) {
+			this.max = predecessor(node);
+		}
+		boolean isLeftChild = node.parent != null && node.parent.leftChild == node;
+		NodeType type = NodeType.of(node);
+		int res;
+
+		// case 1: the node to be deleted has no children.
+		if (type == NodeType.LEAF) {
+			replaceChild(node.parent, null, isLeftChild);
+			pathChanged(node.parent);
+			res = rebalanceAfterDeletion(node.parent);
+
+			// case 2: the node to be deleted has only one child, which is a leaf
+		} else if (type != NodeType.TWO_CHILDREN) {
+			N child = type == NodeType.UNARY_LEFT ? node.leftChild : node.rightChild;
+			replaceChild(node.parent, child, isLeftChild);
+			pathChanged(node.parent);
+			res = rebalanceAfterDeletion(node.parent);
+
+			// case 3: the node to be deleted has 2 children
+		} else {
+			N n = deleteNodeWithTwoChildren(node, isLeftChild);
+			pathChanged(n);
+			res = rebalanceAfterDeletion(n);
+		}
+
+		this.size--;
+		node.parent = null;
+		node.leftChild = null;
+		node.rightChild = null;
+		return res;
+	}
+
+	/**
+	 * removes all nodes from the tree
+	 */
+	void clear() {
+		this.root = null;
+		this.min = null;
+		this.max = null;
+		this.size = 0;
+	}
+
+	/**
+	 * returns the node that follows a node in the sorted order, or null if it
+	 * is the largest
+	 */
+	N successor(N node) {
+		if (node.rightChild != null) {
+			node = node.rightChild;
+			while (node.leftChild != null) {
+				node = node.leftChild;
+			}
+			return node;
+		}
+		while (node.parent != null && node.parent.rightChild == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * returns the node that precedes a node in the sorted order, or null if
+	 * it is the smallest
+	 */
+	N predecessor(N node) {
+		if (node.leftChild != null) {
+			node = node.leftChild;
+			while (node.rightChild != null) {
+				node = node.rightChild;
+			}
+			return node;
+		}
+		while (node.parent != null && node.parent.leftChild == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * returns the rank of a node or -1 if node is null (external node)
+	 */
+	static int getRank(Node<?> node) {
+		if (node == null) { // external leaf
+			return -1;
+		}
+		return node.rank;
+	}
+
+	/**
+	 * called after a child of node was replaced. the core calls it for
+	 * every link it changes, also during rotations. does nothing by default.
+	 */
+	void childrenChanged(N node) {
+	}
+
+	/**
+	 * called after a node was linked below node or unlinked from below it,
+	 * before rebalancing, so that node and its ancestors can be updated.
+	 * node is null if the root was unlinked. does nothing by default.
+	 */
+	void pathChanged(N node) {
+	}
+
+	/**
+	 * sets the left child of a node and the parent of the child
+	 */
+	void setLeftChild(N node, N child) {
+		node.leftChild = child;
+		if (child != null) {
+			child.parent = node;
+		}
+		childrenChanged(node);
+	}
+
+	/**
+	 * sets the right child of a node and the parent of the child
+	 */
+	void setRightChild(N node, N child) {
+		node.rightChild = child;
+		if (child != null) {
+			child.parent = node;
+		}
+		childrenChanged(node);
+	}
+
+	/**
+	 * puts child in the place of a child of parent, or as the root if parent
+	 * is null
+	 */
+	private void replaceChild(N parent, N child, boolean isLeftChild) {
+		if (parent == null) {
+			this.root = child;
+			if (child != null) {
+				child.parent = null;
+			}
+		} else if (isLeftChild) {
+			setLeftChild(parent, child);
+		} else {
+			setRightChild(parent, child);
+		}
+	}
+
+	/**
+	 * replaces a node that has two children with its successor. returns the
+	 * successor's old parent, or the successor itself if the parent is the
+	 * node we deleted.
+	 */
+	private N deleteNodeWithTwoChildren(N node, boolean isLeftChild) {
+		N successor = node.rightChild;
+		while (successor.leftChild != null) {
+			successor = successor.leftChild;
+		}
+		N successorParent = successor.parent != node ? successor.parent : null;
+
+		if (successorParent != null) {
+			setLeftChild(successorParent, successor.rightChild);
+		}
+		replaceChild(node.parent, successor, isLeftChild);
+		setLeftChild(successor, node.leftChild);
+		if (successorParent != null) { // to prevent a node from being its own child
+			setRightChild(successor, node.rightChild);
+		}
+		successor.rank = node.rank;
+
+		return successorParent != null ? successorParent : successor;
+	}
+
+	/**
+	 * rebalances the tree, starting from the parent of a node that was just
+	 * linked into it, either as a new leaf or as the root of a sub-tree, as
+	 * join does. the node itself must be valid. returns the amount of
+	 * rebalancing operations needed.
+	 */
+	int rebalanceAbove(N child) {
+		return rebalanceAfterInsertion(child.parent, RankDiff.of(child));
+	}
+
+	/**
+	 * rebalances the tree, starting from a node that might have a 0-child.
+	 *
+	 * @param node - parent of the node that was inserted or promoted
+	 * @param prev - the rank differences of that (inserted or promoted) child
+	 */
+	private int rebalanceAfterInsertion(N node, RankDiff prev) {
+		int counter = 0;
+
+		while (node != null) {
+			switch (RankDiff.of(node)) {
+				case D0_1: // promotion
+					node.rank++;
+					counter++;
+					prev = RankDiff.D1_2;
+					break;
+
+				case D1_0: // promotion. symmetrical case
+					node.rank++;
+					counter++;
+					prev = RankDiff.D2_1;
+					break;
+
+				case D0_2: // rotation required
+					if (prev == RankDiff.D1_2) {
+						rotateRight(node, false);
+						counter++;
+					} else {
+						doubleRotateLeftRight(node, false);
+						counter += 2;
+					}
+					return counter;
+
+				case D2_0: // rotation required. symmetrical case
+					if (prev == RankDiff.D2_1) {
+						rotateLeft(node, false);
+						counter++;
+					} else {
+						doubleRotateRightLeft(node, false);
+						counter += 2;
+					}
+					return counter;
+
+				default:
+					return counter;
+			}
+			node = node.parent;
+		}
+
+		return counter;
+	}
+
+	/**
+	 * rebalances the tree after a deletion to maintain valid rank differences.
+	 * returns the amount of rebalancing operations needed.
+	 */
+	private int rebalanceAfterDeletion(N node) {
+		if (node == null) { // reached root. tree is balanced
+			return 0;
+		}
+
+		int counter = 0;
+		RankDiff diff = RankDiff.of(node);
+
+		// we start by demoting a 2,2 leaf if we have one
+		if (diff == RankDiff.D2_2 && NodeType.of(node) == NodeType.LEAF) {
+			node.rank--;
+			counter++;
+			node = node.parent;
+			diff = RankDiff.of(node);
+		}
+
+		while (node != null) {
+			switch (diff) {
+				case D3_2: // single demote
+				case D2_3:
+					node.rank--;
+					counter++;
+					break;
+
+				case D3_1: {
+					RankDiff prev = RankDiff.of(node.rightChild);
+					if (prev == RankDiff.D2_2) { // double demote
+						node.rank--;
+						node.rightChild.rank--;
+						counter += 2;
+						break;
+					} else if (prev == RankDiff.D1_1 || prev == RankDiff.D2_1) { // rotation
+						rotateLeft(node, true);
+						// after rotation we might have created a 2,2 leaf, check and fix
+						if (RankDiff.of(node) == RankDiff.D2_2 && NodeType.of(node) == NodeType.LEAF) {
+							node.rank--;
+						}
+						return counter + 1;
+					} else { // double rotation
+						doubleRotateRightLeft(node, true);
+						return counter + 2;
+					}
+				}
+
+				case D1_3: { // symmetrical case to D3_1
+					RankDiff prev = RankDiff.of(node.leftChild);
+					if (prev == RankDiff.D2_2) { // double demote
+						node.rank--;
+						node.leftChild.rank--;
+						counter += 2;
+						break;
+					} else if (prev == RankDiff.D1_1 || prev == RankDiff.D1_2) { // rotation
+						rotateRight(node, true);
+						// after rotation we might have created a 2,2 leaf, check and fix
+						if (RankDiff.of(node) == RankDiff.D2_2 && NodeType.of(node) == NodeType.LEAF) {
+							node.rank--;
+						}
+						return counter + 1;
+					} else { // double rotation
+						doubleRotateLeftRight(node, true);
+						return counter + 2;
+					}
+				}
+
+				default:
+					return counter;
+			}
+			node = node.parent;
+			diff = RankDiff.of(node);
+		}
+
+		return counter;
+	}
+
+	/**
+	 * rotates a node to the right.
+	 *
+	 * @param node          - node to be rotated
+	 * @param afterDeletion - should be set to true only if the rotation is done after a
+	 *                      delete operation. rotation after insertion requires different
+	 *                      rank maintaining than after deletion.
+	 */
+	private void rotateRight(N node, boolean afterDeletion) {
+		N oldParent = node.parent;
+		boolean isLeftChild = oldParent != null && oldParent.leftChild == node;
+
+		N k = node.leftChild;
+		setLeftChild(node, k.rightChild);
+		setRightChild(k, node);
+
+		finishRotation(node, k, oldParent, isLeftChild, afterDeletion);
+	}
+
+	/**
+	 * rotates a node to the left.
+	 *
+	 * @param node          - node to be rotated
+	 * @param afterDeletion - should be set to true only if the rotation is done after a
+	 *                      delete operation. rotation after insertion requires different
+	 *                      rank maintaining than after deletion.
+	 */
+	private void rotateLeft(N node, boolean afterDeletion) {
+		N oldParent = node.parent;
+		boolean isLeftChild = oldParent != null && oldParent.leftChild == node;
+
+		N k = node.rightChild;
+		setRightChild(node, k.leftChild);
+		setLeftChild(k, node);
+
+		finishRotation(node, k, oldParent, isLeftChild, afterDeletion);
+	}
+
+	/**
+	 * connects the rotated sub-tree to the tree, and maintains the ranks of
+	 * the rotated nodes
+	 */
+	private void finishRotation(N node, N k, N oldParent, boolean isLeftChild, boolean afterDeletion) {
+		replaceChild(oldParent, k, isLeftChild);
+		node.rank--;
+		if (afterDeletion) {
+			k.rank++;
+		}
+	}
+
+	/**
+	 * makes a double rotation. first, a rotation to the left of the left child,
+	 * then, a rotation to the right of the given node
+	 */
+	private void doubleRotateLeftRight(N node, boolean afterDeletion) {
+		rotateLeft(node.leftChild, afterDeletion);
+		rotateRight(node, afterDeletion);
+
+		if (afterDeletion) {
+			node.rank--;
+		} else {
+			node.parent.rank++;
+		}
+	}
+
+	/**
+	 * makes a double rotation. first, a rotation to the right of the right
+	 * child, then, a rotation to the left of the given node
+	 */
+	private void doubleRotateRightLeft(N node, boolean afterDeletion) {
+		rotateRight(node.rightChild, afterDeletion);
+		rotateLeft(node, afterDeletion);
+
+		if (afterDeletion) {
+			node.rank--;
+		} else {
+			node.parent.rank++;
+		}
+	}
+}
@@ -0,0 +1,664 @@
+package wavl;
+
+import java.util.Arrays;
+
+/**
+ *
+ * CompactWAVLTree
+ * <p>
+ * A WAVL Tree with distinct integer keys and info, with the same operations
+ * as IntWAVLTree and the same array layout, but without any ranks. the rank
+ * difference of every child, which is always 1 or 2 in a valid tree, is kept
+ * as a single bit: the highest bit of the link to the child. the links of
+ * missing children keep their bits too, so a leaf is a node with two NIL
+ * links whose bits are clear.
+ * <p>
+ * rebalancing only ever looks at the two links of a node and at the link
+ * from its parent, and promotions, demotions and rotations flip or copy these
+ * bits instead of reading and writing ranks of nodes. the 0-child during an
+ * insertion and the 3-child during a deletion can not be stored in a single
+ * bit, so they are tracked by the rebalancing loops instead.
+ */
+
+public class CompactWAVLTree implements IntKeyTree<String> {
+
+	// slot 0 is never used, so a link with index 0 is a missing child
+	private static final int NIL = 0;
+	private static final int TWO = 1 << 31; // set in a link to a 2-child
+	private static final int INDEX = ~TWO;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// the node arrays. a slot is a node in the tree only if it is not in the free list
+	private int[] keys;
+	private int[] parents;
+	private int[] leftLinks;
+	private int[] rightLinks;
+	private String[] infos;
+
+	private int root = NIL;
+	private int size;
+
+	private int min = NIL;
+	private int max = NIL;
+	private int[] sortedKeys;
+	private String[] sortedInfo;
+
+	// slots that were never used start at used, freed slots are linked through leftLinks
+	private int used = 1;
+	private int freeList = NIL;
+
+	public CompactWAVLTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * creates an empty tree with room for capacity nodes before the node
+	 * arrays have to grow
+	 */
+	public CompactWAVLTree(int capacity) {
+		capacity = Math.max(capacity, 1) + 1;
+		this.keys = new int[capacity];
+		this.parents = new int[capacity];
+		this.leftLinks = new int[capacity];
+		this.rightLinks = new int[capacity];
+		this.infos = new String[capacity];
+	}
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size == 0;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int node = search(k, this.root);
+		if (node == NIL) {
+			return null;
+		}
+
+		return this.infos[node];
+	}
+
+	/**
+	 * returns the node with key k if it exists in the sub-tree, otherwise
+	 * returns NIL
+	 */
+	private int search(int k, int node) {
+		int[] keys = this.keys;
+		while (node != NIL) {
+			int key = keys[node];
+			if (key == k) {
+				return node;
+			}
+			node = (k > key ? this.rightLinks[node] : this.leftLinks[node]) & INDEX;
+		}
+		return NIL;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the WAVL tree. the tree must
+	 * remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were necessary. returns -1
+	 * if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		if (this.root == NIL) { // if tree is empty, add as root
+			int newNode = allocate(k, i);
+			this.setRoot(newNode);
+			this.min = newNode;
+			this.max = newNode;
+			this.size++;
+			this.sortedKeys = null;
+			this.sortedInfo = null;
+			return 0;
+		}
+
+		int parent = this.root;
+		boolean left;
+		while (true) {
+			int key = this.keys[parent];
+			if (k == key) {
+				return -1;
+			}
+			left = k < key;
+			int next = child(parent, left);
+			if (next == NIL) {
+				break;
+			}
+			parent = next;
+		}
+
+		// the missing child had rank -1 and the new leaf has rank 0. if the
+		// missing child was a 2-child, the leaf is a 1-child, and otherwise
+		// it is a 0-child
+		boolean zeroChild = diff(parent, left) == 1;
+		int newNode = allocate(k, i);
+		setChild(parent, left, newNode, 1);
+
+		if (k < this.keys[this.min]) {
+			this.min = newNode;
+		}
+		if (k > this.keys[this.max]) {
+			this.max = newNode;
+		}
+		this.size++;
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		return zeroChild ? rebalanceAfterInsertion(parent, left) : 0;
+	}
+
+	/**
+	 * rebalances the tree after an insertion. returns the amount of
+	 * rebalancing operations needed. same cases as WAVLTree.
+	 *
+	 * @param node - a node with a 0-child. the link to the 0-child has its bit
+	 *             clear, as for a 1-child
+	 * @param left - should be set to true if the 0-child is the left child
+	 */
+	private int rebalanceAfterInsertion(int node, boolean left) {
+		int counter = 0;
+
+		while (true) {
+			// case 1: 0,1 - promotion. the 0-child becomes a 1-child, whose bit
+			// is already clear, and the 1-child becomes a 2-child
+			if (diff(node, !left) == 1) {
+				flip(node, !left);
+				counter++;
+
+				int parent = this.parents[node];
+				if (parent == NIL) {
+					return counter;
+				}
+				boolean isLeftChild = child(parent, true) == node;
+				if (diff(parent, isLeftChild) == 2) { // a 2-child becomes a 1-child
+					flip(parent, isLeftChild);
+					return counter;
+				}
+				node = parent; // a 1-child becomes a 0-child
+				left = isLeftChild;
+				continue;
+			}
+
+			// case 2: 0,2 - rotation. the 0-child was just promoted, so one of
+			// its children is a 1-child and the other one is a 2-child
+			int y = child(node, left);
+			if (diff(y, left) == 1) {
+				// single rotation: y takes the rank of node, and node is demoted
+				// to a 1,1 node
+				int inner = child(y, !left);
+				replaceInParent(node, y);
+				setChild(node, left, inner, 1);
+				setChild(node, !left, child(node, !left), 1);
+				setChild(y, !left, node, 1);
+				return counter + 1;
+			}
+
+			// double rotation: the inner child w of y takes the rank of node,
+			// and both node and y are demoted below it
+			int w = child(y, !left);
+			int toY = linkOf(w, left);
+			int toNode = linkOf(w, !left);
+			replaceInParent(node, w);
+			setChild(y, left, child(y, left), 1);
+			setLink(y, !left, toY);
+			setLink(node, left, toNode);
+			setChild(node, !left, child(node, !left), 1);
+			setChild(w, left, y, 1);
+			setChild(w, !left, node, 1);
+			return counter + 2;
+		}
+	}
+
+	/**
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * must remain valid (keep its invariants). returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		// we need to find the node to be deleted
+		int node = search(k, this.root);
+		if (node == NIL) {
+			// the key is not in the tree
+			return -1;
+		}
+
+		updateMinMaxOnDeletion(node); // needs to be done before rebalancing
+		int leftChild = child(node, true);
+		int rightChild = child(node, false);
+		int res;
+
+		if (leftChild != NIL && rightChild != NIL) {
+			res = deleteNodeWithTwoChildren(node);
+		} else {
+			int parent = this.parents[node];
+			if (parent == NIL) {
+				this.setRoot(leftChild != NIL ? leftChild : rightChild);
+				res = 0;
+			} else {
+				boolean isLeftChild = child(parent, true) == node;
+				res = unlink(node, parent, isLeftChild);
+			}
+		}
+
+		release(node);
+		this.size--;
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		return res;
+	}
+
+	/**
+	 * links the only child of a leaf or a unary node, or NIL, in the place of
+	 * the node, and rebalances the tree from its parent. the child moves up
+	 * by the rank difference of the node, so its own rank difference grows by
+	 * that much, to 2 or to 3.
+	 *
+	 * @param node        - a leaf or a unary node
+	 * @param parent      - the parent of node
+	 * @param isLeftChild - should be set to true if node is a left child
+	 */
+	private int unlink(int node, int parent, boolean isLeftChild) {
+		boolean childIsLeft = child(node, true) != NIL;
+		int child = child(node, childIsLeft);
+		int diff = diff(parent, isLeftChild) + diff(node, childIsLeft);
+		setChild(parent, isLeftChild, child, 2);
+		if (diff == 3) {
+			return rebalanceAfterDeletion(parent, isLeftChild, 0);
+		}
+
+		// a 2,2 leaf is demoted first, which makes it a 2-child or a 3-child
+		if (child == NIL && child(parent, !isLeftChild) == NIL && diff(parent, !isLeftChild) == 2) {
+			flip(parent, true);
+			flip(parent, false);
+			return afterDemotion(parent, 1);
+		}
+		return 0;
+	}
+
+	/**
+	 * deletes a node that has two children by putting its successor in its
+	 * place, with the links and bits of node. the successor is unlinked from
+	 * its own place first, as a leaf or a unary node.
+	 */
+	private int deleteNodeWithTwoChildren(int node) {
+		int successor = min(child(node, false));
+		int successorParent = this.parents[successor];
+		boolean isLeftChild = successorParent != node;
+
+		// unlink the successor, but rebalance only after it took the place of node
+		int child = child(successor, false);
+		int diff = diff(successorParent, isLeftChild) + diff(successor, false);
+		setChild(successorParent, isLeftChild, child, 2);
+
+		replaceInParent(node, successor);
+		setLink(successor, true, this.leftLinks[node]);
+		setLink(successor, false, this.rightLinks[node]);
+
+		int parent = successorParent != node ? successorParent : successor;
+		if (diff == 3) {
+			return rebalanceAfterDeletion(parent, isLeftChild, 0);
+		}
+		if (child == NIL && child(parent, !isLeftChild) == NIL && diff(parent, !isLeftChild) == 2) {
+			flip(parent, true);
+			flip(parent, false);
+			return afterDemotion(parent, 1);
+		}
+		return 0;
+	}
+
+	/**
+	 * continues the rebalancing after node was demoted, which grows its rank
+	 * difference by one. returns counter plus the amount of rebalancing
+	 * operations needed.
+	 */
+	private int afterDemotion(int node, int counter) {
+		int parent = this.parents[node];
+		if (parent == NIL) {
+			return counter;
+		}
+		boolean isLeftChild = child(parent, true) == node;
+		if (diff(parent, isLeftChild) == 1) { // a 1-child becomes a 2-child
+			flip(parent, isLeftChild);
+			return counter;
+		}
+		return rebalanceAfterDeletion(parent, isLeftChild, counter);
+	}
+
+	/**
+	 * rebalances the tree after a deletion. returns counter plus the amount of
+	 * rebalancing operations needed. same cases as WAVLTree.
+	 *
+	 * @param node    - a node with a 3-child. the link to the 3-child has its
+	 *                bit set, as for a 2-child
+	 * @param left    - should be set to true if the 3-child is the left child
+	 * @param counter - rebalancing operations done so far
+	 */
+	private int rebalanceAfterDeletion(int node, boolean left, int counter) {
+		while (true) {
+			// case 1: 3,2 - demotion. the 3-child becomes a 2-child, whose bit is
+			// already set, and the 2-child becomes a 1-child
+			if (diff(node, !left) == 2) {
+				flip(node, !left);
+				counter++;
+			} else {
+				int y = child(node, !left);
+
+				// case 2: 3,1 and y is 2,2 - double demotion. y stays a 1-child of
+				// node, and both children of y become 1-children
+				if (diff(y, true) == 2 && diff(y, false) == 2) {
+					flip(y, true);
+					flip(y, false);
+					counter += 2;
+
+					// case 3: 3,1 and the outer child of y is a 1-child - rotation.
+					// y takes the rank of node plus one, and node is demoted
+				} else if (diff(y, !left) == 1) {
+					int inner = linkOf(y, left);
+					replaceInParent(node, y);
+					setLink(node, !left, inner);
+					setChild(y, !left, child(y, !left), 2);
+					setChild(y, left, node, 1);
+					// after rotation we might have created a 2,2 leaf, check and fix
+					if (child(node, true) == NIL && child(node, false) == NIL) {
+						flip(node, true);
+						flip(node, false);
+						flip(y, left);
+					}
+					return counter + 1;
+
+					// case 4: 3,1 and the inner child w of y is a 1-child - double
+					// rotation. w takes the rank of node, and both node and y are
+					// demoted below it, to 1,1 nodes
+				} else {
+					int w = child(y, left);
+					int toNode = linkOf(w, left);
+					int toY = linkOf(w, !left);
+					replaceInParent(node, w);
+					setChild(node, left, child(node, left), 1);
+					setLink(node, !left, toNode);
+					setChild(y, !left, child(y, !left), 1);
+					setLink(y, left, toY);
+					setChild(w, left, node, 2);
+					setChild(w, !left, y, 2);
+					return counter + 2;
+				}
+			}
+
+			// node was demoted, so its rank difference grew by one
+			int parent = this.parents[node];
+			if (parent == NIL) {
+				return counter;
+			}
+			boolean isLeftChild = child(parent, true) == node;
+			if (diff(parent, isLeftChild) == 1) { // a 1-child becomes a 2-child
+				flip(parent, isLeftChild);
+				return counter;
+			}
+			node = parent; // a 2-child becomes a 3-child
+			left = isLeftChild;
+		}
+	}
+
+	/**
+	 * updates the minimum and the maximum in case one of them is about to be
+	 * removed from the tree
+	 */
+	private void updateMinMaxOnDeletion(int node) {
+		if (node == this.min) {
+			int right = child(node, false);
+			this.min = right != NIL ? right : this.parents[node];
+		}
+		if (node == this.max) {
+			int left = child(node, true);
+			this.max = left != NIL ? left : this.parents[node];
+		}
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		if (this.min == NIL) {
+			return null;
+		}
+
+		return this.infos[this.min];
+	}
+
+	/**
+	 * finds the minimal node in a sub-tree
+	 */
+	private int min(int node) {
+		while (child(node, true) != NIL) {
+			node = child(node, true);
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		if (this.max == NIL) {
+			return null;
+		}
+
+		return this.infos[this.max];
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		if (this.sortedKeys == null) {
+			fillSortedArrays();
+		}
+		return this.sortedKeys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		if (this.sortedInfo == null) {
+			fillSortedArrays();
+		}
+		return this.sortedInfo;
+	}
+
+	/**
+	 * fills both sorted arrays with a single in-order walk that follows parent
+	 * links
+	 */
+	private void fillSortedArrays() {
+		int[] sortedKeys = new int[this.size];
+		String[] sortedInfo = new String[this.size];
+		int node = this.min;
+		for (int i = 0; i < this.size; i++) {
+			sortedKeys[i] = this.keys[node];
+			sortedInfo[i] = this.infos[node];
+			node = successor(node);
+		}
+		this.sortedKeys = sortedKeys;
+		this.sortedInfo = sortedInfo;
+	}
+
+	/**
+	 * returns the node with the next larger key, or NIL if there is none
+	 */
+	private int successor(int node) {
+		int right = child(node, false);
+		if (right != NIL) {
+			return min(right);
+		}
+		int parent = this.parents[node];
+		while (parent != NIL && child(parent, false) == node) {
+			node = parent;
+			parent = this.parents[node];
+		}
+		return parent;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * checks that the bits describe valid ranks: both children of a node must
+	 * agree on its rank, and leaves must have rank 0. returns the rank of the
+	 * root, or -1 if the tree is empty.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkRanks() {
+		return checkRanks(this.root);
+	}
+
+	private int checkRanks(int node) {
+		if (node == NIL) {
+			return -1;
+		}
+		int left = checkRanks(child(node, true)) + diff(node, true);
+		int right = checkRanks(child(node, false)) + diff(node, false);
+		if (left != right) {
+			throw new IllegalStateException("children of node " + this.keys[node] + " disagree on its rank");
+		}
+		if (left != 0 && child(node, true) == NIL && child(node, false) == NIL) {
+			throw new IllegalStateException("leaf " + this.keys[node] + " has rank " + left);
+		}
+		return left;
+	}
+
+	/**
+	 * takes a slot from the free list, or a new one from the end of the
+	 * arrays, and initializes it as a leaf
+	 */
+	private int allocate(int k, String i) {
+		int node;
+		if (this.freeList != NIL) {
+			node = this.freeList;
+			this.freeList = this.leftLinks[node];
+		} else {
+			if (this.used == this.keys.length) {
+				grow();
+			}
+			node = this.used++;
+		}
+
+		this.keys[node] = k;
+		this.infos[node] = i;
+		this.parents[node] = NIL;
+		this.leftLinks[node] = NIL;
+		this.rightLinks[node] = NIL;
+		return node;
+	}
+
+	/**
+	 * returns the slot of a deleted node to the free list
+	 */
+	private void release(int node) {
+		this.infos[node] = null; // let the info be garbage collected
+		this.leftLinks[node] = this.freeList;
+		this.freeList = node;
+	}
+
+	private void grow() {
+		int capacity = this.keys.length + (this.keys.length >> 1) + 1;
+		this.keys = Arrays.copyOf(this.keys, capacity);
+		this.parents = Arrays.copyOf(this.parents, capacity);
+		this.leftLinks = Arrays.copyOf(this.leftLinks, capacity);
+		this.rightLinks = Arrays.copyOf(this.rightLinks, capacity);
+		this.infos = Arrays.copyOf(this.infos, capacity);
+	}
+
+	/*
+	 * important: use ONLY the next functions to set links and the root. these
+	 * functions also maintain parents of nodes.
+	 */
+
+	private int child(int node, boolean left) {
+		return linkOf(node, left) & INDEX;
+	}
+
+	/**
+	 * returns the rank difference of a child of node, which is 1 or 2
+	 */
+	private int diff(int node, boolean left) {
+		return linkOf(node, left) < 0 ? 2 : 1;
+	}
+
+	/**
+	 * returns the link to a child of node, with its bit
+	 */
+	private int linkOf(int node, boolean left) {
+		return left ? this.leftLinks[node] : this.rightLinks[node];
+	}
+
+	/**
+	 * sets a link of node, with its bit, and the parent of the child
+	 */
+	private void setLink(int node, boolean left, int link) {
+		if (left) {
+			this.leftLinks[node] = link;
+		} else {
+			this.rightLinks[node] = link;
+		}
+		int child = link & INDEX;
+		if (child != NIL) {
+			this.parents[child] = node;
+		}
+	}
+
+	/**
+	 * sets a child of node with the given rank difference, 1 or 2
+	 */
+	private void setChild(int node, boolean left, int child, int diff) {
+		setLink(node, left, diff == 2 ? child | TWO : child);
+	}
+
+	/**
+	 * turns a 1-child of node into a 2-child, or the other way around
+	 */
+	private void flip(int node, boolean left) {
+		if (left) {
+			this.leftLinks[node] ^= TWO;
+		} else {
+			this.rightLinks[node] ^= TWO;
+		}
+	}
+
+	private void setRoot(int node) {
+		this.root = node;
+		if (node != NIL) {
+			this.parents[node] = NIL;
+		}
+	}
+
+	/**
+	 * puts replacement in the place of node under the parent of node, with
+	 * the same bit, so replacement gets the rank node had
+	 */
+	private void replaceInParent(int node, int replacement) {
+		int parent = this.parents[node];
+		if (parent == NIL) {
+			this.setRoot(replacement);
+		} else if (child(parent, true) == node) {
+			setLink(parent, true, (this.leftLinks[parent] & TWO) | replacement);
+		} else {
+			setLink(parent, false, (this.rightLinks[parent] & TWO) | replacement);
+		}
+	}
+}
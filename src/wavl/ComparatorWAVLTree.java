@@ -0,0 +1,152 @@
+package wavl;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ *
+ * ComparatorWAVLTree
+ * <p>
+ * A WAVL Tree with distinct keys of any type, ordered by a Comparator, and
+ * info of any type, with the same operations as WAVLTree.
+ *
+ * @param <K> - the type of the keys
+ * @param <V> - the type of the info
+ */
+
+public class ComparatorWAVLTree<K, V> extends AbstractWAVLTree<ComparatorWAVLTree.ComparatorNode<K, V>> {
+
+	private final Comparator<? super K> comparator;
+
+	/**
+	 * creates an empty tree ordered by the given comparator
+	 */
+	public ComparatorWAVLTree(Comparator<? super K> comparator) {
+		this.comparator = Objects.requireNonNull(comparator, "comparator");
+	}
+
+	/**
+	 * returns the comparator that orders the keys of the tree
+	 */
+	public Comparator<? super K> comparator() {
+		return this.comparator;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public V search(K k) {
+		ComparatorNode<K, V> node = find(k);
+		return node != null ? node.info : null;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(K k, V i) {
+		ComparatorNode<K, V> parent = null;
+		ComparatorNode<K, V> node = this.root;
+		boolean left = false;
+		while (node != null) {
+			int cmp = this.comparator.compare(k, node.key);
+			if (cmp == 0) {
+				return -1;
+			}
+			parent = node;
+			left = cmp < 0;
+			node = left ? node.leftChild : node.rightChild;
+		}
+		if (parent == null) {
+			this.comparator.compare(k, k); // rejects keys the comparator can not handle, like TreeMap
+		}
+		return insertUnder(parent, new ComparatorNode<>(k, i), left);
+	}
+
+	/**
+	 * deletes an item with key k from the tree if it exists. returns the
+	 * number of rebalancing operations, or 0 if no rebalancing operations were
+	 * needed. returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(K k) {
+		ComparatorNode<K, V> node = find(k);
+		return node != null ? deleteNode(node) : -1;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public V min() {
+		return this.min != null ? this.min.info : null;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public V max() {
+		return this.max != null ? this.max.info : null;
+	}
+
+	/**
+	 * Returns an array which contains all keys in the tree in the order of the
+	 * comparator, or an empty array if the tree is empty.
+	 */
+	public Object[] keysToArray() {
+		Object[] keys = new Object[this.size];
+		int i = 0;
+		for (ComparatorNode<K, V> node = this.min; node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public Object[] infoToArray() {
+		Object[] infos = new Object[this.size];
+		int i = 0;
+		for (ComparatorNode<K, V> node = this.min; node != null; node = successor(node)) {
+			infos[i++] = node.info;
+		}
+		return infos;
+	}
+
+	/**
+	 * returns the node with key k, or null if there is none
+	 */
+	private ComparatorNode<K, V> find(K k) {
+		ComparatorNode<K, V> node = this.root;
+		while (node != null) {
+			int cmp = this.comparator.compare(k, node.key);
+			if (cmp == 0) {
+				return node;
+			}
+			node = cmp < 0 ? node.leftChild : node.rightChild;
+		}
+		return null;
+	}
+
+	public static final class ComparatorNode<K, V> extends AbstractWAVLTree.Node<ComparatorNode<K, V>> {
+		private final K key;
+		private V info;
+
+		private ComparatorNode(K key, V info) {
+			this.key = key;
+			this.info = info;
+		}
+
+		public K getKey() {
+			return this.key;
+		}
+
+		public V getInfo() {
+			return this.info;
+		}
+	}
+}
@@ -0,0 +1,617 @@
+package wavl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *
+ * ConcurrentRelaxedWAVLTree
+ * <p>
+ * A thread-safe WAVL Tree with distinct integer keys and info, where searches
+ * take no locks at all, and updates lock only the few nodes they change.
+ * <p>
+ * the tree is rank balanced in the relaxed sense: every rank difference is
+ * positive, but it may be larger than 2, since deletions do not rebalance.
+ * the height of such a tree stays logarithmic in the number of insertions.
+ * <p>
+ * an insertion links a new leaf under its parent, and only then fixes the
+ * 0-child it might have created, in small local steps. every step locks a
+ * node, its parent and grandparent, and the nodes it rotates, using try-locks
+ * that are all released if one of them is taken, so there are no deadlocks.
+ * a deletion only marks its node as deleted, and unlinks it if it has at most
+ * one child. deleted nodes with two children stay in the tree as routing
+ * nodes until they lose a child.
+ * <p>
+ * a rotation never changes the nodes it rotates. it links new copies of them
+ * in their place, and retires the old ones, whose links never change again.
+ * therefore a search that walks into a node that was just rotated or unlinked
+ * still sees a sub-tree that was in the tree when it got there.
+ * <p>
+ * a search that ends at a retired node starts over, since the node might
+ * have changed after it was copied.
+ * <p>
+ * the rules below are kept by every step: a node's links change only while
+ * it is locked, its rank only while its parent is locked too, and 0-children
+ * never form a chain. a node that is a 0-child may not get a 0-child itself,
+ * so a step that would create one fixes the 0-child above it first.
+ */
+
+public class ConcurrentRelaxedWAVLTree implements IntKeyTree<String> {
+
+	// the info of a deleted node
+	private static final Object DELETED = new Object();
+
+	// results of a single rebalancing step
+	private static final int PROMOTED = 0;
+	private static final int ROTATED = 1;
+	private static final int RETRY = 2;
+	private static final int BLOCKED = 3;
+
+	// the root is the left child of this node, so that every node has a parent
+	private final Node holder = new Node(0, null, Integer.MAX_VALUE);
+	private final LongAdder size = new LongAdder();
+
+	private static final class Node {
+		private static final AtomicIntegerFieldUpdater<Node> LOCK = AtomicIntegerFieldUpdater.newUpdater(Node.class,
+				"lock");
+
+		private final int key;
+		private volatile Object value; // the info, or DELETED
+		private volatile int rank;
+		private volatile Node left;
+		private volatile Node right;
+		private volatile boolean retired; // no longer in the tree, its links never change again
+		private volatile int lock;
+
+		private Node(int key, Object value, int rank) {
+			this.key = key;
+			this.value = value;
+			this.rank = rank;
+		}
+
+		private Node(int key, Object value, Node left, Node right) {
+			this(key, value, Math.max(rank(left), rank(right)) + 1);
+			this.left = left;
+			this.right = right;
+		}
+
+		private Node child(boolean left) {
+			return left ? this.left : this.right;
+		}
+
+		private void setChild(boolean left, Node child) {
+			if (left) {
+				this.left = child;
+			} else {
+				this.right = child;
+			}
+		}
+
+		private boolean tryLock() {
+			return this.lock == 0 && LOCK.compareAndSet(this, 0, 1);
+		}
+
+		private void lock() {
+			while (!tryLock()) {
+				Thread.yield();
+			}
+		}
+
+		private void unlock() {
+			this.lock = 0;
+		}
+	}
+
+	/**
+	 * the nodes on a search path, from the holder down
+	 */
+	private static final class Path {
+		private Node[] nodes = new Node[64];
+		private int size;
+
+		private void push(Node node) {
+			if (this.size == this.nodes.length) {
+				this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+			}
+			this.nodes[this.size++] = node;
+		}
+
+		private Node get(int i) {
+			return i >= 0 ? this.nodes[i] : null;
+		}
+	}
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null. takes no locks.
+	 */
+	public String search(int k) {
+		while (true) {
+			Node last = this.holder;
+			Node node = last.left;
+			while (node != null && k != node.key) {
+				last = node;
+				node = k < node.key ? node.left : node.right;
+			}
+			if (node == null) {
+				if (!last.retired) {
+					return null;
+				}
+			} else {
+				Object value = node.value;
+				if (!node.retired) {
+					return value == DELETED ? null : (String) value;
+				}
+			}
+		}
+	}
+
+	/**
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing steps, or -1 if an item with key k already exists in the
+	 * tree.
+	 */
+	public int insert(int k, String i) {
+		Path path = new Path();
+		while (true) {
+			Node node = find(k, path);
+			if (node != null) { // a deleted node with key k can be used again
+				node.lock();
+				try {
+					if (node.retired) {
+						continue;
+					}
+					if (node.value != DELETED) {
+						return -1;
+					}
+					node.value = i;
+				} finally {
+					node.unlock();
+				}
+				this.size.increment();
+				return 0;
+			}
+
+			Node parent = path.get(path.size - 1);
+			Node grandparent = path.get(path.size - 2);
+			if (!tryLock(grandparent, parent, null, null, null)) {
+				Thread.yield();
+				continue;
+			}
+			boolean blocked;
+			try {
+				boolean left = goesLeft(parent, k);
+				if (parent.retired || parent.child(left) != null
+						|| (grandparent != null && !isChild(grandparent, parent))) {
+					continue;
+				}
+				// a new leaf under a leaf is a 0-child. if the leaf is a 0-child
+				// itself, the 0-child above has to be fixed first.
+				blocked = parent.rank == 0 && grandparent != null && grandparent.rank == 0;
+				if (!blocked) {
+					parent.setChild(left, new Node(k, i, 0));
+				}
+			} finally {
+				unlock(grandparent, parent, null, null, null);
+			}
+			if (blocked) { // wait outside the locks, for the owner of the 0-child
+				Thread.yield();
+				continue;
+			}
+			this.size.increment();
+			return rebalance(k, path);
+		}
+	}
+
+	/**
+	 * deletes an item with key k from the tree if it exists. returns 0, since
+	 * deletions do not rebalance, or -1 if an item with key k was not found in
+	 * the tree.
+	 */
+	public int delete(int k) {
+		Path path = new Path();
+		while (true) {
+			Node node = find(k, path);
+			if (node == null) {
+				if (path.get(path.size - 1).retired) {
+					continue;
+				}
+				return -1;
+			}
+			node.lock();
+			try {
+				if (node.retired) {
+					continue;
+				}
+				if (node.value == DELETED) {
+					return -1;
+				}
+				node.value = DELETED;
+			} finally {
+				node.unlock();
+			}
+			this.size.decrement();
+
+			// unlink the node if it has at most one child, and then its parent,
+			// if it is a deleted node that just lost its second child
+			Node parent = path.get(path.size - 2);
+			if (unlink(k, path) && parent != this.holder && parent.value == DELETED) {
+				unlink(parent.key, path);
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return (int) this.size.sum();
+	}
+
+	/**
+	 * returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty. the tree is walked without locks, like
+	 * keysToArray.
+	 */
+	public String min() {
+		return first(true);
+	}
+
+	/**
+	 * returns the info of the item with the largest key in the tree, or null
+	 * if the tree is empty. the tree is walked without locks, like
+	 * keysToArray.
+	 */
+	public String max() {
+		return first(false);
+	}
+
+	/**
+	 * returns the info of the first node that is not deleted, walking the
+	 * tree in order from the left or from the right
+	 */
+	private String first(boolean fromLeft) {
+		Node[] stack = new Node[64];
+		int depth = 0;
+		Node node = this.holder.left;
+		while (node != null || depth > 0) {
+			while (node != null) {
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, depth * 2);
+				}
+				stack[depth++] = node;
+				node = node.child(fromLeft);
+			}
+			node = stack[--depth];
+			Object value = node.value;
+			if (value != DELETED) {
+				return (String) value;
+			}
+			node = node.child(!fromLeft);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns an array which contains all keys in the tree. the tree is
+	 * walked without locks, so keys that are inserted or deleted meanwhile
+	 * might or might not be in the array, and a rotation that runs meanwhile
+	 * can leave the array out of order. the array is sorted only if no writer
+	 * runs.
+	 */
+	public int[] keysToArray() {
+		Items items = items();
+		return Arrays.copyOf(items.keys, items.count);
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys. the tree is walked without locks, like keysToArray.
+	 */
+	public String[] infoToArray() {
+		Items items = items();
+		return Arrays.copyOf(items.infos, items.count, String[].class);
+	}
+
+	/**
+	 * the items that a walk of the tree found
+	 */
+	private static final class Items {
+		private int[] keys;
+		private Object[] infos;
+		private int count;
+	}
+
+	/**
+	 * walks the tree in order, and returns the keys and infos of the nodes
+	 * that are not deleted
+	 */
+	private Items items() {
+		Items items = new Items();
+		items.keys = new int[Math.max(16, size())];
+		items.infos = new Object[items.keys.length];
+		Node[] stack = new Node[64];
+		int depth = 0;
+		Node node = this.holder.left;
+		while (node != null || depth > 0) {
+			while (node != null) {
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, depth * 2);
+				}
+				stack[depth++] = node;
+				node = node.left;
+			}
+			node = stack[--depth];
+			Object value = node.value;
+			if (value != DELETED) {
+				if (items.count == items.keys.length) {
+					items.keys = Arrays.copyOf(items.keys, items.count * 2);
+					items.infos = Arrays.copyOf(items.infos, items.count * 2);
+				}
+				items.keys[items.count] = node.key;
+				items.infos[items.count++] = value;
+			}
+			node = node.right;
+		}
+		return items;
+	}
+
+	/**
+	 * checks the rank rule and the order of keys, when no update is running.
+	 * returns the number of items in the tree.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkInvariants() {
+		return checkInvariants(this.holder.left, Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	private static int checkInvariants(Node node, long lo, long hi) {
+		if (node == null) {
+			return 0;
+		}
+		if (node.key <= lo || node.key >= hi) {
+			throw new IllegalStateException("key " + node.key + " is out of order");
+		}
+		if (node.rank - rank(node.left) < 1 || node.rank - rank(node.right) < 1) {
+			throw new IllegalStateException("node " + node.key + " has a rank difference below 1");
+		}
+		if (node.retired) {
+			throw new IllegalStateException("node " + node.key + " is retired but still linked");
+		}
+		return (node.value != DELETED ? 1 : 0) + checkInvariants(node.left, lo, node.key)
+				+ checkInvariants(node.right, node.key, hi);
+	}
+
+	/**
+	 * returns the rank of a node or -1 if node is null (external node)
+	 */
+	private static int rank(Node node) {
+		return node == null ? -1 : node.rank;
+	}
+
+	private boolean goesLeft(Node node, int k) {
+		return node == this.holder || k < node.key;
+	}
+
+	/**
+	 * returns true if child is still a child of parent, and parent is still
+	 * in the tree
+	 */
+	private static boolean isChild(Node parent, Node child) {
+		return parent != null && !parent.retired && (parent.left == child || parent.right == child);
+	}
+
+	/**
+	 * walks down from the root, and fills the path with the nodes on the way.
+	 * returns the node with key k, which is also the last one on the path, or
+	 * null if there is none, and then the last node on the path is the one to
+	 * insert k under.
+	 */
+	private Node find(int k, Path path) {
+		path.size = 0;
+		path.push(this.holder);
+		Node node = this.holder.left;
+		while (node != null) {
+			path.push(node);
+			if (k == node.key) {
+				return node;
+			}
+			node = k < node.key ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * fixes the 0-children on the search path of key k, the lowest one first,
+	 * until there are none left. returns the number of steps taken.
+	 */
+	private int rebalance(int k, Path path) {
+		int steps = 0;
+		int i = -1; // the lowest node on the path that might have a 0-child, or -1 to search again
+		while (true) {
+			if (i < 0) {
+				find(k, path);
+				i = path.size - 2;
+			}
+			while (i >= 1 && path.get(i + 1).rank < path.get(i).rank) {
+				i--;
+			}
+			if (i < 1) {
+				return steps;
+			}
+			int res = fix(path.get(i - 2), path.get(i - 1), path.get(i), path.get(i + 1));
+			if (res == BLOCKED && i >= 3) {
+				// the parent of x is a 0-child, whose fix is never blocked
+				res = fix(path.get(i - 4), path.get(i - 3), path.get(i - 2), path.get(i - 1));
+				i = -1;
+			}
+			if (res == PROMOTED && i >= 0) {
+				i--; // only the parent of x might have a 0-child now
+			} else {
+				i = -1;
+			}
+			if (res == PROMOTED || res == ROTATED) {
+				steps++;
+			} else {
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * fixes node x, whose child y is a 0-child, by promoting x, or by a single
+	 * or a double rotation. returns PROMOTED or ROTATED for the step taken,
+	 * RETRY if the nodes changed meanwhile, or BLOCKED if the step would make
+	 * x a 0-child of a 0-child.
+	 *
+	 * @param g - the parent of p, or null if p is the holder
+	 * @param p - the parent of x
+	 */
+	private int fix(Node g, Node p, Node x, Node y) {
+		boolean yLeft = x.left == y;
+		Node w = y.child(!yLeft);
+		boolean needsW = w != null && rank(w) >= x.rank - 1;
+		Node lockedW = needsW ? w : null;
+		if (!tryLock(g, p, x, y, lockedW)) {
+			return RETRY;
+		}
+		try {
+			int r = x.rank;
+			if (p.retired || p.child(goesLeft(p, x.key)) != x || x.retired || x.child(yLeft) != y || y.retired
+					|| y.rank != r || p.rank <= r || y.child(!yLeft) != w || (g != null && !isChild(g, p))) {
+				return RETRY;
+			}
+			Node t = x.child(!yLeft);
+			Node outer = y.child(yLeft);
+			if (rank(outer) >= r || rank(w) >= r) {
+				return RETRY; // y has a 0-child, which is fixed first
+			}
+
+			// case 1: the sibling of y is a 1-child or a 0-child - promote x.
+			// if that makes x a 0-child, p must not be a 0-child itself
+			if (rank(t) >= r - 1) {
+				if (p.rank == r + 1 && g != null && g.rank == p.rank) {
+					return BLOCKED;
+				}
+				x.rank = r + 1;
+				return PROMOTED;
+			}
+
+			// case 2: the inner child of y is a 2-child or less - single rotation.
+			// the new root never gets a higher rank than x had
+			if (rank(w) <= r - 2) {
+				Node newX = yLeft ? new Node(x.key, x.value, w, t) : new Node(x.key, x.value, t, w);
+				Node newY = yLeft ? new Node(y.key, y.value, outer, newX) : new Node(y.key, y.value, newX, outer);
+				p.setChild(goesLeft(p, x.key), newY);
+				x.retired = true;
+				y.retired = true;
+				return ROTATED;
+			}
+
+			// case 3: the inner child of y is a 1-child - double rotation. the
+			// new root might get a rank of one more than x had, which makes it
+			// a 0-child if p has that rank, and then p must not be a 0-child
+			if (!needsW) {
+				return RETRY;
+			}
+			Node newY = yLeft ? new Node(y.key, y.value, outer, w.left) : new Node(y.key, y.value, w.right, outer);
+			Node newX = yLeft ? new Node(x.key, x.value, w.right, t) : new Node(x.key, x.value, t, w.left);
+			Node newW = yLeft ? new Node(w.key, w.value, newY, newX) : new Node(w.key, w.value, newX, newY);
+			if (newW.rank == p.rank && g != null && g.rank == p.rank) {
+				return BLOCKED;
+			}
+			p.setChild(goesLeft(p, x.key), newW);
+			x.retired = true;
+			y.retired = true;
+			w.retired = true;
+			return ROTATED;
+		} finally {
+			unlock(g, p, x, y, lockedW);
+		}
+	}
+
+	/**
+	 * unlinks the deleted node with key k if it has at most one child, by
+	 * linking its child to its parent. returns true if it was unlinked.
+	 */
+	private boolean unlink(int k, Path path) {
+		while (true) {
+			Node node = find(k, path);
+			if (node == null || node.value != DELETED || (node.left != null && node.right != null)) {
+				return false;
+			}
+			Node parent = path.get(path.size - 2);
+			if (!tryLock(parent, node, null, null, null)) {
+				Thread.yield();
+				continue;
+			}
+			try {
+				if (node.retired || node.value != DELETED || !isChild(parent, node)) {
+					continue;
+				}
+				if (node.left != null && node.right != null) {
+					return false;
+				}
+				Node child = node.left != null ? node.left : node.right;
+				parent.setChild(goesLeft(parent, k), child);
+				node.retired = true;
+				return true;
+			} finally {
+				unlock(parent, node, null, null, null);
+			}
+		}
+	}
+
+	/**
+	 * tries to lock the given nodes, from the top of the tree down, skipping
+	 * nulls. if one of them is locked already, releases the ones it took and
+	 * returns false.
+	 */
+	private static boolean tryLock(Node a, Node b, Node c, Node d, Node e) {
+		// nested instead of a loop over an array, so locking allocates nothing
+		if (tryLock(a)) {
+			if (tryLock(b)) {
+				if (tryLock(c)) {
+					if (tryLock(d)) {
+						if (tryLock(e)) {
+							return true;
+						}
+						unlock(d);
+					}
+					unlock(c);
+				}
+				unlock(b);
+			}
+			unlock(a);
+		}
+		return false;
+	}
+
+	private static void unlock(Node a, Node b, Node c, Node d, Node e) {
+		unlock(e);
+		unlock(d);
+		unlock(c);
+		unlock(b);
+		unlock(a);
+	}
+
+	private static boolean tryLock(Node node) {
+		return node == null || node.tryLock();
+	}
+
+	private static void unlock(Node node) {
+		if (node != null) {
+			node.unlock();
+		}
+	}
+}
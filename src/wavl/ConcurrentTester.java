@@ -0,0 +1,423 @@
+package wavl;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Stress test for the thread-safe trees.
+ * <p>
+ * every writer thread owns the keys that are equal to its index modulo the
+ * number of writers, so the results of its own operations must match a
+ * sequential model of its keys exactly, whatever the other threads do. reader
+ * threads meanwhile search keys that are always in the tree and keys that
+ * never are, check the smallest key, which is always the same, and now and
+ * then check that the sorted keys hold the keys that are always there. at
+ * the end, the tree must hold exactly the keys of all models and keep the
+ * rank rule.
+ * <p>
+ * then every tree gets a linearizability check: a few threads insert, delete
+ * and search the same few keys, and record when every operation was invoked
+ * and when it returned. the history must be linearizable, that is, there
+ * must be an order of the operations that keeps every operation that
+ * returned before another one was invoked before it, and in which every
+ * operation returns what it would on a sequential map. the operations on
+ * different keys of a map commute, and linearizability is local, so every
+ * key is checked on its own, with the search of Wing and Gong: it tries the
+ * operations that may come next in every order, and remembers the states it
+ * already gave up on, as Lowe suggested.
+ */
+public class ConcurrentTester {
+
+	private static final int WRITERS = 4;
+	private static final int READERS = 2;
+	private static final int KEY_RANGE = 1 << 12;
+	private static final int OPERATIONS = 1 << 18;
+	private static final int ROUNDS = 5;
+
+	private static final int CONTENDERS = 4;
+	private static final int SHARED_KEYS = 4;
+	private static final int CONTENDED_OPERATIONS = 1 << 11;
+
+	// kinds of operations in a history
+	private static final int INSERT = 0;
+	private static final int DELETE = 1;
+	private static final int SEARCH = 2;
+
+	// the value of an absent key in the sequential model, and the result of
+	// an operation that can not come next in it
+	private static final int ABSENT = -1;
+	private static final int IMPOSSIBLE = -2;
+
+	private static volatile String failure;
+
+	/**
+	 * an operation of a history, on a single key
+	 */
+	private static final class Operation {
+		private final int kind;
+		private final String info; // the info inserted, or the info search returned
+		private final boolean changed; // insert or delete did not return -1
+		private final long invoked;
+		private final long returned;
+		private int id; // position in the history of the key, which stands for the info an insert put
+
+		private Operation(int kind, String info, boolean changed, long invoked, long returned) {
+			this.kind = kind;
+			this.info = info;
+			this.changed = changed;
+			this.invoked = invoked;
+			this.returned = returned;
+		}
+	}
+
+	private static void fail(String message) {
+		if (failure == null) {
+			failure = message;
+		}
+	}
+
+	// keys below zero that are always in the tree
+	private static int stableKey(int i) {
+		return -1 - 2 * i;
+	}
+
+	// keys below zero that are never in the tree
+	private static int absentKey(int i) {
+		return -2 - 2 * i;
+	}
+
+	/**
+	 * checks that keys taken while writers are running are sorted and hold a
+	 * key that is always in the tree
+	 */
+	private static void checkSortedKeys(int[] keys, int stableKey) {
+		for (int j = 1; j < keys.length; j++) {
+			if (keys[j - 1] >= keys[j]) {
+				fail("keysToArray is not sorted at index " + j);
+				return;
+			}
+		}
+		if (Arrays.binarySearch(keys, stableKey) < 0) {
+			fail("stable key " + stableKey + " is missing from keysToArray");
+		}
+	}
+
+	private static <T extends IntKeyTree<String>> void runRound(T tree, ToIntFunction<? super T> checkInvariants,
+			boolean consistentArrays, long seed) throws InterruptedException {
+		for (int i = 0; i < KEY_RANGE; i++) {
+			tree.insert(stableKey(i), String.valueOf(stableKey(i)));
+		}
+
+		List<Map<Integer, String>> models = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		AtomicBoolean done = new AtomicBoolean();
+		for (int t = 0; t < WRITERS; t++) {
+			int owner = t;
+			Map<Integer, String> model = new HashMap<>();
+			models.add(model);
+			Random rnd = new Random(seed + t);
+			threads.add(new Thread(() -> {
+				for (int j = 0; j < OPERATIONS && failure == null; j++) {
+					int k = rnd.nextInt(KEY_RANGE / WRITERS) * WRITERS + owner;
+					String info = String.valueOf(j);
+					int op = rnd.nextInt(3);
+					if (op == 0) {
+						boolean expected = !model.containsKey(k);
+						if ((tree.insert(k, info) != -1) != expected) {
+							fail("insert " + k + " returned the wrong result");
+						}
+						if (expected) {
+							model.put(k, info);
+						}
+					} else if (op == 1) {
+						boolean expected = model.remove(k) != null;
+						if ((tree.delete(k) != -1) != expected) {
+							fail("delete " + k + " returned the wrong result");
+						}
+					} else if (!Objects.equals(tree.search(k), model.get(k))) {
+						fail("search " + k + " returned the wrong info");
+					}
+				}
+			}));
+		}
+		for (int t = 0; t < READERS; t++) {
+			Random rnd = new Random(seed - t - 1);
+			threads.add(new Thread(() -> {
+				while (!done.get() && failure == null) {
+					int i = rnd.nextInt(KEY_RANGE);
+					if (!String.valueOf(stableKey(i)).equals(tree.search(stableKey(i)))) {
+						fail("stable key " + stableKey(i) + " was not found");
+					}
+					if (tree.search(absentKey(i)) != null) {
+						fail("absent key " + absentKey(i) + " was found");
+					}
+					String min = tree.min();
+					if (!String.valueOf(stableKey(KEY_RANGE - 1)).equals(min)) {
+						fail("min returned " + min);
+					}
+					if (consistentArrays && rnd.nextInt(256) == 0) {
+						checkSortedKeys(tree.keysToArray(), stableKey(i));
+					}
+				}
+			}));
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (int t = 0; t < WRITERS; t++) {
+			threads.get(t).join();
+		}
+		done.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure != null) {
+			return;
+		}
+
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < KEY_RANGE; i++) {
+			expected.put(stableKey(i), String.valueOf(stableKey(i)));
+		}
+		for (Map<Integer, String> model : models) {
+			expected.putAll(model);
+		}
+		int[] keys = tree.keysToArray();
+		int i = 0;
+		for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+			if (i >= keys.length || keys[i] != entry.getKey()) {
+				fail("keysToArray does not match at index " + i);
+				return;
+			}
+			if (!entry.getValue().equals(tree.search(keys[i]))) {
+				fail("key " + keys[i] + " has the wrong info");
+				return;
+			}
+			i++;
+		}
+		if (i != keys.length || tree.size() != expected.size()) {
+			fail("tree has " + keys.length + " keys and size " + tree.size() + " instead of " + expected.size());
+			return;
+		}
+		try {
+			if (checkInvariants.applyAsInt(tree) != expected.size()) {
+				fail("checkInvariants counted the wrong number of keys");
+			}
+		} catch (IllegalStateException e) {
+			fail(e.getMessage());
+		}
+	}
+
+	/**
+	 * lets a few threads work on the same few keys of an empty tree, records
+	 * the history of every key and checks that it is linearizable
+	 */
+	private static void checkLinearizability(IntKeyTree<String> tree, long seed) throws InterruptedException {
+		// histories.get(key).get(thread) are the operations of a thread on a key, in program order
+		List<List<List<Operation>>> histories = new ArrayList<>();
+		for (int k = 0; k < SHARED_KEYS; k++) {
+			List<List<Operation>> byThread = new ArrayList<>();
+			for (int t = 0; t < CONTENDERS; t++) {
+				byThread.add(new ArrayList<>());
+			}
+			histories.add(byThread);
+		}
+
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < CONTENDERS; t++) {
+			int thread = t;
+			Random rnd = new Random(seed + t);
+			threads.add(new Thread(() -> {
+				for (int j = 0; j < CONTENDED_OPERATIONS; j++) {
+					int k = rnd.nextInt(SHARED_KEYS);
+					int kind = rnd.nextInt(3);
+					String info = thread + ":" + j; // every insert puts an info of its own
+					Operation op;
+					long invoked = System.nanoTime();
+					if (kind == INSERT) {
+						boolean changed = tree.insert(k, info) != -1;
+						op = new Operation(INSERT, info, changed, invoked, System.nanoTime());
+					} else if (kind == DELETE) {
+						boolean changed = tree.delete(k) != -1;
+						op = new Operation(DELETE, null, changed, invoked, System.nanoTime());
+					} else {
+						String found = tree.search(k);
+						op = new Operation(SEARCH, found, false, invoked, System.nanoTime());
+					}
+					histories.get(k).get(thread).add(op);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		for (int k = 0; k < SHARED_KEYS && failure == null; k++) {
+			if (!isLinearizable(histories.get(k))) {
+				fail("the history of key " + k + " is not linearizable");
+			}
+		}
+	}
+
+	/**
+	 * returns true if the operations of the threads on a single key can be
+	 * put in an order that respects their times and a sequential map
+	 */
+	private static boolean isLinearizable(List<List<Operation>> byThread) {
+		Operation[][] ops = new Operation[byThread.size()][];
+		Map<String, Integer> inserted = new HashMap<>();
+		int id = 0;
+		for (int t = 0; t < ops.length; t++) {
+			ops[t] = byThread.get(t).toArray(new Operation[0]);
+			for (Operation op : ops[t]) {
+				op.id = id++;
+				if (op.kind == INSERT) {
+					inserted.put(op.info, op.id);
+				}
+			}
+		}
+		// a search must return null or an info that some insert put
+		for (Operation[] thread : ops) {
+			for (Operation op : thread) {
+				if (op.kind == SEARCH && op.info != null && !inserted.containsKey(op.info)) {
+					return false;
+				}
+			}
+		}
+		return linearize(ops, new int[ops.length], ABSENT, inserted, new HashSet<>());
+	}
+
+	/**
+	 * the search of Wing and Gong. next[t] is the number of operations of
+	 * thread t that were already put in order, and value is the id of the
+	 * insert whose info the key has, or ABSENT. an operation can come next if
+	 * it was invoked before every operation that is not in order yet returned,
+	 * and if the sequential map gives the result it returned.
+	 *
+	 * @param seen - the states that were already tried without success
+	 */
+	private static boolean linearize(Operation[][] ops, int[] next, int value, Map<String, Integer> inserted,
+			Set<List<Integer>> seen) {
+		long firstReturn = Long.MAX_VALUE;
+		for (int t = 0; t < ops.length; t++) {
+			if (next[t] < ops[t].length) {
+				// the next operation of a thread is the first of the thread to return
+				firstReturn = Math.min(firstReturn, ops[t][next[t]].returned);
+			}
+		}
+		if (firstReturn == Long.MAX_VALUE) {
+			return true;
+		}
+		List<Integer> state = new ArrayList<>(ops.length + 1);
+		for (int n : next) {
+			state.add(n);
+		}
+		state.add(value);
+		if (!seen.add(state)) {
+			return false;
+		}
+
+		for (int t = 0; t < ops.length; t++) {
+			if (next[t] == ops[t].length || ops[t][next[t]].invoked > firstReturn) {
+				continue;
+			}
+			int after = apply(ops[t][next[t]], value, inserted);
+			if (after == IMPOSSIBLE) {
+				continue;
+			}
+			next[t]++;
+			boolean linearizable = linearize(ops, next, after, inserted, seen);
+			next[t]--;
+			if (linearizable) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * returns the value of the key after an operation on a sequential map,
+	 * or IMPOSSIBLE if the operation would have returned something else
+	 */
+	private static int apply(Operation op, int value, Map<String, Integer> inserted) {
+		switch (op.kind) {
+			case INSERT:
+				if (op.changed != (value == ABSENT)) {
+					return IMPOSSIBLE;
+				}
+				return op.changed ? op.id : value;
+			case DELETE:
+				if (op.changed != (value != ABSENT)) {
+					return IMPOSSIBLE;
+				}
+				return ABSENT;
+			default:
+				int found = op.info == null ? ABSENT : inserted.get(op.info);
+				return found == value ? value : IMPOSSIBLE;
+		}
+	}
+
+	/**
+	 * makes sure that the checker rejects a history that is not linearizable
+	 * and accepts the same one when the operations overlap
+	 */
+	private static void checkChecker() {
+		// thread 0 inserts and deletes, and thread 1 searches
+		for (boolean overlap : new boolean[] { false, true }) {
+			Operation insert = new Operation(INSERT, "a", true, 0, 10);
+			Operation delete = new Operation(DELETE, null, true, 20, 30);
+			// it finds the info after the delete returned, or while it runs
+			Operation search = new Operation(SEARCH, "a", false, overlap ? 25 : 40, 50);
+			List<List<Operation>> history = Arrays.asList(Arrays.asList(insert, delete),
+					Collections.singletonList(search));
+			if (isLinearizable(history) != overlap) {
+				System.out.println("Problem with the linearizability checker: "
+						+ (overlap ? "rejected" : "accepted") + " a search " + (overlap ? "during" : "after")
+						+ " a delete");
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * runs the rounds on new trees
+	 *
+	 * @param checkInvariants  - checks the invariants of the tree when no
+	 *                         operation is running, and returns the number of
+	 *                         items
+	 * @param consistentArrays - should be set to true if keysToArray returns a
+	 *                         consistent snapshot also while writers run
+	 */
+	private static <T extends IntKeyTree<String>> void runRounds(String name, Supplier<T> factory,
+			ToIntFunction<? super T> checkInvariants, boolean consistentArrays) throws InterruptedException {
+		for (int round = 0; round < ROUNDS; round++) {
+			System.out.println(name + " round " + round + ": " + WRITERS + " writers, " + READERS + " readers, "
+					+ CONTENDERS + " threads on " + SHARED_KEYS + " shared keys");
+			runRound(factory.get(), checkInvariants, consistentArrays, 2016L + round * 31);
+			if (failure == null) {
+				checkLinearizability(factory.get(), 2017L + round * 31);
+			}
+			if (failure != null) {
+				System.out.println("Problem with " + name + ": " + failure);
+				System.exit(1);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		checkChecker();
+		// its arrays come from a walk without locks, which sees rotations half done
+		runRounds("ConcurrentRelaxedWAVLTree", ConcurrentRelaxedWAVLTree::new, ConcurrentRelaxedWAVLTree::checkInvariants,
+				false);
+		runRounds("ConcurrentWAVLTree", ConcurrentWAVLTree::new, ConcurrentWAVLTree::checkInvariants, true);
+		// small shards, so the writers split them all the time
+		runRounds("ShardedWAVLMap", () -> new ShardedWAVLMap(4, 64, 256), ShardedWAVLMap::checkInvariants, true);
+		System.out.println("Done");
+	}
+}
@@ -0,0 +1,275 @@
+package wavl;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * ConcurrentWAVLTree
+ * <p>
+ * A thread-safe WAVLTree. all writes take the write lock of a StampedLock.
+ * search, min, max and size first read the tree without any lock, and then
+ * validate that no write happened meanwhile. only if one did, they read again
+ * under the read lock, so readers do not block each other, and do not block
+ * writers either.
+ * <p>
+ * an optimistic read might see the tree in the middle of a rotation. it
+ * never trusts what it read before validating: a search gives up after more
+ * steps than any valid tree has levels, and exceptions thrown while reading
+ * are treated as a failed validation.
+ * <p>
+ * keysToArray and infoToArray return the arrays of the last sorted snapshot
+ * of the tree, which is published in a volatile field. as long as no write
+ * happened since it was taken, they return it without any lock. otherwise
+ * a new snapshot is taken under the read lock.
+ */
+
+public class ConcurrentWAVLTree implements IntKeyTree<String> {
+
+	// a WAVL tree of n nodes has rank, and therefore height, of at most
+	// 2 * log(n), so no search in a valid tree takes more steps than this
+	private static final int MAX_SEARCH_DEPTH = 64;
+
+	private final WAVLTree tree;
+	private final StampedLock lock = new StampedLock();
+
+	// the last sorted snapshot of the tree, or null before the first one.
+	// taking a snapshot updates the sorted caches inside the tree, so readers
+	// that hold the read lock take turns on snapshotLock to do it
+	private volatile WAVLTree.SortedSnapshot snapshot;
+	private final Object snapshotLock = new Object();
+
+	public ConcurrentWAVLTree() {
+		this.tree = new WAVLTree();
+	}
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		long stamp = this.lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				String info = searchOptimistic(k);
+				if (this.lock.validate(stamp)) {
+					return info;
+				}
+			} catch (RuntimeException e) {
+				// a write happened meanwhile, read again under the lock
+			}
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			return this.tree.search(k);
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * walks down the tree without a lock. the result is only meaningful if the
+	 * stamp of the read is still valid afterwards.
+	 */
+	private String searchOptimistic(int k) {
+		WAVLTree.WAVLNode node = this.tree.getRoot();
+		for (int depth = 0; node != null && depth < MAX_SEARCH_DEPTH; depth++) {
+			int key = node.getKey();
+			if (k == key) {
+				return node.getInfo();
+			}
+			node = k < key ? node.getLeftChild() : node.getRightChild();
+		}
+		return null;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations, or -1 if an item with key k already exists in
+	 * the tree.
+	 */
+	public int insert(int k, String i) {
+		long stamp = this.lock.writeLock();
+		try {
+			return this.tree.insert(k, i);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * inserts a batch of items, as WAVLTree.insertAll does, under a single
+	 * acquisition of the write lock
+	 */
+	public int insertAll(int[] keys, String[] infos) {
+		long stamp = this.lock.writeLock();
+		try {
+			return this.tree.insertAll(keys, infos);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * deletes an item with key k from the tree if it exists. returns the
+	 * number of rebalancing operations, or -1 if an item with key k was not
+	 * found in the tree.
+	 */
+	public int delete(int k) {
+		long stamp = this.lock.writeLock();
+		try {
+			return this.tree.delete(k);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * deletes a batch of keys, as WAVLTree.deleteAll does, under a single
+	 * acquisition of the write lock
+	 */
+	public int deleteAll(int[] keys) {
+		long stamp = this.lock.writeLock();
+		try {
+			return this.tree.deleteAll(keys);
+		} finally {
+			this.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		long stamp = this.lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				String info = this.tree.min();
+				if (this.lock.validate(stamp)) {
+					return info;
+				}
+			} catch (RuntimeException e) {
+				// a write happened meanwhile, read again under the lock
+			}
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			return this.tree.min();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		long stamp = this.lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				String info = this.tree.max();
+				if (this.lock.validate(stamp)) {
+					return info;
+				}
+			} catch (RuntimeException e) {
+				// a write happened meanwhile, read again under the lock
+			}
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			return this.tree.max();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		long stamp = this.lock.tryOptimisticRead();
+		int size = this.tree.size();
+		if (this.lock.validate(stamp)) {
+			return size;
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			return this.tree.size();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty. the array is never changed afterwards.
+	 */
+	public int[] keysToArray() {
+		return snapshot().getKeys();
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. the array is
+	 * never changed afterwards.
+	 */
+	public String[] infoToArray() {
+		return snapshot().getInfos();
+	}
+
+	/**
+	 * returns a sorted snapshot of the current content of the tree. the
+	 * published snapshot is current if its version is still the version of
+	 * the tree, which is checked with an optimistic read.
+	 */
+	private WAVLTree.SortedSnapshot snapshot() {
+		WAVLTree.SortedSnapshot snapshot = this.snapshot;
+		long stamp = this.lock.tryOptimisticRead();
+		if (snapshot != null && stamp != 0 && snapshot.getVersion() == this.tree.getVersion()
+				&& this.lock.validate(stamp)) {
+			return snapshot;
+		}
+
+		stamp = this.lock.readLock();
+		try {
+			synchronized (this.snapshotLock) {
+				snapshot = this.snapshot;
+				if (snapshot == null || snapshot.getVersion() != this.tree.getVersion()) {
+					snapshot = this.tree.sortedSnapshot();
+					this.snapshot = snapshot;
+				}
+				return snapshot;
+			}
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * checks the rank rules, the parent links, the sub-tree sizes and the
+	 * order of the keys under the read lock. returns the number of nodes in
+	 * the tree.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkInvariants() {
+		long stamp = this.lock.readLock();
+		try {
+			return this.tree.checkInvariants();
+		} finally {
+			this.lock.unlockRead(stamp);
+		}
+	}
+}
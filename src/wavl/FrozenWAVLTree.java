@@ -0,0 +1,223 @@
+package wavl;
+
+/**
+ *
+ * FrozenWAVLTree
+ * <p>
+ * An immutable copy of the items of a WAVLTree, for trees that are searched
+ * much more often than they change. see WAVLTree.freeze.
+ * <p>
+ * the keys are kept in a single int[] in Eytzinger order: the root is at
+ * index 1, and the children of the item at index i are at 2i and 2i+1, as in
+ * a binary heap. a search reads one key on every level, and the step down is
+ * computed from the comparison instead of branching on it. the first levels
+ * are shared by all searches, so they stay in the cache, and the 16
+ * descendants of a key four levels down are next to each other, so they
+ * can be loaded before the search reaches them.
+ */
+
+public final class FrozenWAVLTree {
+
+	// the first descendant four levels below index i is at LOOK_AHEAD * i
+	private static final int LOOK_AHEAD = 16;
+
+	private final int[] keys; // keys[0] is not used
+	private final String[] infos;
+	private final int size;
+
+	// the indices of the smallest and the largest key, or 0 if there are none
+	private final int minIndex;
+	private final int maxIndex;
+
+	/**
+	 * creates a frozen tree from sorted arrays of distinct keys and their
+	 * info. the arrays are copied.
+	 */
+	FrozenWAVLTree(int[] sortedKeys, String[] sortedInfos) {
+		int n = sortedKeys.length;
+		this.size = n;
+		this.keys = new int[n + 1];
+		this.infos = new String[n + 1];
+		fill(sortedKeys, sortedInfos, 0, 1);
+
+		int min = 0;
+		for (int i = 1; i <= n; i = 2 * i) {
+			min = i;
+		}
+		int max = 0;
+		for (int i = 1; i <= n; i = 2 * i + 1) {
+			max = i;
+		}
+		this.minIndex = min;
+		this.maxIndex = max;
+	}
+
+	/**
+	 * fills the sub-tree of index i with the sorted items from index next on,
+	 * in order. returns the index of the next sorted item
+	 */
+	private int fill(int[] sortedKeys, String[] sortedInfos, int next, int i) {
+		if (i > this.size) {
+			return next;
+		}
+		next = fill(sortedKeys, sortedInfos, next, 2 * i);
+		this.keys[i] = sortedKeys[next];
+		this.infos[i] = sortedInfos[next];
+		return fill(sortedKeys, sortedInfos, next + 1, 2 * i + 1);
+	}
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int i = ceiling(k);
+		return i != 0 && this.keys[i] == k ? this.infos[i] : null;
+	}
+
+	/**
+	 * returns the smallest key that is greater than or equal to k, or null if
+	 * there is none
+	 */
+	public Integer ceilingKey(int k) {
+		int i = ceiling(k);
+		return i != 0 ? this.keys[i] : null;
+	}
+
+	/**
+	 * returns the largest key that is smaller than or equal to k, or null if
+	 * there is none
+	 */
+	public Integer floorKey(int k) {
+		int i = floor(k);
+		return i != 0 ? this.keys[i] : null;
+	}
+
+	/**
+	 * calls the visitor with every item whose key k is lo <= k <= hi, in
+	 * ascending order of keys. costs O(log n + m) for m visited items, and
+	 * allocates nothing.
+	 */
+	public void scan(int lo, int hi, WAVLTree.EntryVisitor visitor) {
+		if (lo > hi) {
+			return;
+		}
+		for (int i = ceiling(lo); i != 0 && this.keys[i] <= hi; i = successor(i)) {
+			visitor.visit(this.keys[i], this.infos[i]);
+		}
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		return this.infos[this.minIndex];
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		return this.infos[this.maxIndex];
+	}
+
+	/**
+	 * Returns a new sorted array which contains all keys in the tree, or an
+	 * empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] sorted = new int[this.size];
+		int j = 0;
+		for (int i = this.minIndex; i != 0; i = successor(i)) {
+			sorted[j++] = this.keys[i];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Returns a new array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] sorted = new String[this.size];
+		int j = 0;
+		for (int i = this.minIndex; i != 0; i = successor(i)) {
+			sorted[j++] = this.infos[i];
+		}
+		return sorted;
+	}
+
+	/**
+	 * returns the index of the smallest key that is greater than or equal to
+	 * k, or 0 if there is none. the search always goes down to the bottom,
+	 * appending a 1 to the index whenever the key there is smaller than k.
+	 * the answer is where the search last went left, so it is found by
+	 * dropping the trailing 1s and one more bit.
+	 * <p>
+	 * java can not prefetch, so every step also loads the first of the 16
+	 * keys four levels below, which share a cache line or two. the load does
+	 * not hold up the search, and the key it will compare there is already
+	 * on its way to the cache.
+	 */
+	private int ceiling(int k) {
+		int[] keys = this.keys;
+		int n = this.size;
+		int i = 1;
+		int ahead = 0;
+		while (i <= n) {
+			ahead += keys[(int) Math.min((long) LOOK_AHEAD * i, n)];
+			i = 2 * i + (keys[i] < k ? 1 : 0);
+		}
+		i ^= ahead & (i >> 31); // i is never negative, this only keeps the loads ahead
+		return i >>> (Integer.numberOfTrailingZeros(~i) + 1);
+	}
+
+	/**
+	 * returns the index of the largest key that is smaller than or equal to
+	 * k, or 0 if there is none. same as ceiling, but the answer is where the
+	 * search last went right
+	 */
+	private int floor(int k) {
+		int[] keys = this.keys;
+		int n = this.size;
+		int i = 1;
+		int ahead = 0;
+		while (i <= n) {
+			ahead += keys[(int) Math.min((long) LOOK_AHEAD * i, n)];
+			i = 2 * i + (keys[i] <= k ? 1 : 0);
+		}
+		i ^= ahead & (i >> 31);
+		return i >>> (Integer.numberOfTrailingZeros(i) + 1);
+	}
+
+	/**
+	 * returns the index of the next larger key, or 0 if there is none
+	 */
+	private int successor(int i) {
+		if (2 * i + 1 <= this.size) { // the leftmost item of the right sub-tree
+			i = 2 * i + 1;
+			while (2 * i <= this.size) {
+				i = 2 * i;
+			}
+			return i;
+		}
+		// go up while i is a right child, and once more
+		return i >>> (Integer.numberOfTrailingZeros(~i) + 1);
+	}
+}
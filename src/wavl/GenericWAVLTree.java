@@ -0,0 +1,126 @@
+package wavl;
+
+/**
+ *
+ * GenericWAVLTree
+ * <p>
+ * A WAVL Tree with distinct integer keys and info of any type, with the same
+ * operations as WAVLTree. keys stay primitive ints, so searches never box
+ * them.
+ *
+ * @param <V> - the type of the info
+ */
+
+public class GenericWAVLTree<V> extends AbstractWAVLTree<GenericWAVLTree.GenericNode<V>> implements IntKeyTree<V> {
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public V search(int k) {
+		GenericNode<V> node = find(k);
+		return node != null ? node.info : null;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, V i) {
+		GenericNode<V> parent = null;
+		GenericNode<V> node = this.root;
+		boolean left = false;
+		while (node != null) {
+			if (k == node.key) {
+				return -1;
+			}
+			parent = node;
+			left = k < node.key;
+			node = left ? node.leftChild : node.rightChild;
+		}
+		return insertUnder(parent, new GenericNode<>(k, i), left);
+	}
+
+	/**
+	 * deletes an item with key k from the tree if it exists. returns the
+	 * number of rebalancing operations, or 0 if no rebalancing operations were
+	 * needed. returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		GenericNode<V> node = find(k);
+		return node != null ? deleteNode(node) : -1;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public V min() {
+		return this.min != null ? this.min.info : null;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public V max() {
+		return this.max != null ? this.max.info : null;
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[this.size];
+		int i = 0;
+		for (GenericNode<V> node = this.min; node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. like
+	 * Collection.toArray, the array is an Object[], since V is erased.
+	 */
+	public Object[] infoToArray() {
+		Object[] infos = new Object[this.size];
+		int i = 0;
+		for (GenericNode<V> node = this.min; node != null; node = successor(node)) {
+			infos[i++] = node.info;
+		}
+		return infos;
+	}
+
+	/**
+	 * returns the node with key k, or null if there is none
+	 */
+	private GenericNode<V> find(int k) {
+		GenericNode<V> node = this.root;
+		while (node != null && k != node.key) {
+			node = k < node.key ? node.leftChild : node.rightChild;
+		}
+		return node;
+	}
+
+	public static final class GenericNode<V> extends AbstractWAVLTree.Node<GenericNode<V>> {
+		private final int key;
+		private V info;
+
+		private GenericNode(int key, V info) {
+			this.key = key;
+			this.info = info;
+		}
+
+		public int getKey() {
+			return this.key;
+		}
+
+		public V getInfo() {
+			return this.info;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package wavl;
+
+/**
+ *
+ * IntKeyTree
+ * <p>
+ * The operations that all the trees with distinct integer keys share, so
+ * that code that only needs them can work with any of the trees.
+ *
+ * @param <V> - the type of the info
+ */
+
+public interface IntKeyTree<V> {
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	boolean empty();
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	V search(int k);
+
+	/**
+	 * inserts an item with key k and info i to the tree. returns the number
+	 * of rebalancing operations, or -1 if an item with key k already exists
+	 * in the tree.
+	 */
+	int insert(int k, V i);
+
+	/**
+	 * deletes an item with key k from the tree if it exists. returns the
+	 * number of rebalancing operations, or -1 if an item with key k was not
+	 * found in the tree.
+	 */
+	int delete(int k);
+
+	/**
+	 * returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	V min();
+
+	/**
+	 * returns the info of the item with the largest key in the tree, or null
+	 * if the tree is empty
+	 */
+	V max();
+
+	/**
+	 * returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty
+	 */
+	int[] keysToArray();
+
+	/**
+	 * returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty
+	 */
+	Object[] infoToArray();
+
+	/**
+	 * returns the number of items in the tree
+	 */
+	int size();
+}
@@ -0,0 +1,276 @@
+package wavl;
+
+import java.util.Arrays;
+
+/**
+ *
+ * IntWAVLTree
+ * <p>
+ * A WAVL Tree with distinct integer keys and info, with the same operations
+ * as WAVLTree. nodes are not objects: every node is a slot index into
+ * parallel arrays that hold its key, rank and links. the info of a node is
+ * kept in a side array at the same slot, and slots of deleted nodes are
+ * reused through a free list.
+ */
+
+public class IntWAVLTree extends AbstractIntWAVLTree implements IntKeyTree<String> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	// the node arrays. a slot is a node in the tree only if it is not in the free list
+	private int[] keys;
+	private byte[] ranks;
+	private int[] parents;
+	private int[] leftChildren;
+	private int[] rightChildren;
+	private String[] infos;
+
+	private int[] sortedKeys;
+	private String[] sortedInfo;
+
+	// slots that were never used start at used, freed slots are linked through leftChildren
+	private int used;
+	private int freeList = NIL;
+
+	public IntWAVLTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * creates an empty tree with room for capacity nodes before the node
+	 * arrays have to grow
+	 */
+	public IntWAVLTree(int capacity) {
+		capacity = Math.max(capacity, 1);
+		this.keys = new int[capacity];
+		this.ranks = new byte[capacity];
+		this.parents = new int[capacity];
+		this.leftChildren = new int[capacity];
+		this.rightChildren = new int[capacity];
+		this.infos = new String[capacity];
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int node = search(k, this.root);
+		if (node == NIL) {
+			return null;
+		}
+
+		return this.infos[node];
+	}
+
+	/**
+	 * returns the node with key k if it exists in the sub-tree, otherwise
+	 * returns NIL
+	 *
+	 * @param k    - key of node in the tree
+	 * @param node - root of a sub-tree
+	 */
+	private int search(int k, int node) {
+		int[] keys = this.keys;
+		while (node != NIL) {
+			int key = keys[node];
+			if (key == k) {
+				return node;
+			}
+			node = k > key ? this.rightChildren[node] : this.leftChildren[node];
+		}
+		return NIL;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the WAVL tree. the tree must
+	 * remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were necessary. returns -1
+	 * if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		int parent = NIL;
+		int node = this.root;
+		while (node != NIL) {
+			int key = this.keys[node];
+			if (k == key) { // node with key k already exists
+				return -1;
+			}
+			parent = node;
+			node = k > key ? this.rightChildren[node] : this.leftChildren[node];
+		}
+
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		return insertUnder(parent, allocate(k, i), parent != NIL && k < this.keys[parent]);
+	}
+
+	/**
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * must remain valid (keep its invariants). returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		// we need to find the node to be deleted
+		int node = search(k, this.root);
+		if (node == NIL) {
+			// the key is not in the tree
+			return -1;
+		}
+
+		int res = deleteNode(node);
+		release(node);
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		return res;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		if (this.min == NIL) {
+			return null;
+		}
+
+		return this.infos[this.min];
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		if (this.max == NIL) {
+			return null;
+		}
+
+		return this.infos[this.max];
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		if (this.sortedKeys == null) {
+			fillSortedArrays();
+		}
+		return this.sortedKeys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		if (this.sortedInfo == null) {
+			fillSortedArrays();
+		}
+		return this.sortedInfo;
+	}
+
+	/**
+	 * fills both sorted arrays with a single in-order walk. the walk follows
+	 * parent links, so it needs no recursion and no stack.
+	 */
+	private void fillSortedArrays() {
+		int[] sortedKeys = new int[this.size];
+		String[] sortedInfo = new String[this.size];
+		int node = this.min;
+		for (int i = 0; i < this.size; i++) {
+			sortedKeys[i] = this.keys[node];
+			sortedInfo[i] = this.infos[node];
+			node = successor(node);
+		}
+		this.sortedKeys = sortedKeys;
+		this.sortedInfo = sortedInfo;
+	}
+
+	/**
+	 * takes a slot from the free list, or a new one from the end of the
+	 * arrays, and initializes it as a leaf
+	 */
+	private int allocate(int k, String i) {
+		int node;
+		if (this.freeList != NIL) {
+			node = this.freeList;
+			this.freeList = this.leftChildren[node];
+		} else {
+			if (this.used == this.keys.length) {
+				grow();
+			}
+			node = this.used++;
+		}
+
+		this.keys[node] = k;
+		this.infos[node] = i;
+		this.ranks[node] = 0;
+		this.parents[node] = NIL;
+		this.leftChildren[node] = NIL;
+		this.rightChildren[node] = NIL;
+		return node;
+	}
+
+	/**
+	 * returns the slot of a deleted node to the free list
+	 */
+	private void release(int node) {
+		this.infos[node] = null; // let the info be garbage collected
+		this.leftChildren[node] = this.freeList;
+		this.freeList = node;
+	}
+
+	private void grow() {
+		int capacity = this.keys.length + (this.keys.length >> 1) + 1;
+		this.keys = Arrays.copyOf(this.keys, capacity);
+		this.ranks = Arrays.copyOf(this.ranks, capacity);
+		this.parents = Arrays.copyOf(this.parents, capacity);
+		this.leftChildren = Arrays.copyOf(this.leftChildren, capacity);
+		this.rightChildren = Arrays.copyOf(this.rightChildren, capacity);
+		this.infos = Arrays.copyOf(this.infos, capacity);
+	}
+
+	/*
+	 * node access for the core
+	 */
+
+	int key(int node) {
+		return this.keys[node];
+	}
+
+	int rank(int node) {
+		return this.ranks[node];
+	}
+
+	void setRank(int node, int rank) {
+		this.ranks[node] = (byte) rank;
+	}
+
+	int parent(int node) {
+		return this.parents[node];
+	}
+
+	int left(int node) {
+		return this.leftChildren[node];
+	}
+
+	int right(int node) {
+		return this.rightChildren[node];
+	}
+
+	void setParent(int node, int parent) {
+		this.parents[node] = parent;
+	}
+
+	void setLeft(int node, int left) {
+		this.leftChildren[node] = left;
+	}
+
+	void setRight(int node, int right) {
+		this.rightChildren[node] = right;
+	}
+
+}
@@ -0,0 +1,123 @@
+package wavl;
+
+/**
+ *
+ * LongWAVLTree
+ * <p>
+ * A WAVL Tree with distinct long keys and info, with the same operations as
+ * WAVLTree. keys are compared as primitives and returned as primitives, so
+ * nothing is boxed on any path.
+ */
+
+public class LongWAVLTree extends AbstractWAVLTree<LongWAVLTree.LongNode> {
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(long k) {
+		LongNode node = find(k);
+		return node != null ? node.info : null;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the tree. returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(long k, String i) {
+		LongNode parent = null;
+		LongNode node = this.root;
+		boolean left = false;
+		while (node != null) {
+			if (k == node.key) {
+				return -1;
+			}
+			parent = node;
+			left = k < node.key;
+			node = left ? node.leftChild : node.rightChild;
+		}
+		return insertUnder(parent, new LongNode(k, i), left);
+	}
+
+	/**
+	 * deletes an item with key k from the tree if it exists. returns the
+	 * number of rebalancing operations, or 0 if no rebalancing operations were
+	 * needed. returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(long k) {
+		LongNode node = find(k);
+		return node != null ? deleteNode(node) : -1;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		return this.min != null ? this.min.info : null;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		return this.max != null ? this.max.info : null;
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public long[] keysToArray() {
+		long[] keys = new long[this.size];
+		int i = 0;
+		for (LongNode node = this.min; node != null; node = successor(node)) {
+			keys[i++] = node.key;
+		}
+		return keys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infos = new String[this.size];
+		int i = 0;
+		for (LongNode node = this.min; node != null; node = successor(node)) {
+			infos[i++] = node.info;
+		}
+		return infos;
+	}
+
+	/**
+	 * returns the node with key k, or null if there is none
+	 */
+	private LongNode find(long k) {
+		LongNode node = this.root;
+		while (node != null && k != node.key) {
+			node = k < node.key ? node.leftChild : node.rightChild;
+		}
+		return node;
+	}
+
+	public static final class LongNode extends AbstractWAVLTree.Node<LongNode> {
+		private final long key;
+		private String info;
+
+		private LongNode(long key, String info) {
+			this.key = key;
+			this.info = info;
+		}
+
+		public long getKey() {
+			return this.key;
+		}
+
+		public String getInfo() {
+			return this.info;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package wavl;
+
+import java.util.*;
+
+/**
+ * compares WAVLTreeMap and its views against java.util.TreeMap, by running
+ * the same random operations on both and checking every result.
+ */
+public class MapTester {
+
+	private static final int ROUNDS = 2000;
+	private static final int OPERATIONS = 500;
+
+	private static Random rnd = new Random(2016);
+	private static int keyRange;
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			System.out.println("Problem with " + message);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * runs an operation on both maps and checks that both return the same
+	 * result, or both throw the same type of exception
+	 */
+	private static <T> void same(String name, NavigableMap<Integer, String> wavl,
+			NavigableMap<Integer, String> java, java.util.function.Function<NavigableMap<Integer, String>, T> op) {
+		Object expected;
+		Object actual;
+		try {
+			expected = op.apply(java);
+		} catch (RuntimeException e) {
+			expected = e.getClass();
+		}
+		try {
+			actual = op.apply(wavl);
+		} catch (RuntimeException e) {
+			actual = e.getClass();
+		}
+		check(Objects.equals(expected, actual), name + ": expected " + expected + " but got " + actual);
+	}
+
+	/**
+	 * checks a key returned by an OrDefault overload against the boxed key,
+	 * or null, of TreeMap
+	 */
+	private static void checkOrDefault(int actual, Integer expected, int defaultKey, String message) {
+		check(actual == (expected != null ? expected : defaultKey), message);
+	}
+
+	private static Integer randomKey() {
+		int r = rnd.nextInt(20);
+		if (r == 0) {
+			return Integer.MIN_VALUE;
+		} else if (r == 1) {
+			return Integer.MAX_VALUE;
+		}
+		return rnd.nextInt(keyRange) - keyRange / 2;
+	}
+
+	/**
+	 * returns the same random view of both maps, as a list of the wavl view
+	 * and the java view. an illegal view falls back to the maps themselves
+	 */
+	private static List<NavigableMap<Integer, String>> randomView(NavigableMap<Integer, String> wavl,
+			NavigableMap<Integer, String> java) {
+		for (int depth = rnd.nextInt(4); depth > 0; depth--) {
+			Integer a = randomKey();
+			Integer b = randomKey();
+			boolean ai = rnd.nextBoolean();
+			boolean bi = rnd.nextBoolean();
+			NavigableMap<Integer, String> nextWavl;
+			NavigableMap<Integer, String> nextJava;
+			int kind = rnd.nextInt(4);
+			try {
+				nextJava = kind == 0 ? java.subMap(a, ai, b, bi)
+						: kind == 1 ? java.headMap(a, ai) : kind == 2 ? java.tailMap(a, ai) : java.descendingMap();
+			} catch (IllegalArgumentException e) {
+				try {
+					if (kind == 0) {
+						wavl.subMap(a, ai, b, bi);
+					} else if (kind == 1) {
+						wavl.headMap(a, ai);
+					} else {
+						wavl.tailMap(a, ai);
+					}
+					check(false, "view bounds, expected an exception");
+				} catch (IllegalArgumentException expected) {
+				}
+				continue;
+			}
+			nextWavl = kind == 0 ? wavl.subMap(a, ai, b, bi)
+					: kind == 1 ? wavl.headMap(a, ai) : kind == 2 ? wavl.tailMap(a, ai) : wavl.descendingMap();
+			wavl = nextWavl;
+			java = nextJava;
+		}
+		return Arrays.asList(wavl, java);
+	}
+
+	private static void randomOperation(NavigableMap<Integer, String> wavl, NavigableMap<Integer, String> java) {
+		Integer k = randomKey();
+		String v = String.valueOf(rnd.nextInt(5));
+		boolean removeFirst = rnd.nextBoolean();
+		switch (rnd.nextInt(22)) {
+		case 0:
+		case 1:
+		case 2:
+			same("put", wavl, java, m -> m.put(k, v));
+			break;
+		case 3:
+			same("remove", wavl, java, m -> m.remove(k));
+			break;
+		case 4:
+			same("get", wavl, java, m -> m.get(k));
+			break;
+		case 5:
+			same("containsKey", wavl, java, m -> m.containsKey(k));
+			break;
+		case 6:
+			same("lowerEntry", wavl, java, m -> m.lowerEntry(k));
+			same("floorEntry", wavl, java, m -> m.floorEntry(k));
+			same("ceilingEntry", wavl, java, m -> m.ceilingEntry(k));
+			same("higherEntry", wavl, java, m -> m.higherEntry(k));
+			break;
+		case 7:
+			same("lowerKey", wavl, java, m -> m.lowerKey(k));
+			same("floorKey", wavl, java, m -> m.floorKey(k));
+			same("ceilingKey", wavl, java, m -> m.ceilingKey(k));
+			same("higherKey", wavl, java, m -> m.higherKey(k));
+			if (wavl instanceof WAVLTreeMap) {
+				WAVLTreeMap view = (WAVLTreeMap) wavl;
+				checkOrDefault(view.lowerKeyOrDefault(k, 0), java.lowerKey(k), 0, "lowerKeyOrDefault");
+				checkOrDefault(view.floorKeyOrDefault(k, 0), java.floorKey(k), 0, "floorKeyOrDefault");
+				checkOrDefault(view.ceilingKeyOrDefault(k, 0), java.ceilingKey(k), 0, "ceilingKeyOrDefault");
+				checkOrDefault(view.higherKeyOrDefault(k, 0), java.higherKey(k), 0, "higherKeyOrDefault");
+			}
+			break;
+		case 8:
+			same("first/lastKey", wavl, java, m -> m.firstKey() + " " + m.lastKey());
+			same("first/lastEntry", wavl, java, m -> m.firstEntry() + " " + m.lastEntry());
+			break;
+		case 9:
+			same("pollFirstEntry", wavl, java, m -> m.pollFirstEntry());
+			break;
+		case 10:
+			same("pollLastEntry", wavl, java, m -> m.pollLastEntry());
+			break;
+		case 11:
+			same("size", wavl, java, m -> m.size());
+			same("isEmpty", wavl, java, m -> m.isEmpty());
+			break;
+		case 12:
+			same("entrySet", wavl, java, m -> new ArrayList<>(m.entrySet()));
+			same("keySet", wavl, java, m -> new ArrayList<>(m.keySet()));
+			same("values", wavl, java, m -> new ArrayList<>(m.values()));
+			same("descendingKeySet", wavl, java, m -> new ArrayList<>(m.descendingKeySet()));
+			break;
+		case 13:
+			same("equals", wavl, java, m -> m.equals(java) && java.equals(m));
+			same("hashCode", wavl, java, m -> m.hashCode());
+			same("toString", wavl, java, m -> m.toString());
+			break;
+		case 14: // removes every other entry through the iterator
+			same("iterator remove", wavl, java, m -> {
+				Iterator<Map.Entry<Integer, String>> it = m.entrySet().iterator();
+				List<Integer> removed = new ArrayList<>();
+				boolean remove = removeFirst;
+				while (it.hasNext()) {
+					Integer key = it.next().getKey(); // TreeMap reuses removed entries
+					if (remove) {
+						it.remove();
+						removed.add(key);
+					}
+					remove = !remove;
+				}
+				return removed;
+			});
+			break;
+		case 15: // setValue on the entries of the iterator
+			same("setValue", wavl, java, m -> {
+				for (Map.Entry<Integer, String> entry : m.entrySet()) {
+					entry.setValue(entry.getValue() + v);
+				}
+				return new ArrayList<>(m.entrySet());
+			});
+			break;
+		case 16:
+			same("keySet navigation", wavl, java, m -> {
+				NavigableSet<Integer> keys = m.navigableKeySet();
+				return keys.lower(k) + " " + keys.floor(k) + " " + keys.ceiling(k) + " " + keys.higher(k) + " "
+						+ keys.contains(k) + " " + keys.size();
+			});
+			break;
+		case 17:
+			same("keySet remove", wavl, java, m -> m.keySet().remove(k));
+			break;
+		case 18:
+			same("entrySet contains", wavl, java,
+					m -> m.entrySet().contains(new AbstractMap.SimpleEntry<>(k, v)));
+			same("entrySet remove", wavl, java, m -> m.entrySet().remove(new AbstractMap.SimpleEntry<>(k, v)));
+			break;
+		case 19:
+			same("put null", wavl, java, m -> m.put(null, v));
+			same("get null", wavl, java, m -> m.get(null));
+			break;
+		case 20:
+			same("comparator", wavl, java, m -> m.comparator() == null ? 0 : m.comparator().compare(1, 2));
+			break;
+		default:
+			if (rnd.nextInt(20) == 0) {
+				same("clear", wavl, java, m -> {
+					m.clear();
+					return m.size();
+				});
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		System.out.println("Comparing WAVLTreeMap and its views with TreeMap");
+		for (int round = 0; round < ROUNDS; round++) {
+			keyRange = 1 + rnd.nextInt(round % 10 == 0 ? 10 : 1000);
+			WAVLTreeMap wavl = new WAVLTreeMap();
+			TreeMap<Integer, String> java = new TreeMap<>();
+			for (int i = 0; i < OPERATIONS; i++) {
+				List<NavigableMap<Integer, String>> views = randomView(wavl, java);
+				randomOperation(views.get(0), views.get(1));
+			}
+			check(wavl.equals(java), "content after round " + round);
+			check(wavl.getTree().size() == java.size(), "size of the tree after round " + round);
+			check(Arrays.equals(wavl.getTree().keysToArray(), java.keySet().stream().mapToInt(k -> k).toArray()),
+					"keysToArray after round " + round);
+			check(Arrays.equals(wavl.getTree().infoToArray(), java.values().toArray(new String[0])),
+					"infoToArray after round " + round);
+		}
+
+		System.out.println("Checking the int overloads");
+		WAVLTreeMap wavl = new WAVLTreeMap();
+		TreeMap<Integer, String> java = new TreeMap<>();
+		for (int i = 0; i < 100000; i++) {
+			int k = rnd.nextInt(1000);
+			String v = String.valueOf(i);
+			check(Objects.equals(wavl.put(k, v), java.put(k, v)), "put(int)");
+			k = rnd.nextInt(1000);
+			check(Objects.equals(wavl.get(k), java.get(k)), "get(int)");
+			check(wavl.containsKey(k) == java.containsKey(k), "containsKey(int)");
+			check(Objects.equals(wavl.floorKey(k), java.floorKey(k)), "floorKey(int)");
+			check(Objects.equals(wavl.higherKey(k), java.higherKey(k)), "higherKey(int)");
+			checkOrDefault(wavl.lowerKeyOrDefault(k, -1), java.lowerKey(k), -1, "lowerKeyOrDefault");
+			checkOrDefault(wavl.floorKeyOrDefault(k, -1), java.floorKey(k), -1, "floorKeyOrDefault");
+			checkOrDefault(wavl.ceilingKeyOrDefault(k, -1), java.ceilingKey(k), -1, "ceilingKeyOrDefault");
+			checkOrDefault(wavl.higherKeyOrDefault(k, -1), java.higherKey(k), -1, "higherKeyOrDefault");
+			checkOrDefault(wavl.getTree().floorKeyOrDefault(k, -1), java.floorKey(k), -1, "tree floorKeyOrDefault");
+			checkOrDefault(wavl.getTree().higherKeyOrDefault(k, -1), java.higherKey(k), -1, "tree higherKeyOrDefault");
+			if (i % 3 == 0) {
+				check(Objects.equals(wavl.remove(k), java.remove(k)), "remove(int)");
+			}
+		}
+
+		System.out.println("Checking fail-fast iterators");
+		try {
+			for (Integer k : wavl.keySet()) {
+				wavl.remove(k.intValue());
+			}
+			check(false, "iterator, expected a ConcurrentModificationException");
+		} catch (ConcurrentModificationException expected) {
+		}
+
+		System.out.println("done. maps are equal");
+	}
+}
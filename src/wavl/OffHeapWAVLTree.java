@@ -0,0 +1,456 @@
+package wavl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *
+ * OffHeapWAVLTree
+ * <p>
+ * A WAVL Tree with distinct integer keys and info, with the same operations
+ * as WAVLTree, that keeps all of its nodes outside of the java heap.
+ * <p>
+ * a node is a fixed size record in a direct ByteBuffer, and the info of a
+ * node is kept as UTF-8 bytes in a second set of direct buffers. both grow
+ * in chunks, so the garbage collector only sees the chunk buffers no matter
+ * how many nodes are in the tree. all searching, rebalancing and rotating
+ * is done on the records themselves.
+ * <p>
+ * the tree should be closed when it is no longer needed. close() frees the
+ * native memory of all chunks right away on JDK 9 and later. JDK 8 has no
+ * way to free a direct buffer on demand, so there close() only drops the
+ * chunks, and their memory is returned when the buffers are collected.
+ */
+
+public class OffHeapWAVLTree extends AbstractIntWAVLTree implements IntKeyTree<String>, AutoCloseable {
+
+	// record layout of a node
+	private static final int KEY = 0;
+	private static final int RANK = 4;
+	private static final int PARENT = 8;
+	private static final int LEFT = 12;
+	private static final int RIGHT = 16;
+	private static final int INFO_LENGTH = 20; // -1 for a null info
+	private static final int INFO_ADDRESS = 24; // chunk index in the high half, offset in the low half
+	private static final int RECORD_SHIFT = 5; // 32 bytes per record
+
+	private static final int NODE_CHUNK_SHIFT = 15; // 32768 records, 1MB per chunk
+	private static final int NODE_CHUNK_MASK = (1 << NODE_CHUNK_SHIFT) - 1;
+	private static final int INFO_CHUNK_BYTES = 1 << 20;
+
+	// Unsafe.invokeCleaner frees a direct buffer on JDK 9 and later. it is
+	// looked up by reflection, since this code also targets JDK 8, where both
+	// are null
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private ByteBuffer[] nodeChunks = new ByteBuffer[4];
+	private int usedNodes; // records that were never used start here
+	private int freeList = NIL; // freed records are linked through their LEFT field
+
+	private ByteBuffer[] infoChunks = new ByteBuffer[4];
+	private int infoChunkCount;
+	private int infoPosition;
+	private long liveInfoBytes;
+	private long garbageInfoBytes;
+	private byte[] scratch = new byte[64];
+
+	private boolean closed;
+
+	public OffHeapWAVLTree() {
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		ensureOpen();
+		int node = search(k, this.root);
+		if (node == NIL) {
+			return null;
+		}
+
+		return info(node);
+	}
+
+	/**
+	 * returns the node with key k if it exists in the sub-tree, otherwise
+	 * returns NIL
+	 */
+	private int search(int k, int node) {
+		while (node != NIL) {
+			int key = key(node);
+			if (key == k) {
+				return node;
+			}
+			node = k > key ? right(node) : left(node);
+		}
+		return NIL;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the WAVL tree. the tree must
+	 * remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were necessary. returns -1
+	 * if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		ensureOpen();
+		int parent = NIL;
+		int node = this.root;
+		while (node != NIL) {
+			int key = key(node);
+			if (k == key) { // node with key k already exists
+				return -1;
+			}
+			parent = node;
+			node = k > key ? right(node) : left(node);
+		}
+
+		return insertUnder(parent, allocate(k, i), parent != NIL && k < key(parent));
+	}
+
+	/**
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * must remain valid (keep its invariants). returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		ensureOpen();
+		// we need to find the node to be deleted
+		int node = search(k, this.root);
+		if (node == NIL) {
+			// the key is not in the tree
+			return -1;
+		}
+
+		int res = deleteNode(node);
+		release(node);
+		return res;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		ensureOpen();
+		if (this.min == NIL) {
+			return null;
+		}
+
+		return info(this.min);
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		ensureOpen();
+		if (this.max == NIL) {
+			return null;
+		}
+
+		return info(this.max);
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty. the array is not cached, as keeping it would
+	 * put the whole key set back on the heap.
+	 */
+	public int[] keysToArray() {
+		ensureOpen();
+		int[] arr = new int[this.size];
+		int node = this.min;
+		for (int i = 0; i < this.size; i++) {
+			arr[i] = key(node);
+			node = successor(node);
+		}
+		return arr;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. the array is
+	 * not cached.
+	 */
+	public String[] infoToArray() {
+		ensureOpen();
+		String[] arr = new String[this.size];
+		int node = this.min;
+		for (int i = 0; i < this.size; i++) {
+			arr[i] = info(node);
+			node = successor(node);
+		}
+		return arr;
+	}
+
+	/**
+	 * frees the native memory of all node and info chunks, or on JDK 8 drops
+	 * them so that it is returned when they are collected. the tree can not
+	 * be used after it was closed. closing it again does nothing.
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		free(this.nodeChunks);
+		free(this.infoChunks);
+		this.nodeChunks = null;
+		this.infoChunks = null;
+		this.scratch = null;
+		this.root = NIL;
+		this.min = NIL;
+		this.max = NIL;
+		this.size = 0;
+	}
+
+	/**
+	 * returns true if close() frees the native memory right away on this JVM
+	 */
+	static boolean freesOnClose() {
+		return INVOKE_CLEANER != null;
+	}
+
+	/**
+	 * frees the native memory of direct buffers right away, if the JVM has a
+	 * way to. the buffers must not be used anymore.
+	 */
+	private static void free(ByteBuffer[] buffers) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		for (ByteBuffer buffer : buffers) {
+			if (buffer == null) {
+				continue;
+			}
+			try {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} catch (ReflectiveOperationException e) {
+				return; // the rest is freed when the buffers are collected
+			}
+		}
+	}
+
+	private void ensureOpen() {
+		if (this.closed) {
+			throw new IllegalStateException("tree is closed");
+		}
+	}
+
+	/*
+	 * record access. a node is the index of its record. the core reads and
+	 * writes the links and ranks through the methods below.
+	 */
+
+	private ByteBuffer chunk(int node) {
+		return this.nodeChunks[node >>> NODE_CHUNK_SHIFT];
+	}
+
+	private static int offset(int node) {
+		return (node & NODE_CHUNK_MASK) << RECORD_SHIFT;
+	}
+
+	int key(int node) {
+		return chunk(node).getInt(offset(node) + KEY);
+	}
+
+	int rank(int node) {
+		return chunk(node).getInt(offset(node) + RANK);
+	}
+
+	void setRank(int node, int rank) {
+		chunk(node).putInt(offset(node) + RANK, rank);
+	}
+
+	int parent(int node) {
+		return chunk(node).getInt(offset(node) + PARENT);
+	}
+
+	int left(int node) {
+		return chunk(node).getInt(offset(node) + LEFT);
+	}
+
+	int right(int node) {
+		return chunk(node).getInt(offset(node) + RIGHT);
+	}
+
+	void setParent(int node, int parent) {
+		chunk(node).putInt(offset(node) + PARENT, parent);
+	}
+
+	void setLeft(int node, int left) {
+		chunk(node).putInt(offset(node) + LEFT, left);
+	}
+
+	void setRight(int node, int right) {
+		chunk(node).putInt(offset(node) + RIGHT, right);
+	}
+
+	/**
+	 * takes a record from the free list, or a new one from the end of the
+	 * last chunk, and initializes it as a leaf
+	 */
+	private int allocate(int k, String i) {
+		int node;
+		if (this.freeList != NIL) {
+			node = this.freeList;
+			this.freeList = left(node);
+		} else {
+			node = this.usedNodes++;
+			int chunkIndex = node >>> NODE_CHUNK_SHIFT;
+			if (chunkIndex == this.nodeChunks.length) {
+				this.nodeChunks = Arrays.copyOf(this.nodeChunks, chunkIndex * 2);
+			}
+			if (this.nodeChunks[chunkIndex] == null) {
+				this.nodeChunks[chunkIndex] = ByteBuffer.allocateDirect((NODE_CHUNK_MASK + 1) << RECORD_SHIFT)
+						.order(ByteOrder.nativeOrder());
+			}
+		}
+
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		chunk.putInt(offset + KEY, k);
+		chunk.putInt(offset + RANK, 0);
+		chunk.putInt(offset + PARENT, NIL);
+		chunk.putInt(offset + LEFT, NIL);
+		chunk.putInt(offset + RIGHT, NIL);
+		storeInfo(node, i);
+		return node;
+	}
+
+	/**
+	 * returns the record of a deleted node to the free list
+	 */
+	private void release(int node) {
+		int length = chunk(node).getInt(offset(node) + INFO_LENGTH);
+		if (length > 0) {
+			this.liveInfoBytes -= length;
+			this.garbageInfoBytes += length;
+		}
+		chunk(node).putInt(offset(node) + LEFT, this.freeList);
+		this.freeList = node;
+
+		// info bytes are only appended, so they are reclaimed by compacting once
+		// more than half of them belong to deleted nodes
+		if (this.garbageInfoBytes > INFO_CHUNK_BYTES && this.garbageInfoBytes > this.liveInfoBytes) {
+			compactInfo();
+		}
+	}
+
+	/*
+	 * info access. the info of a node is kept as UTF-8 bytes in the info
+	 * chunks, and its record holds their length and address.
+	 */
+
+	private String info(int node) {
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		int length = chunk.getInt(offset + INFO_LENGTH);
+		if (length < 0) {
+			return null;
+		}
+		long address = chunk.getLong(offset + INFO_ADDRESS);
+		ByteBuffer infoChunk = this.infoChunks[(int) (address >>> 32)];
+		if (this.scratch.length < length) {
+			this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+		}
+		infoChunk.position((int) address);
+		infoChunk.get(this.scratch, 0, length);
+		return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private void storeInfo(int node, String i) {
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		if (i == null) {
+			chunk.putInt(offset + INFO_LENGTH, -1);
+			return;
+		}
+		byte[] bytes = i.getBytes(StandardCharsets.UTF_8);
+		chunk.putInt(offset + INFO_LENGTH, bytes.length);
+		chunk.putLong(offset + INFO_ADDRESS, appendInfo(bytes, bytes.length));
+	}
+
+	/**
+	 * appends bytes to the last info chunk, or to a new chunk if they do not
+	 * fit, and returns their address
+	 */
+	private long appendInfo(byte[] bytes, int length) {
+		if (this.infoChunkCount == 0
+				|| this.infoPosition + length > this.infoChunks[this.infoChunkCount - 1].capacity()) {
+			if (this.infoChunkCount == this.infoChunks.length) {
+				this.infoChunks = Arrays.copyOf(this.infoChunks, this.infoChunkCount * 2);
+			}
+			this.infoChunks[this.infoChunkCount++] = ByteBuffer.allocateDirect(Math.max(INFO_CHUNK_BYTES, length));
+			this.infoPosition = 0;
+		}
+
+		int chunkIndex = this.infoChunkCount - 1;
+		ByteBuffer infoChunk = this.infoChunks[chunkIndex];
+		infoChunk.position(this.infoPosition);
+		infoChunk.put(bytes, 0, length);
+		long address = ((long) chunkIndex << 32) | this.infoPosition;
+		this.infoPosition += length;
+		this.liveInfoBytes += length;
+		return address;
+	}
+
+	/**
+	 * copies the info of all nodes in the tree to new info chunks, leaving
+	 * the bytes of deleted nodes behind
+	 */
+	private void compactInfo() {
+		ByteBuffer[] oldChunks = this.infoChunks;
+		this.infoChunks = new ByteBuffer[4];
+		this.infoChunkCount = 0;
+		this.infoPosition = 0;
+		this.liveInfoBytes = 0;
+		this.garbageInfoBytes = 0;
+
+		for (int node = this.min; node != NIL; node = successor(node)) {
+			ByteBuffer chunk = chunk(node);
+			int offset = offset(node);
+			int length = chunk.getInt(offset + INFO_LENGTH);
+			if (length < 0) {
+				continue;
+			}
+			long address = chunk.getLong(offset + INFO_ADDRESS);
+			ByteBuffer oldChunk = oldChunks[(int) (address >>> 32)];
+			if (this.scratch.length < length) {
+				this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+			}
+			oldChunk.position((int) address);
+			oldChunk.get(this.scratch, 0, length);
+			chunk.putLong(offset + INFO_ADDRESS, appendInfo(this.scratch, length));
+		}
+		free(oldChunks);
+	}
+
+}
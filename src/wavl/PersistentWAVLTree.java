@@ -0,0 +1,583 @@
+package wavl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * PersistentWAVLTree
+ * <p>
+ * A WAVL Tree with distinct integer keys and info, with the same operations
+ * as WAVLTree, whose nodes are never changed once they are created. insert
+ * and delete copy only the nodes on the search path, together with the nodes
+ * touched by rotations, and share all other sub-trees with the previous
+ * version of the tree. nodes have no parent pointers, since a shared node has
+ * a different parent in every version. all operations walk down from the
+ * root, and rebalancing is done on the way back up the recursion.
+ * <p>
+ * snapshot() returns an immutable view of the current version in constant
+ * time. it stays valid and unchanged while the tree is modified further.
+ */
+
+public class PersistentWAVLTree implements IntKeyTree<String>, Iterable<PersistentWAVLTree.Node> {
+
+	private Node root;
+	private int size;
+
+	private Node min;
+	private Node max;
+	private int[] sortedKeys;
+	private String[] sortedInfo;
+
+	// counts the rebalancing operations of the current insertion or deletion
+	private int rebalances;
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size == 0;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		return search(this.root, k);
+	}
+
+	/**
+	 * inserts an item with key k and info i to the WAVL tree. the tree must
+	 * remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were necessary. returns -1
+	 * if an item with key k already exists in the tree. snapshots taken before
+	 * are not affected.
+	 */
+	public int insert(int k, String i) {
+		if (containsKey(this.root, k)) {
+			return -1;
+		}
+
+		this.rebalances = 0;
+		Node leaf = new Node(k, i, 0, null, null);
+		this.root = insert(this.root, leaf);
+		this.size++;
+		if (this.min == null || k < this.min.key) {
+			this.min = leaf;
+		}
+		if (this.max == null || k > this.max.key) {
+			this.max = leaf;
+		}
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		return this.rebalances;
+	}
+
+	/**
+	 * deletes an item with key k from the WAVL tree if it exists. the tree
+	 * must remain valid (keep its invariants). returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree. snapshots
+	 * taken before are not affected.
+	 */
+	public int delete(int k) {
+		if (!containsKey(this.root, k)) {
+			return -1;
+		}
+
+		this.rebalances = 0;
+		this.root = delete(this.root, k);
+		this.size--;
+		if (k == this.min.key) {
+			this.min = min(this.root);
+		}
+		if (k == this.max.key) {
+			this.max = max(this.root);
+		}
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		return this.rebalances;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		return this.min == null ? null : this.min.info;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		return this.max == null ? null : this.max.info;
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		if (this.sortedKeys == null) {
+			fillSortedArrays();
+		}
+		return this.sortedKeys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		if (this.sortedInfo == null) {
+			fillSortedArrays();
+		}
+		return this.sortedInfo;
+	}
+
+	private void fillSortedArrays() {
+		int[] keys = new int[this.size];
+		String[] infos = new String[this.size];
+		int i = 0;
+		for (Node node : this) {
+			keys[i] = node.key;
+			infos[i++] = node.info;
+		}
+		this.sortedKeys = keys;
+		this.sortedInfo = infos;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * returns an immutable view of the current version of the tree, in
+	 * constant time
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(this.root, this.size, this.min, this.max);
+	}
+
+	/**
+	 * returns an iterator over the nodes of the current version of the tree,
+	 * in ascending order of keys. modifying the tree while iterating does not
+	 * affect the iterator.
+	 */
+	@Override
+	public Iterator<Node> iterator() {
+		return new NodeIterator(this.root);
+	}
+
+	/**
+	 * returns the root of the tree.
+	 */
+	Node getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * checks the rank rules and the order of the keys. returns the number of
+	 * nodes in the tree.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkInvariants() {
+		int count = checkInvariants(this.root, Long.MIN_VALUE, Long.MAX_VALUE);
+		if (count != this.size) {
+			throw new IllegalStateException("tree has " + count + " nodes but size " + this.size);
+		}
+		return count;
+	}
+
+	private static int checkInvariants(Node node, long lo, long hi) {
+		if (node == null) {
+			return 0;
+		}
+		if (node.key <= lo || node.key >= hi) {
+			throw new IllegalStateException("key " + node.key + " is out of order");
+		}
+		int left = node.rank - rank(node.left);
+		int right = node.rank - rank(node.right);
+		if (left < 1 || left > 2 || right < 1 || right > 2 || (left == 2 && right == 2 && node.rank == 1)) {
+			throw new IllegalStateException("node " + node.key + " has rank differences " + left + "," + right);
+		}
+		return 1 + checkInvariants(node.left, lo, node.key) + checkInvariants(node.right, node.key, hi);
+	}
+
+	/**
+	 * returns the info of an item with key k in a sub-tree, or null if there
+	 * is none
+	 */
+	private static String search(Node node, int k) {
+		while (node != null) {
+			if (k == node.key) {
+				return node.info;
+			}
+			node = k < node.key ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * returns true if a sub-tree has an item with key k. the info of an item
+	 * might be null, so search alone can not tell.
+	 */
+	private static boolean containsKey(Node node, int k) {
+		while (node != null) {
+			if (k == node.key) {
+				return true;
+			}
+			node = k < node.key ? node.left : node.right;
+		}
+		return false;
+	}
+
+	private static Node min(Node node) {
+		if (node == null) {
+			return null;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+
+	private static Node max(Node node) {
+		if (node == null) {
+			return null;
+		}
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * returns the rank of a node or -1 if node is null (external node)
+	 */
+	private static int rank(Node node) {
+		return node == null ? -1 : node.rank;
+	}
+
+	/**
+	 * inserts a new leaf into a sub-tree whose keys do not include its key,
+	 * and returns the new root of the sub-tree. the rank of the new root is
+	 * either the same as before, or one more if it was promoted.
+	 */
+	private Node insert(Node node, Node leaf) {
+		if (node == null) {
+			return leaf;
+		}
+		if (leaf.key < node.key) {
+			return balanceLeftAfterInsertion(node, insert(node.left, leaf));
+		} else {
+			return balanceRightAfterInsertion(node, insert(node.right, leaf));
+		}
+	}
+
+	/**
+	 * returns a copy of node with a new left child that might have been
+	 * promoted, fixing a 0-child by a promotion or by a rotation
+	 */
+	private Node balanceLeftAfterInsertion(Node node, Node left) {
+		if (rank(left) < node.rank) { // still a 1-child or a 2-child
+			return node.withLeft(left);
+		}
+
+		// left is a 0-child. case 1: node is 0,1 - promote it
+		if (node.rank - rank(node.right) == 1) {
+			this.rebalances++;
+			return new Node(node.key, node.info, node.rank + 1, left, node.right);
+		}
+
+		// node is 0,2. left is 1,2, since it was just created or promoted
+		Node demoted;
+		if (left.rank - rank(left.left) == 1) { // case 2: single rotation
+			this.rebalances++;
+			demoted = new Node(node.key, node.info, node.rank - 1, left.right, node.right);
+			return new Node(left.key, left.info, left.rank, left.left, demoted);
+		}
+
+		// case 3: double rotation around the right child of left
+		this.rebalances += 2;
+		Node inner = left.right;
+		Node newLeft = new Node(left.key, left.info, left.rank - 1, left.left, inner.left);
+		demoted = new Node(node.key, node.info, node.rank - 1, inner.right, node.right);
+		return new Node(inner.key, inner.info, inner.rank + 1, newLeft, demoted);
+	}
+
+	/**
+	 * the mirror image of balanceLeftAfterInsertion
+	 */
+	private Node balanceRightAfterInsertion(Node node, Node right) {
+		if (rank(right) < node.rank) {
+			return node.withRight(right);
+		}
+
+		if (node.rank - rank(node.left) == 1) {
+			this.rebalances++;
+			return new Node(node.key, node.info, node.rank + 1, node.left, right);
+		}
+
+		Node demoted;
+		if (right.rank - rank(right.right) == 1) {
+			this.rebalances++;
+			demoted = new Node(node.key, node.info, node.rank - 1, node.left, right.left);
+			return new Node(right.key, right.info, right.rank, demoted, right.right);
+		}
+
+		this.rebalances += 2;
+		Node inner = right.left;
+		Node newRight = new Node(right.key, right.info, right.rank - 1, inner.right, right.right);
+		demoted = new Node(node.key, node.info, node.rank - 1, node.left, inner.left);
+		return new Node(inner.key, inner.info, inner.rank + 1, demoted, newRight);
+	}
+
+	/**
+	 * deletes the item with key k from a sub-tree that has it, and returns the
+	 * new root of the sub-tree
+	 */
+	private Node delete(Node node, int k) {
+		if (k < node.key) {
+			return balanceLeftAfterDeletion(node, delete(node.left, k), node.right);
+		} else if (k > node.key) {
+			return balanceRightAfterDeletion(node, node.left, delete(node.right, k));
+		}
+
+		// a leaf or a unary node is replaced by its only child, if it has one
+		if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		}
+
+		// a node with two children is replaced by its successor, which is
+		// deleted from the right sub-tree first
+		Node successor = min(node.right);
+		Node replacement = new Node(successor.key, successor.info, node.rank, node.left, node.right);
+		return balanceRightAfterDeletion(replacement, node.left, delete(node.right, successor.key));
+	}
+
+	/**
+	 * returns a copy of node with the given children, where the left child
+	 * might have lost rank in a deletion. fixes a 2,2 leaf or a 3-child by
+	 * demotions or by a rotation.
+	 */
+	private Node balanceLeftAfterDeletion(Node node, Node left, Node right) {
+		int rank = node.rank;
+		if (left == null && right == null) {
+			if (rank != 0) { // a 2,2 leaf - demote it
+				this.rebalances++;
+			}
+			return new Node(node.key, node.info, 0, null, null);
+		}
+		if (rank - rank(left) <= 2) {
+			return new Node(node.key, node.info, rank, left, right);
+		}
+
+		// left is a 3-child. case 1: node is 3,2 - demote it
+		if (rank - rank(right) == 2) {
+			this.rebalances++;
+			return new Node(node.key, node.info, rank - 1, left, right);
+		}
+
+		// node is 3,1. case 2: right is 2,2 - demote both
+		int innerDiff = right.rank - rank(right.left);
+		int outerDiff = right.rank - rank(right.right);
+		if (innerDiff == 2 && outerDiff == 2) {
+			this.rebalances += 2;
+			Node demotedRight = new Node(right.key, right.info, right.rank - 1, right.left, right.right);
+			return new Node(node.key, node.info, rank - 1, left, demotedRight);
+		}
+
+		// case 3: the outer child of right is a 1-child - single rotation.
+		// node is demoted once, or twice if it becomes a leaf
+		if (outerDiff == 1) {
+			this.rebalances++;
+			int demotedRank = left == null && right.left == null ? 0 : rank - 1;
+			Node demoted = new Node(node.key, node.info, demotedRank, left, right.left);
+			return new Node(right.key, right.info, rank, demoted, right.right);
+		}
+
+		// case 4: double rotation around the inner child of right
+		this.rebalances += 2;
+		Node inner = right.left;
+		Node demoted = new Node(node.key, node.info, rank - 2, left, inner.left);
+		Node newRight = new Node(right.key, right.info, right.rank - 1, inner.right, right.right);
+		return new Node(inner.key, inner.info, rank, demoted, newRight);
+	}
+
+	/**
+	 * the mirror image of balanceLeftAfterDeletion
+	 */
+	private Node balanceRightAfterDeletion(Node node, Node left, Node right) {
+		int rank = node.rank;
+		if (left == null && right == null) {
+			if (rank != 0) {
+				this.rebalances++;
+			}
+			return new Node(node.key, node.info, 0, null, null);
+		}
+		if (rank - rank(right) <= 2) {
+			return new Node(node.key, node.info, rank, left, right);
+		}
+
+		if (rank - rank(left) == 2) {
+			this.rebalances++;
+			return new Node(node.key, node.info, rank - 1, left, right);
+		}
+
+		int innerDiff = left.rank - rank(left.right);
+		int outerDiff = left.rank - rank(left.left);
+		if (innerDiff == 2 && outerDiff == 2) {
+			this.rebalances += 2;
+			Node demotedLeft = new Node(left.key, left.info, left.rank - 1, left.left, left.right);
+			return new Node(node.key, node.info, rank - 1, demotedLeft, right);
+		}
+
+		if (outerDiff == 1) {
+			this.rebalances++;
+			int demotedRank = right == null && left.right == null ? 0 : rank - 1;
+			Node demoted = new Node(node.key, node.info, demotedRank, left.right, right);
+			return new Node(left.key, left.info, rank, left.left, demoted);
+		}
+
+		this.rebalances += 2;
+		Node inner = left.right;
+		Node demoted = new Node(node.key, node.info, rank - 2, inner.right, right);
+		Node newLeft = new Node(left.key, left.info, left.rank - 1, left.left, inner.left);
+		return new Node(inner.key, inner.info, rank, newLeft, demoted);
+	}
+
+	/**
+	 * an immutable view of one version of the tree
+	 */
+	public static final class Snapshot implements Iterable<Node> {
+		private final Node root;
+		private final int size;
+		private final Node min;
+		private final Node max;
+
+		private Snapshot(Node root, int size, Node min, Node max) {
+			this.root = root;
+			this.size = size;
+			this.min = min;
+			this.max = max;
+		}
+
+		public boolean empty() {
+			return this.size == 0;
+		}
+
+		public String search(int k) {
+			return PersistentWAVLTree.search(this.root, k);
+		}
+
+		public String min() {
+			return this.min == null ? null : this.min.info;
+		}
+
+		public String max() {
+			return this.max == null ? null : this.max.info;
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public Iterator<Node> iterator() {
+			return new NodeIterator(this.root);
+		}
+	}
+
+	/**
+	 * an in-order walk with an explicit stack of the nodes whose left
+	 * sub-trees are being visited. the depth of a node is at most the rank of
+	 * the root plus one, so the stack never grows.
+	 */
+	private static final class NodeIterator implements Iterator<Node> {
+		private final Node[] stack;
+		private int depth;
+
+		private NodeIterator(Node root) {
+			this.stack = new Node[rank(root) + 2];
+			this.depth = 0;
+			pushLeftPath(root);
+		}
+
+		private void pushLeftPath(Node node) {
+			while (node != null) {
+				this.stack[this.depth++] = node;
+				node = node.left;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.depth > 0;
+		}
+
+		@Override
+		public Node next() {
+			if (this.depth == 0) {
+				throw new NoSuchElementException();
+			}
+			Node node = this.stack[--this.depth];
+			this.stack[this.depth] = null;
+			pushLeftPath(node.right);
+			return node;
+		}
+	}
+
+	public static final class Node {
+		private final int key;
+		private final String info;
+		private final int rank;
+		private final Node left;
+		private final Node right;
+
+		private Node(int key, String info, int rank, Node left, Node right) {
+			this.key = key;
+			this.info = info;
+			this.rank = rank;
+			this.left = left;
+			this.right = right;
+		}
+
+		private Node withLeft(Node left) {
+			return new Node(this.key, this.info, this.rank, left, this.right);
+		}
+
+		private Node withRight(Node right) {
+			return new Node(this.key, this.info, this.rank, this.left, right);
+		}
+
+		public int getKey() {
+			return this.key;
+		}
+
+		public String getInfo() {
+			return this.info;
+		}
+
+		public int getRank() {
+			return this.rank;
+		}
+
+		public Node getLeft() {
+			return this.left;
+		}
+
+		public Node getRight() {
+			return this.right;
+		}
+	}
+}
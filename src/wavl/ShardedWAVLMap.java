@@ -0,0 +1,489 @@
+package wavl;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * ShardedWAVLMap
+ * <p>
+ * A thread-safe map of distinct integer keys to info, that partitions the key
+ * space into ranges. every range is a shard: a WAVLTree with a lock of its
+ * own, so writes to different shards never wait for each other. a small
+ * table of the lower bounds of the shards routes every key by a binary
+ * search.
+ * <p>
+ * a shard that grows too large, or takes too many writes, is split online
+ * at its median key into two shards. the old shard is retired, and any
+ * operation that locked it after the table changed routes the key again.
+ * <p>
+ * size is exact. min, max and iteration look at one shard after the other,
+ * so they are consistent within every shard, but not across shards, like the
+ * weakly consistent iterators of java.util.concurrent.
+ */
+
+public class ShardedWAVLMap implements IntKeyTree<String>, Iterable<Map.Entry<Integer, String>> {
+
+	private static final int DEFAULT_SHARDS = 16;
+	private static final int DEFAULT_MAX_SHARD_SIZE = 1 << 20;
+	private static final int DEFAULT_MAX_SHARD_WRITES = 1 << 20;
+	private static final int MAX_SHARDS = 1 << 10;
+
+	// the shards, and the lowest key of every shard. both arrays are replaced
+	// together, and never changed after they were published
+	private static final class Table {
+		private final int[] lowerBounds;
+		private final Shard[] shards;
+
+		private Table(int[] lowerBounds, Shard[] shards) {
+			this.lowerBounds = lowerBounds;
+			this.shards = shards;
+		}
+
+		/**
+		 * returns the index of the shard whose range holds key k
+		 */
+		private int route(int k) {
+			int i = Arrays.binarySearch(this.lowerBounds, k);
+			return i >= 0 ? i : -i - 2;
+		}
+
+		/**
+		 * returns the key after the range of a shard, which is one more than
+		 * the largest int for the last shard
+		 */
+		private long upperBound(int i) {
+			return i + 1 < this.lowerBounds.length ? this.lowerBounds[i + 1] : (long) Integer.MAX_VALUE + 1;
+		}
+	}
+
+	private static final class Shard {
+		private final WAVLTree tree;
+		private final StampedLock lock = new StampedLock();
+		private volatile boolean retired;
+		private int writes; // successful writes since the shard was created, guarded by the lock
+
+		// the last sorted snapshot of the tree, or null before the first one
+		private volatile WAVLTree.SortedSnapshot snapshot;
+
+		private Shard(WAVLTree tree) {
+			this.tree = tree;
+		}
+
+		/**
+		 * returns a sorted snapshot of the shard, or null if it was retired.
+		 * the published snapshot is returned without any lock while its
+		 * version is still the version of the tree, which is checked with an
+		 * optimistic read. otherwise a new one is taken under the read lock.
+		 * taking it updates the sorted caches inside the tree, so readers that
+		 * hold the read lock take turns on the shard to do it.
+		 */
+		private WAVLTree.SortedSnapshot snapshot() {
+			WAVLTree.SortedSnapshot snapshot = this.snapshot;
+			long stamp = this.lock.tryOptimisticRead();
+			if (snapshot != null && stamp != 0 && !this.retired && snapshot.getVersion() == this.tree.getVersion()
+					&& this.lock.validate(stamp)) {
+				return snapshot;
+			}
+
+			stamp = this.lock.readLock();
+			try {
+				if (this.retired) {
+					return null;
+				}
+				synchronized (this) {
+					snapshot = this.snapshot;
+					if (snapshot == null || snapshot.getVersion() != this.tree.getVersion()) {
+						snapshot = this.tree.sortedSnapshot();
+						this.snapshot = snapshot;
+					}
+					return snapshot;
+				}
+			} finally {
+				this.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	private volatile Table table;
+	private final Object splitLock = new Object();
+	private final LongAdder size = new LongAdder();
+	private final int maxShardSize;
+	private final int maxShardWrites;
+
+	public ShardedWAVLMap() {
+		this(DEFAULT_SHARDS, DEFAULT_MAX_SHARD_SIZE, DEFAULT_MAX_SHARD_WRITES);
+	}
+
+	/**
+	 * creates an empty map with the given number of shards, of equal ranges
+	 * over all int keys
+	 *
+	 * @param shards         - initial number of shards
+	 * @param maxShardSize   - a shard with more items than this is split
+	 * @param maxShardWrites - a shard that took more writes than this is split
+	 */
+	public ShardedWAVLMap(int shards, int maxShardSize, int maxShardWrites) {
+		if (shards < 1 || shards > MAX_SHARDS) {
+			throw new IllegalArgumentException("shards must be between 1 and " + MAX_SHARDS);
+		}
+		if (maxShardSize < 2 || maxShardWrites < 1) {
+			throw new IllegalArgumentException("shard limits are too small");
+		}
+		int[] lowerBounds = new int[shards];
+		Shard[] table = new Shard[shards];
+		long range = (1L << 32) / shards;
+		for (int i = 0; i < shards; i++) {
+			lowerBounds[i] = (int) (Integer.MIN_VALUE + range * i);
+			table[i] = new Shard(new WAVLTree());
+		}
+		this.table = new Table(lowerBounds, table);
+		this.maxShardSize = maxShardSize;
+		this.maxShardWrites = maxShardWrites;
+	}
+
+	/**
+	 * returns true if and only if the map is empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the map
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		while (true) {
+			Shard shard = shardOf(k);
+			long stamp = shard.lock.readLock();
+			try {
+				if (!shard.retired) {
+					return shard.tree.search(k);
+				}
+			} finally {
+				shard.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * inserts an item with key k and info i. returns the number of
+	 * rebalancing operations, or -1 if an item with key k already exists.
+	 */
+	public int insert(int k, String i) {
+		while (true) {
+			Shard shard = shardOf(k);
+			long stamp = shard.lock.writeLock();
+			try {
+				if (shard.retired) {
+					continue;
+				}
+				int res = shard.tree.insert(k, i);
+				if (res != -1) {
+					this.size.increment();
+					afterWrite(shard);
+				}
+				return res;
+			} finally {
+				shard.lock.unlockWrite(stamp);
+			}
+		}
+	}
+
+	/**
+	 * deletes an item with key k if it exists. returns the number of
+	 * rebalancing operations, or -1 if an item with key k was not found.
+	 */
+	public int delete(int k) {
+		while (true) {
+			Shard shard = shardOf(k);
+			long stamp = shard.lock.writeLock();
+			try {
+				if (shard.retired) {
+					continue;
+				}
+				int res = shard.tree.delete(k);
+				if (res != -1) {
+					this.size.decrement();
+					afterWrite(shard);
+				}
+				return res;
+			} finally {
+				shard.lock.unlockWrite(stamp);
+			}
+		}
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the map, or null
+	 * if the map is empty
+	 */
+	public String min() {
+		long from = Integer.MIN_VALUE;
+		while (from <= Integer.MAX_VALUE) {
+			Table table = this.table;
+			int i = table.route((int) from);
+			Shard shard = table.shards[i];
+			long stamp = shard.lock.readLock();
+			try {
+				if (shard.retired) {
+					continue;
+				}
+				if (!shard.tree.empty()) {
+					return shard.tree.min();
+				}
+				from = table.upperBound(i);
+			} finally {
+				shard.lock.unlockRead(stamp);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the map, or null if
+	 * the map is empty
+	 */
+	public String max() {
+		long to = Integer.MAX_VALUE;
+		while (to >= Integer.MIN_VALUE) {
+			Table table = this.table;
+			int i = table.route((int) to);
+			Shard shard = table.shards[i];
+			long stamp = shard.lock.readLock();
+			try {
+				if (shard.retired) {
+					continue;
+				}
+				if (!shard.tree.empty()) {
+					return shard.tree.max();
+				}
+				to = (long) table.lowerBounds[i] - 1;
+			} finally {
+				shard.lock.unlockRead(stamp);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of items in the map.
+	 */
+	public int size() {
+		return (int) this.size.sum();
+	}
+
+	/**
+	 * returns the current number of shards
+	 */
+	public int shardCount() {
+		return this.table.shards.length;
+	}
+
+	/**
+	 * returns an iterator over the items of the map in ascending order of
+	 * keys. every shard is read as one sorted snapshot when the iterator
+	 * reaches its range.
+	 */
+	@Override
+	public Iterator<Map.Entry<Integer, String>> iterator() {
+		return new EntryIterator();
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the map.
+	 */
+	public int[] keysToArray() {
+		EntryIterator shards = new EntryIterator();
+		int[] keys = new int[size()];
+		int n = 0;
+		while (shards.nextShard()) {
+			if (n + shards.keys.length > keys.length) {
+				keys = Arrays.copyOf(keys, n + shards.keys.length);
+			}
+			System.arraycopy(shards.keys, 0, keys, n, shards.keys.length);
+			n += shards.keys.length;
+		}
+		return n == keys.length ? keys : Arrays.copyOf(keys, n);
+	}
+
+	/**
+	 * Returns an array which contains all info in the map, sorted by their
+	 * respective keys.
+	 */
+	public String[] infoToArray() {
+		EntryIterator shards = new EntryIterator();
+		String[] infos = new String[size()];
+		int n = 0;
+		while (shards.nextShard()) {
+			if (n + shards.infos.length > infos.length) {
+				infos = Arrays.copyOf(infos, n + shards.infos.length);
+			}
+			System.arraycopy(shards.infos, 0, infos, n, shards.infos.length);
+			n += shards.infos.length;
+		}
+		return n == infos.length ? infos : Arrays.copyOf(infos, n);
+	}
+
+	/**
+	 * checks that every shard in the table is valid and holds only keys of
+	 * its own range, and that the sizes of the shards add up to the size of
+	 * the map, when no update is running. returns the number of items.
+	 *
+	 * @throws IllegalStateException if the map is not valid
+	 */
+	int checkInvariants() {
+		Table table = this.table;
+		if (table.lowerBounds[0] != Integer.MIN_VALUE) {
+			throw new IllegalStateException("the first shard starts at " + table.lowerBounds[0]);
+		}
+		int count = 0;
+		for (int i = 0; i < table.shards.length; i++) {
+			Shard shard = table.shards[i];
+			long stamp = shard.lock.writeLock();
+			try {
+				if (shard.retired) {
+					throw new IllegalStateException("shard " + i + " is retired but still in the table");
+				}
+				count += shard.tree.checkInvariants();
+				int[] keys = shard.tree.keysToArray();
+				if (keys.length > 0 && (keys[0] < table.lowerBounds[i] || keys[keys.length - 1] >= table.upperBound(i))) {
+					throw new IllegalStateException("shard " + i + " holds keys out of its range");
+				}
+			} finally {
+				shard.lock.unlockWrite(stamp);
+			}
+		}
+		if (count != size()) {
+			throw new IllegalStateException("shards have " + count + " items but size is " + size());
+		}
+		return count;
+	}
+
+	private Shard shardOf(int k) {
+		Table table = this.table;
+		return table.shards[table.route(k)];
+	}
+
+	/**
+	 * splits a shard that became too large or too hot. must be called while
+	 * holding the write lock of the shard.
+	 */
+	private void afterWrite(Shard shard) {
+		shard.writes++;
+		boolean tooLarge = shard.tree.size() > this.maxShardSize;
+		boolean tooHot = shard.writes > this.maxShardWrites && shard.tree.size() >= 2;
+		if ((tooLarge || tooHot) && this.table.shards.length < MAX_SHARDS) {
+			split(shard);
+		}
+	}
+
+	/**
+	 * splits a shard at its median key into two new shards and publishes a new
+	 * table with both of them. the old shard is retired, so operations that
+	 * locked it meanwhile route their key again. must be called while holding
+	 * the write lock of the shard.
+	 */
+	private void split(Shard shard) {
+		synchronized (this.splitLock) {
+			Table old = this.table;
+			if (old.shards.length >= MAX_SHARDS) {
+				return;
+			}
+			int index = 0;
+			while (old.shards[index] != shard) {
+				index++;
+			}
+
+			// WAVLTree.split drops the item with the median key, so it is put
+			// back into the upper half
+			WAVLTree tree = shard.tree;
+			int median = tree.select(tree.size() / 2);
+			String medianInfo = tree.search(median);
+			WAVLTree[] halves = tree.split(median);
+			halves[1].insert(median, medianInfo);
+
+			int n = old.shards.length;
+			int[] lowerBounds = new int[n + 1];
+			Shard[] shards = new Shard[n + 1];
+			System.arraycopy(old.lowerBounds, 0, lowerBounds, 0, index + 1);
+			System.arraycopy(old.shards, 0, shards, 0, index);
+			lowerBounds[index + 1] = median;
+			shards[index] = new Shard(halves[0]);
+			shards[index + 1] = new Shard(halves[1]);
+			System.arraycopy(old.lowerBounds, index + 1, lowerBounds, index + 2, n - index - 1);
+			System.arraycopy(old.shards, index + 1, shards, index + 2, n - index - 1);
+
+			this.table = new Table(lowerBounds, shards);
+			shard.retired = true;
+		}
+	}
+
+	/**
+	 * walks over the key ranges of the shards in ascending order. a shard is
+	 * looked up in the current table when the walk reaches its range, so
+	 * shards that were split meanwhile are replaced by their halves.
+	 */
+	private final class EntryIterator implements Iterator<Map.Entry<Integer, String>> {
+		private long from;
+		private int[] keys;
+		private String[] infos;
+		private int index;
+
+		private EntryIterator() {
+			this.from = Integer.MIN_VALUE;
+			this.keys = new int[0];
+			this.infos = new String[0];
+			this.index = 0;
+		}
+
+		/**
+		 * reads the sorted snapshot of the next shard, without blocking
+		 * writers unless the shard changed since its last snapshot. returns
+		 * false if there are no more shards.
+		 */
+		private boolean nextShard() {
+			while (this.from <= Integer.MAX_VALUE) {
+				Table table = ShardedWAVLMap.this.table;
+				int i = table.route((int) this.from);
+				WAVLTree.SortedSnapshot snapshot = table.shards[i].snapshot();
+				if (snapshot == null) { // the shard was split, route again
+					continue;
+				}
+				this.keys = snapshot.getKeys();
+				this.infos = snapshot.getInfos();
+				this.index = 0;
+				this.from = table.upperBound(i);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.index == this.keys.length) {
+				if (!nextShard()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Map.Entry<Integer, String> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<Integer, String> entry = new AbstractMap.SimpleImmutableEntry<>(this.keys[this.index],
+					this.infos[this.index]);
+			this.index++;
+			return entry;
+		}
+	}
+}
@@ -0,0 +1,451 @@
+package wavl;
+
+import java.util.Arrays;
+
+/**
+ *
+ * StackWAVLTree
+ * <p>
+ * A WAVL Tree with distinct integer keys and info, with the same operations
+ * and the same rebalancing as WAVLTree, but with nodes that have no parent
+ * pointer. insert and delete push the nodes on their search path to a stack
+ * that is kept by the tree and reused by every operation, and rebalancing
+ * walks back up that stack instead of following parent pointers.
+ * <p>
+ * a node is a key, an info, a rank and two children, so linking a child
+ * writes a single node, and rotations write half as many nodes as they do
+ * in WAVLTree.
+ */
+
+public class StackWAVLTree implements IntKeyTree<String> {
+
+	private static final int INITIAL_PATH_CAPACITY = 32;
+
+	private StackNode root;
+	private int size;
+
+	private StackNode min;
+	private StackNode max;
+
+	// the search path of the current operation. path[0] is the root
+	private StackNode[] path = new StackNode[INITIAL_PATH_CAPACITY];
+	private int depth;
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return this.root == null;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		StackNode node = this.root;
+		while (node != null && k != node.key) {
+			node = k < node.key ? node.leftChild : node.rightChild;
+		}
+		return node != null ? node.info : null;
+	}
+
+	/**
+	 * inserts an item with key k and info i to the WAVL tree. the tree must
+	 * remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were necessary. returns -1
+	 * if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		StackNode newNode = new StackNode(k, i);
+		if (this.root == null) { // if tree is empty, add as root
+			this.root = newNode;
+			this.min = newNode;
+			this.max = newNode;
+			this.size++;
+			return 0;
+		}
+
+		this.depth = 0;
+		StackNode node = this.root;
+		while (node != null) {
+			if (k == node.key) {
+				return -1;
+			}
+			push(node);
+			node = k < node.key ? node.leftChild : node.rightChild;
+		}
+
+		StackNode parent = this.path[this.depth - 1];
+		if (k < parent.key) {
+			parent.leftChild = newNode;
+		} else {
+			parent.rightChild = newNode;
+		}
+		if (k < this.min.key) {
+			this.min = newNode;
+		}
+		if (k > this.max.key) {
+			this.max = newNode;
+		}
+		this.size++;
+		return rebalanceAfterInsertion(newNode);
+	}
+
+	/**
+	 * rebalances the tree after an insertion, walking up the search path.
+	 * returns the amount of rebalancing operations needed. same cases as
+	 * WAVLTree.
+	 *
+	 * @param child - the node that was inserted
+	 */
+	private int rebalanceAfterInsertion(StackNode child) {
+		int counter = 0;
+
+		for (int i = this.depth - 1; i >= 0; i--) {
+			StackNode node = this.path[i];
+			if (node.rank != child.rank) { // child is not a 0-child, tree is balanced
+				return counter;
+			}
+
+			boolean left = node.leftChild == child;
+			StackNode sibling = left ? node.rightChild : node.leftChild;
+			if (node.rank - getRank(sibling) == 1) { // 0,1 - promotion
+				node.rank++;
+				counter++;
+				child = node;
+				continue;
+			}
+
+			// 0,2 - rotation required
+			StackNode parent = i > 0 ? this.path[i - 1] : null;
+			StackNode outer = left ? child.leftChild : child.rightChild;
+			if (child.rank - getRank(outer) == 1) {
+				rotate(parent, node, left);
+				node.rank--;
+				counter++;
+			} else {
+				StackNode inner = rotate(node, child, !left);
+				rotate(parent, node, left);
+				child.rank--;
+				node.rank--;
+				inner.rank++;
+				counter += 2;
+			}
+			return counter;
+		}
+
+		return counter;
+	}
+
+	/**
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * must remain valid (keep its invariants). returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		// we need to find the node to be deleted, and the path to it
+		this.depth = 0;
+		StackNode node = this.root;
+		while (node != null && k != node.key) {
+			push(node);
+			node = k < node.key ? node.leftChild : node.rightChild;
+		}
+		if (node == null) {
+			// the key is not in the tree
+			return -1;
+		}
+
+		StackNode parent = this.depth > 0 ? this.path[this.depth - 1] : null;
+		updateMinMaxOnDeletion(node, parent); // needs to be done before rebalancing
+		this.size--;
+
+		if (node.leftChild == null || node.rightChild == null) {
+			StackNode child = node.leftChild != null ? node.leftChild : node.rightChild;
+			boolean isLeftChild = parent != null && parent.leftChild == node;
+			replaceChild(parent, node, child);
+			return rebalanceAfterDeletion(child, isLeftChild);
+		}
+
+		// the node has two children. its successor takes its place, on the
+		// path as well, and the right child of the successor takes the place
+		// of the successor
+		int nodeIndex = this.depth;
+		push(node);
+		StackNode successor = node.rightChild;
+		while (successor.leftChild != null) {
+			push(successor);
+			successor = successor.leftChild;
+		}
+
+		StackNode successorParent = this.path[this.depth - 1];
+		boolean isLeftChild = successorParent != node;
+		if (isLeftChild) {
+			successorParent.leftChild = successor.rightChild;
+		} else {
+			node.rightChild = successor.rightChild;
+		}
+
+		successor.leftChild = node.leftChild;
+		successor.rightChild = node.rightChild;
+		successor.rank = node.rank;
+		replaceChild(parent, node, successor);
+		this.path[nodeIndex] = successor;
+		return rebalanceAfterDeletion(isLeftChild ? successorParent.leftChild : successor.rightChild, isLeftChild);
+	}
+
+	/**
+	 * rebalances the tree after a deletion, walking up the search path, whose
+	 * last node is the parent of the removed node. returns the amount of
+	 * rebalancing operations needed. same cases as WAVLTree.
+	 *
+	 * @param child - the node that took the place of the removed node, or null
+	 * @param left  - should be set to true if the removed node was a left child
+	 */
+	private int rebalanceAfterDeletion(StackNode child, boolean left) {
+		int i = this.depth - 1;
+		if (i < 0) { // the root was removed. tree is balanced
+			return 0;
+		}
+
+		int counter = 0;
+		StackNode node = this.path[i];
+
+		// we start by demoting a 2,2 leaf if we have one
+		if (node.rank == 1 && node.leftChild == null && node.rightChild == null) {
+			node.rank--;
+			counter++;
+			if (--i < 0) {
+				return counter;
+			}
+			child = node;
+			node = this.path[i];
+			left = node.leftChild == child;
+		}
+
+		while (node.rank - getRank(child) == 3) {
+			StackNode sibling = left ? node.rightChild : node.leftChild;
+
+			if (node.rank - sibling.rank == 2) { // 3,2 - single demote
+				node.rank--;
+				counter++;
+			} else { // 3,1
+				StackNode outer = left ? sibling.rightChild : sibling.leftChild;
+				StackNode inner = left ? sibling.leftChild : sibling.rightChild;
+				StackNode parent = i > 0 ? this.path[i - 1] : null;
+
+				// case 1: double demote
+				if (sibling.rank - getRank(outer) == 2 && sibling.rank - getRank(inner) == 2) {
+					node.rank--;
+					sibling.rank--;
+					counter += 2;
+
+					// case 2: rotation
+				} else if (sibling.rank - getRank(outer) == 1) {
+					rotate(parent, node, !left);
+					node.rank--;
+					sibling.rank++;
+					// after rotation we might have created a 2,2 leaf, check and fix
+					if (node.rank == 1 && node.leftChild == null && node.rightChild == null) {
+						node.rank--;
+					}
+					return counter + 1;
+
+					// case 3: double rotation
+				} else {
+					rotate(node, sibling, left);
+					rotate(parent, node, !left);
+					node.rank -= 2;
+					sibling.rank--;
+					inner.rank += 2;
+					return counter + 2;
+				}
+			}
+
+			// node was demoted, continue with its parent
+			if (--i < 0) {
+				return counter;
+			}
+			child = node;
+			node = this.path[i];
+			left = node.leftChild == child;
+		}
+
+		return counter;
+	}
+
+	/**
+	 * updates the minimum and the maximum in case one of them is about to be
+	 * removed from the tree. the minimum has no left child, so its successor
+	 * is its right child, which is a leaf, or its parent. same for the maximum.
+	 *
+	 * @param node   - the node to be removed
+	 * @param parent - the parent of node, or null if node is the root
+	 */
+	private void updateMinMaxOnDeletion(StackNode node, StackNode parent) {
+		if (node == this.min) {
+			this.min = node.rightChild != null ? node.rightChild : parent;
+		}
+		if (node == this.max) {
+			this.max = node.leftChild != null ? node.leftChild : parent;
+		}
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		return this.min != null ? this.min.info : null;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		return this.max != null ? this.max.info : null;
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] keys = new int[this.size];
+		fillArrays(this.root, keys, null, 0);
+		return keys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] infos = new String[this.size];
+		fillArrays(this.root, null, infos, 0);
+		return infos;
+	}
+
+	/**
+	 * fills the arrays, either of which may be null, from index i with the
+	 * sub-tree of node in order. returns the index after the last filled one
+	 */
+	private static int fillArrays(StackNode node, int[] keys, String[] infos, int i) {
+		while (node != null) {
+			i = fillArrays(node.leftChild, keys, infos, i);
+			if (keys != null) {
+				keys[i] = node.key;
+			}
+			if (infos != null) {
+				infos[i] = node.info;
+			}
+			i++;
+			node = node.rightChild;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the root WAVL node, or null if the tree is empty
+	 */
+	public StackNode getRoot() {
+		return this.root;
+	}
+
+	private void push(StackNode node) {
+		if (this.depth == this.path.length) {
+			this.path = Arrays.copyOf(this.path, this.depth * 2);
+		}
+		this.path[this.depth++] = node;
+	}
+
+	/**
+	 * returns the rank of a node or -1 if node is null (external node)
+	 */
+	private static int getRank(StackNode node) {
+		if (node == null) { // external leaf
+			return -1;
+		}
+		return node.rank;
+	}
+
+	/**
+	 * rotates a node, linking the rotated sub-tree under parent. ranks are
+	 * left to the caller. returns the child that took the place of node.
+	 *
+	 * @param parent - the parent of node, or null if node is the root
+	 * @param node   - node to be rotated
+	 * @param right  - should be set to true to rotate to the right, which
+	 *               lifts the left child of node
+	 */
+	private StackNode rotate(StackNode parent, StackNode node, boolean right) {
+		StackNode k;
+		if (right) {
+			k = node.leftChild;
+			node.leftChild = k.rightChild;
+			k.rightChild = node;
+		} else {
+			k = node.rightChild;
+			node.rightChild = k.leftChild;
+			k.leftChild = node;
+		}
+		replaceChild(parent, node, k);
+		return k;
+	}
+
+	/**
+	 * puts replacement in the place of child under parent, or as the root if
+	 * parent is null
+	 */
+	private void replaceChild(StackNode parent, StackNode child, StackNode replacement) {
+		if (parent == null) {
+			this.root = replacement;
+		} else if (parent.leftChild == child) {
+			parent.leftChild = replacement;
+		} else {
+			parent.rightChild = replacement;
+		}
+	}
+
+	public static final class StackNode {
+		private final int key;
+		private String info;
+		private int rank;
+		private StackNode leftChild;
+		private StackNode rightChild;
+
+		private StackNode(int key, String info) {
+			this.key = key;
+			this.info = info;
+		}
+
+		public int getKey() {
+			return this.key;
+		}
+
+		public String getInfo() {
+			return this.info;
+		}
+
+		public int getRank() {
+			return this.rank;
+		}
+
+		public StackNode getLeftChild() {
+			return this.leftChild;
+		}
+
+		public StackNode getRightChild() {
+			return this.rightChild;
+		}
+	}
+}
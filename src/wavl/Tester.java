@@ -1,3 +1,5 @@
+package wavl;
+
 import java.text.DecimalFormat;
 import java.util.*;
 
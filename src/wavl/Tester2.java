@@ -1,3 +1,5 @@
+package wavl;
+
 import java.util.*;
 
 public class Tester2 {
@@ -0,0 +1,483 @@
+package wavl;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * compares the other tree implementations with java.util.TreeMap. every
+ * tree gets the same random inserts, deletes and searches as a TreeMap, and
+ * the results, the content and the invariants of the tree are checked after
+ * every operation. trees that rebalance like WAVLTree must also report the
+ * same number of rebalancing operations as a WAVLTree.
+ */
+public class TreesTester {
+
+	private static final int ROUNDS = 300;
+	private static final int OPERATIONS = 2000;
+
+	private static Random rnd = new Random(2016);
+
+	/**
+	 * a LongWAVLTree that keeps the int keys in the upper half of a long, so
+	 * that they differ only beyond the range of int
+	 */
+	static final class LongKeys implements IntKeyTree<String> {
+		private final LongWAVLTree tree = new LongWAVLTree();
+
+		private static long toLong(int k) {
+			return ((long) k << 32) + 1;
+		}
+
+		public boolean empty() {
+			return this.tree.empty();
+		}
+
+		public String search(int k) {
+			return this.tree.search(toLong(k));
+		}
+
+		public int insert(int k, String i) {
+			return this.tree.insert(toLong(k), i);
+		}
+
+		public int delete(int k) {
+			return this.tree.delete(toLong(k));
+		}
+
+		public String min() {
+			return this.tree.min();
+		}
+
+		public String max() {
+			return this.tree.max();
+		}
+
+		public int[] keysToArray() {
+			return Arrays.stream(this.tree.keysToArray()).mapToInt(k -> (int) (k >> 32)).toArray();
+		}
+
+		public String[] infoToArray() {
+			return this.tree.infoToArray();
+		}
+
+		public int size() {
+			return this.tree.size();
+		}
+
+		void checkInvariants() {
+			this.tree.checkInvariants();
+		}
+	}
+
+	/**
+	 * a ComparatorWAVLTree with the int keys as strings, compared in numeric
+	 * order, which is not the natural order of strings
+	 */
+	static final class StringKeys implements IntKeyTree<String> {
+		private final ComparatorWAVLTree<String, String> tree = new ComparatorWAVLTree<>(
+				Comparator.comparingInt(Integer::parseInt));
+
+		public boolean empty() {
+			return this.tree.empty();
+		}
+
+		public String search(int k) {
+			return this.tree.search(String.valueOf(k));
+		}
+
+		public int insert(int k, String i) {
+			return this.tree.insert(String.valueOf(k), i);
+		}
+
+		public int delete(int k) {
+			return this.tree.delete(String.valueOf(k));
+		}
+
+		public String min() {
+			return this.tree.min();
+		}
+
+		public String max() {
+			return this.tree.max();
+		}
+
+		public int[] keysToArray() {
+			return Arrays.stream(this.tree.keysToArray()).mapToInt(k -> Integer.parseInt((String) k)).toArray();
+		}
+
+		public Object[] infoToArray() {
+			return this.tree.infoToArray();
+		}
+
+		public int size() {
+			return this.tree.size();
+		}
+
+		void checkInvariants() {
+			this.tree.checkInvariants();
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			System.out.println("Problem with " + message);
+			System.exit(1);
+		}
+	}
+
+	private static <T extends IntKeyTree<String>> void checkTree(T tree, Consumer<? super T> checkInvariants,
+			TreeMap<Integer, String> expected, String name) {
+		try {
+			checkInvariants.accept(tree);
+		} catch (IllegalStateException e) {
+			check(false, name + ": " + e.getMessage());
+		}
+		check(tree.size() == expected.size(), name + " size");
+		check(tree.empty() == expected.isEmpty(), name + " empty");
+		check(Objects.equals(tree.min(), expected.isEmpty() ? null : expected.firstEntry().getValue()), name + " min");
+		check(Objects.equals(tree.max(), expected.isEmpty() ? null : expected.lastEntry().getValue()), name + " max");
+	}
+
+	private static void checkContent(IntKeyTree<String> tree, TreeMap<Integer, String> expected, String name) {
+		int[] keys = expected.keySet().stream().mapToInt(k -> k).toArray();
+		check(Arrays.equals(tree.keysToArray(), keys), name + " keysToArray");
+		check(Arrays.equals(tree.infoToArray(), expected.values().toArray(new String[0])), name + " infoToArray");
+	}
+
+	/**
+	 * runs random operations on new trees and on TreeMaps, and at the end
+	 * deletes all keys in random order
+	 *
+	 * @param checkInvariants - checks the invariants of the tree, and throws
+	 *                        IllegalStateException if they do not hold
+	 * @param sameRebalancing - should be set to true if the tree must report
+	 *                        the same rebalancing operations as WAVLTree
+	 */
+	static <T extends IntKeyTree<String>> void runDifferential(String name, Supplier<T> factory,
+			Consumer<? super T> checkInvariants, boolean sameRebalancing) {
+		System.out.println("Comparing " + name + " with TreeMap");
+		for (int round = 0; round < ROUNDS; round++) {
+			int keyRange = 1 + rnd.nextInt(round % 10 == 0 ? 10 : 400);
+			T tree = factory.get();
+			WAVLTree reference = new WAVLTree();
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			try {
+				for (int i = 0; i < OPERATIONS; i++) {
+					int k = rnd.nextInt(keyRange) - keyRange / 2;
+					int op = rnd.nextInt(3);
+					if (op == 0) {
+						// infos of different lengths, some of them not ascii
+						String info = i % 5 == 0 ? i + "\u00e9\u4e2d" + i : String.valueOf(i);
+						int result = tree.insert(k, info);
+						int counter = reference.insert(k, info);
+						check((result == -1) == expected.containsKey(k), name + " insert " + k);
+						check(!sameRebalancing || result == counter, name + " rebalancing of insert " + k);
+						expected.putIfAbsent(k, info);
+					} else if (op == 1) {
+						int result = tree.delete(k);
+						int counter = reference.delete(k);
+						check((result == -1) == !expected.containsKey(k), name + " delete " + k);
+						check(!sameRebalancing || result == counter, name + " rebalancing of delete " + k);
+						expected.remove(k);
+					} else {
+						check(Objects.equals(tree.search(k), expected.get(k)), name + " search " + k);
+					}
+					checkTree(tree, checkInvariants, expected, name);
+					if (i % 100 == 0) {
+						checkContent(tree, expected, name);
+					}
+				}
+				checkContent(tree, expected, name);
+
+				List<Integer> keys = new ArrayList<>(expected.keySet());
+				Collections.shuffle(keys, rnd);
+				for (int k : keys) {
+					check(tree.delete(k) != -1, name + " delete of " + k + " while emptying");
+					expected.remove(k);
+					checkTree(tree, checkInvariants, expected, name);
+				}
+				check(tree.empty() && tree.keysToArray().length == 0, name + " empty after deleting all keys");
+			} finally {
+				if (tree instanceof AutoCloseable) {
+					close((AutoCloseable) tree);
+				}
+			}
+		}
+	}
+
+	private static void close(AutoCloseable tree) {
+		try {
+			tree.close();
+		} catch (Exception e) {
+			check(false, "close: " + e);
+		}
+	}
+
+	private static void testIntWAVLTree() {
+		// starts small, so the arrays grow
+		runDifferential("IntWAVLTree", () -> new IntWAVLTree(1), IntWAVLTree::checkInvariants, true);
+	}
+
+	private static void testOffHeapWAVLTree() {
+		runDifferential("OffHeapWAVLTree", OffHeapWAVLTree::new, OffHeapWAVLTree::checkInvariants, true);
+
+		// long infos that are deleted again, until the info chunks are compacted
+		char[] padding = new char[200];
+		Arrays.fill(padding, 'x');
+		try (OffHeapWAVLTree tree = new OffHeapWAVLTree()) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			for (int i = 0; i < 40000; i++) {
+				int k = rnd.nextInt(1000);
+				if (tree.delete(k) == -1) {
+					String info = new String(padding) + i;
+					tree.insert(k, info);
+					expected.put(k, info);
+				} else {
+					expected.remove(k);
+				}
+			}
+			tree.checkInvariants();
+			check(Arrays.equals(tree.keysToArray(), expected.keySet().stream().mapToInt(k -> k).toArray()),
+					"OffHeapWAVLTree keys after compaction");
+			check(Arrays.equals(tree.infoToArray(), expected.values().toArray(new String[0])),
+					"OffHeapWAVLTree infos after compaction");
+		}
+
+		// close must return the native memory of the chunks right away
+		if (OffHeapWAVLTree.freesOnClose()) {
+			OffHeapWAVLTree tree = new OffHeapWAVLTree();
+			for (int i = 0; i < 100000; i++) {
+				tree.insert(i, "info " + i);
+			}
+			long before = directMemoryUsed();
+			tree.close();
+			check(before - directMemoryUsed() >= 100000 * 32, "OffHeapWAVLTree close did not free the chunks");
+			tree.close();
+		}
+	}
+
+	/**
+	 * returns the number of bytes in direct buffers that were not freed yet
+	 */
+	private static long directMemoryUsed() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if (pool.getName().equals("direct")) {
+				return pool.getMemoryUsed();
+			}
+		}
+		return 0;
+	}
+
+	private static void testPersistentWAVLTree() {
+		runDifferential("PersistentWAVLTree", PersistentWAVLTree::new, PersistentWAVLTree::checkInvariants, true);
+
+		// snapshots must keep their content while the tree changes
+		for (int round = 0; round < 100; round++) {
+			PersistentWAVLTree tree = new PersistentWAVLTree();
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			List<PersistentWAVLTree.Snapshot> snapshots = new ArrayList<>();
+			List<TreeMap<Integer, String>> contents = new ArrayList<>();
+			int keyRange = 10 + rnd.nextInt(3000);
+			for (int i = 0; i < 4000; i++) {
+				int k = rnd.nextInt(keyRange);
+				if (rnd.nextInt(3) != 0) {
+					String info = rnd.nextInt(20) == 0 ? null : String.valueOf(i);
+					if (tree.insert(k, info) != -1) {
+						expected.put(k, info);
+					}
+				} else {
+					tree.delete(k);
+					expected.remove(k);
+				}
+				if (i % 97 == 0) {
+					snapshots.add(tree.snapshot());
+					contents.add(new TreeMap<>(expected));
+				}
+			}
+			tree.checkInvariants();
+			for (int i = 0; i < snapshots.size(); i++) {
+				PersistentWAVLTree.Snapshot snapshot = snapshots.get(i);
+				TreeMap<Integer, String> content = contents.get(i);
+				List<String> items = new ArrayList<>();
+				for (PersistentWAVLTree.Node node : snapshot) {
+					items.add(node.getKey() + "=" + node.getInfo());
+				}
+				List<String> expectedItems = new ArrayList<>();
+				content.forEach((k, info) -> expectedItems.add(k + "=" + info));
+				check(items.equals(expectedItems), "PersistentWAVLTree snapshot " + i);
+				check(snapshot.size() == content.size() && snapshot.empty() == content.isEmpty(),
+						"PersistentWAVLTree size of snapshot " + i);
+				check(Objects.equals(snapshot.min(), content.isEmpty() ? null : content.firstEntry().getValue())
+						&& Objects.equals(snapshot.max(), content.isEmpty() ? null : content.lastEntry().getValue()),
+						"PersistentWAVLTree min and max of snapshot " + i);
+				for (int j = 0; j < 20; j++) {
+					int k = rnd.nextInt(keyRange);
+					check(Objects.equals(snapshot.search(k), content.get(k)), "PersistentWAVLTree search of snapshot " + i);
+				}
+			}
+		}
+	}
+
+	private static void testConcurrentWAVLTree() {
+		runDifferential("ConcurrentWAVLTree", ConcurrentWAVLTree::new, ConcurrentWAVLTree::checkInvariants, true);
+	}
+
+	private static void testShardedWAVLMap() {
+		// small shards, so the map splits them often. the shards rebalance
+		// on their own, so the counts differ from those of a single tree
+		runDifferential("ShardedWAVLMap",
+				() -> new ShardedWAVLMap(1 + rnd.nextInt(4), 2 + rnd.nextInt(20), 1 + rnd.nextInt(100)),
+				ShardedWAVLMap::checkInvariants, false);
+	}
+
+	private static void testConcurrentRelaxedWAVLTree() {
+		// deletions do not rebalance, so the counts differ from those of WAVLTree
+		runDifferential("ConcurrentRelaxedWAVLTree", ConcurrentRelaxedWAVLTree::new,
+				ConcurrentRelaxedWAVLTree::checkInvariants, false);
+	}
+
+	private static void testLongWAVLTree() {
+		runDifferential("LongWAVLTree", LongKeys::new, LongKeys::checkInvariants, true);
+	}
+
+	private static void testGenericWAVLTree() {
+		runDifferential("GenericWAVLTree", GenericWAVLTree<String>::new, GenericWAVLTree::checkInvariants, true);
+	}
+
+	private static void testComparatorWAVLTree() {
+		runDifferential("ComparatorWAVLTree", StringKeys::new, StringKeys::checkInvariants, true);
+	}
+
+	private static void testCompactWAVLTree() {
+		// starts small, so the arrays grow
+		runDifferential("CompactWAVLTree", () -> new CompactWAVLTree(1), CompactWAVLTree::checkRanks, true);
+	}
+
+	private static int getRank(StackWAVLTree.StackNode node) {
+		if (node == null) { // external leaf
+			return -1;
+		}
+		return node.getRank();
+	}
+
+	/**
+	 * checks the rank rule and the order of the keys of a sub-tree of a
+	 * StackWAVLTree through its public nodes, which have no parent pointers.
+	 * returns the number of nodes.
+	 */
+	private static int checkStackNodes(StackWAVLTree.StackNode node, long lo, long hi) {
+		if (node == null) {
+			return 0;
+		}
+		if (node.getKey() <= lo || node.getKey() >= hi) {
+			throw new IllegalStateException("key " + node.getKey() + " is out of order");
+		}
+		int left = getRank(node) - getRank(node.getLeftChild());
+		int right = getRank(node) - getRank(node.getRightChild());
+		if (left < 1 || left > 2 || right < 1 || right > 2 || (left == 2 && right == 2 && getRank(node) == 1)) {
+			throw new IllegalStateException("node " + node.getKey() + " has rank differences " + left + "," + right);
+		}
+		return 1 + checkStackNodes(node.getLeftChild(), lo, node.getKey())
+				+ checkStackNodes(node.getRightChild(), node.getKey(), hi);
+	}
+
+	private static void checkStackWAVLTree(StackWAVLTree tree) {
+		int count = checkStackNodes(tree.getRoot(), Long.MIN_VALUE, Long.MAX_VALUE);
+		if (count != tree.size()) {
+			throw new IllegalStateException("tree has " + count + " nodes but size " + tree.size());
+		}
+	}
+
+	private static void testStackWAVLTree() {
+		runDifferential("StackWAVLTree", StackWAVLTree::new, TreesTester::checkStackWAVLTree, true);
+	}
+
+	private static void testFrozenWAVLTree() {
+		System.out.println("Comparing FrozenWAVLTree with TreeMap");
+		// every size up to 64 fills the levels of the layout in every way
+		for (int n = 0; n <= 64; n++) {
+			for (int variant = 0; variant < 4; variant++) {
+				TreeMap<Integer, String> expected = new TreeMap<>();
+				int k = variant == 0 ? Integer.MIN_VALUE : -100;
+				for (int i = 0; i < n; i++) {
+					expected.put(k, String.valueOf(k));
+					k += variant == 1 ? 1 : 1 + rnd.nextInt(3);
+				}
+				if (variant == 3 && n > 0) {
+					expected.remove(expected.lastKey());
+					expected.put(Integer.MAX_VALUE, String.valueOf(Integer.MAX_VALUE));
+				}
+				int[] keys = expected.keySet().stream().mapToInt(key -> key).toArray();
+				String[] infos = expected.values().toArray(new String[0]);
+				FrozenWAVLTree tree = variant % 2 == 0 ? WAVLTree.fromSorted(keys, infos).freeze() : randomFreeze(expected);
+				String name = "FrozenWAVLTree of " + n + " keys";
+
+				check(tree.size() == n && tree.empty() == (n == 0), name + " size");
+				check(Objects.equals(tree.min(), n == 0 ? null : expected.firstEntry().getValue()), name + " min");
+				check(Objects.equals(tree.max(), n == 0 ? null : expected.lastEntry().getValue()), name + " max");
+				check(Arrays.equals(tree.keysToArray(), keys), name + " keysToArray");
+				check(Arrays.equals(tree.infoToArray(), infos), name + " infoToArray");
+
+				List<Integer> queries = new ArrayList<>(Arrays.asList(Integer.MIN_VALUE, Integer.MAX_VALUE));
+				for (int q = -102; q <= k + 2; q++) {
+					queries.add(q);
+				}
+				for (int key : keys) {
+					queries.add(key - 1);
+					queries.add(key + 1);
+				}
+				for (int q : queries) {
+					check(Objects.equals(tree.search(q), expected.get(q)), name + " search(" + q + ")");
+					check(Objects.equals(tree.floorKey(q), expected.floorKey(q)), name + " floorKey(" + q + ")");
+					check(Objects.equals(tree.ceilingKey(q), expected.ceilingKey(q)), name + " ceilingKey(" + q + ")");
+				}
+				for (int i = 0; i < 200; i++) {
+					int lo = queries.get(rnd.nextInt(queries.size()));
+					int hi = queries.get(rnd.nextInt(queries.size()));
+					List<String> scanned = new ArrayList<>();
+					tree.scan(lo, hi, (key, info) -> scanned.add(key + "=" + info));
+					List<String> inRange = new ArrayList<>();
+					if (lo <= hi) {
+						expected.subMap(lo, true, hi, true).forEach((key, info) -> inRange.add(key + "=" + info));
+					}
+					check(scanned.equals(inRange), name + " scan(" + lo + ", " + hi + ")");
+				}
+			}
+		}
+	}
+
+	/**
+	 * freezes a WAVLTree that got the items of the map in random order, with
+	 * other keys inserted and deleted in between
+	 */
+	private static FrozenWAVLTree randomFreeze(TreeMap<Integer, String> expected) {
+		List<Integer> keys = new ArrayList<>(expected.keySet());
+		Collections.shuffle(keys, rnd);
+		WAVLTree tree = new WAVLTree();
+		for (int k : keys) {
+			tree.insert(k, expected.get(k));
+			tree.insert(k ^ 0x40000000, "");
+			tree.delete(k ^ 0x40000000);
+		}
+		return tree.freeze();
+	}
+
+	public static void main(String[] args) {
+		testIntWAVLTree();
+		testOffHeapWAVLTree();
+		testPersistentWAVLTree();
+		testConcurrentWAVLTree();
+		testShardedWAVLMap();
+		testConcurrentRelaxedWAVLTree();
+		testLongWAVLTree();
+		testGenericWAVLTree();
+		testComparatorWAVLTree();
+		testCompactWAVLTree();
+		testStackWAVLTree();
+		testFrozenWAVLTree();
+		System.out.println("done. all trees match TreeMap");
+	}
+}
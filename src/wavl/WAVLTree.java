@@ -0,0 +1,2053 @@
+package wavl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ *
+ * WAVLTree
+ * <p>
+ * An implementation of a WAVL Tree with distinct integer keys and info
+ */
+
+public class WAVLTree extends AbstractWAVLTree<WAVLTree.WAVLNode>
+		implements IntKeyTree<String>, Iterable<WAVLTree.WAVLNode> {
+
+	// insertAll and deleteAll rebuild the tree for batches of at least
+	// 1/BATCH_REBUILD_RATIO of its size. one by one from a finger, a batch of
+	// b keys costs O(b log(n / b)), and a rebuild costs O(n + b), but it also
+	// allocates every node again and drops all handles to the old nodes. on a
+	// tree of 10^6 random keys the rebuild took 0.7 of the time at a quarter,
+	// 0.8 at an eighth and broke even at a sixteenth, so the default of 4 only
+	// rebuilds where that clearly pays off. the system property
+	// wavl.batchRebuildRatio sets another ratio, and 1 rebuilds only for
+	// batches at least as large as the tree.
+	static final int BATCH_REBUILD_RATIO = Math.max(1, Integer.getInteger("wavl.batchRebuildRatio", 4));
+
+	// when more operations than this are pending, the sorted caches are dropped
+	private static final int MAX_PENDING_OPERATIONS = 1024;
+
+	// trees of this size or larger fill their sorted arrays in parallel, and
+	// sub-trees of the cutoff size or smaller are filled by a single task
+	private static final int PARALLEL_FILL_THRESHOLD = 1 << 17;
+	private static final int SEQUENTIAL_FILL_CUTOFF = 1 << 13;
+
+	// searchAll interleaves this many searches
+	private static final int SEARCH_LANES = 8;
+
+	// snapshot files start with "WAVL" and a format version
+	private static final int SNAPSHOT_MAGIC = 0x5741564C;
+	private static final int SNAPSHOT_VERSION = 1;
+
+	// load maps a snapshot file in windows of this many bytes
+	private static final int SNAPSHOT_WINDOW = 1 << 26;
+
+	private int[] sortedKeys;
+	private String[] sortedInfo;
+	private int modCount; // number of structural modifications, for fail-fast iterators
+	private int version; // number of all modifications, also of infos, for sorted snapshots
+
+	// in finger mode, the node touched by the last search, insert or delete,
+	// where the next one starts. always null when finger mode is off
+	private boolean fingerSearch;
+	private WAVLNode finger;
+
+	// insertions and deletions made since the sorted caches were filled. they
+	// are merged into new arrays on the next read, instead of refilling the
+	// arrays from the tree. deletions are recorded with a null info.
+	private int[] pendingKeys;
+	private String[] pendingInfos;
+	private boolean[] pendingDeletes;
+	private int pendingCount;
+
+	public WAVLTree() {
+		this.root = null;
+		this.size = 0;
+	}
+
+	/**
+	 * builds a tree from keys sorted in increasing order and their respective
+	 * infos in linear time, without any rebalancing. the tree is perfectly
+	 * balanced and the rank of every node is its height.
+	 *
+	 * @throws IllegalArgumentException if the keys are not strictly increasing
+	 *                                  or the arrays differ in length
+	 */
+	public static WAVLTree fromSorted(int[] keys, String[] infos) {
+		if (keys.length != infos.length) {
+			throw new IllegalArgumentException("got " + keys.length + " keys but " + infos.length + " infos");
+		}
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i]) {
+				throw new IllegalArgumentException("keys are not sorted or not distinct at index " + i);
+			}
+		}
+
+		WAVLTree tree = new WAVLTree();
+		tree.rebuild(keys.clone(), infos.clone());
+		return tree;
+	}
+
+	/**
+	 * replaces the content of the tree with a perfectly balanced tree of the
+	 * given sorted keys and infos. the arrays are kept as the sorted caches.
+	 */
+	private void rebuild(int[] keys, String[] infos) {
+		this.setRoot(buildBalanced(keys, infos, 0, keys.length - 1));
+		this.size = keys.length;
+		this.min = min(this.root);
+		this.max = max(this.root);
+		this.sortedKeys = keys;
+		this.sortedInfo = infos;
+		discardPendingOperations();
+		this.modCount++;
+		this.version++;
+		this.finger = null;
+	}
+
+	/**
+	 * builds a perfectly balanced sub-tree from a range of sorted keys and
+	 * returns its root, or null if the range is empty
+	 *
+	 * @param lo - index of the first key in the range
+	 * @param hi - index of the last key in the range
+	 */
+	private WAVLNode buildBalanced(int[] keys, String[] infos, int lo, int hi) {
+		if (lo > hi) {
+			return null;
+		}
+		int mid = (lo + hi) >>> 1;
+		WAVLNode node = new WAVLNode(keys[mid], infos[mid]);
+		setLeftChild(node, buildBalanced(keys, infos, lo, mid - 1));
+		setRightChild(node, buildBalanced(keys, infos, mid + 1, hi));
+		// the sizes of both sub-trees differ by at most one, and so do their
+		// heights. therefore the rank differences are 1 or 2, and leaves get 0
+		node.rank = Math.max(getRank(node.leftChild), getRank(node.rightChild)) + 1;
+		return node;
+	}
+
+	/**
+	 * returns the root of the tree.
+	 */
+	WAVLNode getRoot() {
+		return this.root;
+	}
+
+	/**
+	 * returns the number of structural modifications so far, for fail-fast
+	 * iterators outside of the tree
+	 */
+	int getModCount() {
+		return this.modCount;
+	}
+
+	/**
+	 * returns the number of all modifications so far, also of infos, which
+	 * is the version a sorted snapshot taken now would have
+	 */
+	int getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * checks the rank rules, the parent links, the sub-tree sizes and the
+	 * order of the keys. returns the number of nodes in the tree.
+	 *
+	 * @throws IllegalStateException if the tree is not valid
+	 */
+	int checkInvariants() {
+		int count = checkInvariants(this.root, null, Long.MIN_VALUE, Long.MAX_VALUE);
+		if (count != this.size) {
+			throw new IllegalStateException("tree has " + count + " nodes but size " + this.size);
+		}
+		return count;
+	}
+
+	private static int checkInvariants(WAVLNode node, WAVLNode parent, long lo, long hi) {
+		if (node == null) {
+			return 0;
+		}
+		if (node.key <= lo || node.key >= hi) {
+			throw new IllegalStateException("key " + node.key + " is out of order");
+		}
+		if (node.parent != parent) {
+			throw new IllegalStateException("node " + node.key + " has the wrong parent");
+		}
+		int left = node.rank - getRank(node.leftChild);
+		int right = node.rank - getRank(node.rightChild);
+		if (left < 1 || left > 2 || right < 1 || right > 2 || (left == 2 && right == 2 && node.rank == 1)) {
+			throw new IllegalStateException("node " + node.key + " has rank differences " + left + "," + right);
+		}
+		int count = 1 + checkInvariants(node.leftChild, node, lo, node.key)
+				+ checkInvariants(node.rightChild, node, node.key, hi);
+		if (node.subtreeSize != count) {
+			throw new IllegalStateException("node " + node.key + " has sub-tree size " + node.subtreeSize
+					+ " instead of " + count);
+		}
+		return count;
+	}
+
+	/**
+	 * sets a new root and sets its parent to null
+	 *
+	 * @param root - new root of tree
+	 */
+	private void setRoot(WAVLNode root) {
+		this.root = root;
+		if (this.root != null) {
+			this.root.parent = null;
+		}
+	}
+
+	/**
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size == 0;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		WAVLNode node;
+		if (this.fingerSearch) {
+			node = searchFrom(this.finger, k);
+			this.finger = node;
+			if (node != null && node.key != k) {
+				node = null;
+			}
+		} else {
+			node = search(k, this.root);
+		}
+		if (node == null) {
+			return null;
+		}
+
+		return node.info;
+	}
+
+	/**
+	 * turns finger mode on or off. in finger mode the tree remembers the node
+	 * touched by the last search, insert or delete, and the next one starts
+	 * from there: it climbs through the parents until the key is between the
+	 * keys of the ancestors, and then goes down as usual. keys that are close
+	 * to the previous one are found without going through the root, and a
+	 * key far away costs at most one climb more than a search from the root.
+	 * finger mode is off by default.
+	 */
+	public void setFingerSearch(boolean enabled) {
+		this.fingerSearch = enabled;
+		this.finger = null;
+	}
+
+	/**
+	 * returns true if the tree is in finger mode
+	 */
+	public boolean isFingerSearch() {
+		return this.fingerSearch;
+	}
+
+	/**
+	 * searches all the given keys, and puts the info of the item with key
+	 * keys[i] in out[i], or null if there is none.
+	 * <p>
+	 * the keys are split into SEARCH_LANES parts, and one search of every part
+	 * goes down the tree at a time, one level after the other, so the cache
+	 * misses of different searches overlap instead of waiting for each other.
+	 * when the keys are sorted, every search in a part starts from the node
+	 * the previous one ended at, like insertAll, so the common part of their
+	 * paths is not walked again.
+	 *
+	 * @throws IllegalArgumentException if out is shorter than keys
+	 */
+	public void searchAll(int[] keys, String[] out) {
+		if (out.length < keys.length) {
+			throw new IllegalArgumentException("got " + keys.length + " keys but room for " + out.length + " infos");
+		}
+		if (this.root == null) {
+			Arrays.fill(out, 0, keys.length, null);
+			return;
+		}
+
+		boolean sorted = isSorted(keys);
+		int lanes = Math.min(SEARCH_LANES, keys.length);
+		WAVLNode[] nodes = new WAVLNode[lanes]; // null once a lane is done
+		int[] positions = new int[lanes]; // the index in keys of the search in a lane
+		int[] ends = new int[lanes];
+		for (int j = 0; j < lanes; j++) {
+			nodes[j] = this.root;
+			positions[j] = (int) ((long) keys.length * j / lanes);
+			ends[j] = (int) ((long) keys.length * (j + 1) / lanes);
+		}
+
+		int active = lanes;
+		while (active > 0) {
+			for (int j = 0; j < lanes; j++) {
+				WAVLNode node = nodes[j];
+				if (node == null) {
+					continue;
+				}
+				int i = positions[j];
+				int k = keys[i];
+				if (node.key != k) {
+					WAVLNode next = k > node.key ? node.rightChild : node.leftChild;
+					if (next != null) { // one level down
+						nodes[j] = next;
+						continue;
+					}
+					out[i] = null;
+				} else {
+					out[i] = node.info;
+				}
+
+				// the search in this lane ended, start the next one
+				if (++positions[j] < ends[j]) {
+					nodes[j] = sorted ? climb(node, keys[positions[j]]) : this.root;
+				} else {
+					nodes[j] = null;
+					active--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * returns true if the keys are in non-decreasing order
+	 */
+	private static boolean isSorted(int[] keys) {
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] > keys[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * returns the info of an item with key k if it exists in the sub-tree
+	 * otherwise, returns null
+	 *
+	 * @param k    - key of node in the tree
+	 * @param node - root of a sub-tree
+	 */
+	private WAVLNode search(int k, WAVLNode node) {
+		while (true) {
+			if (node == null) {
+				return null;
+			} else if (node.key == k) {
+				return node;
+			} else if (k > node.key) {
+				node = node.rightChild;
+			} else {
+				node = node.leftChild;
+			}
+		}
+	}
+
+	/**
+	 * inserts an item with key k and info i to the WAVL tree. the tree must
+	 * remain valid (keep its invariants). returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were necessary. returns -1
+	 * if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		WAVLNode parent = searchFrom(this.finger, k);
+		if (parent != null && parent.key == k) { // node with key k already exists
+			if (this.fingerSearch) {
+				this.finger = parent;
+			}
+			return -1;
+		}
+
+		WAVLNode newNode = new WAVLNode(k, i);
+		if (this.fingerSearch) {
+			this.finger = newNode;
+		}
+		return insertUnder(parent, newNode);
+	}
+
+	/**
+	 * replaces the info of the item with key k, if it exists in the tree.
+	 * returns the old info, or null if there is no item with key k. this is
+	 * not a structural modification, so iterators stay valid.
+	 */
+	public String replace(int k, String i) {
+		WAVLNode node = search(k, this.root);
+		if (node == null) {
+			return null;
+		}
+		String old = node.info;
+		node.info = i;
+		recordPendingOperation(k, i, false);
+		this.version++;
+		return old;
+	}
+
+	/**
+	 * returns a NavigableMap view of the tree. changes to the map are made to
+	 * the tree and the other way around.
+	 */
+	public WAVLTreeMap asMap() {
+		return new WAVLTreeMap(this);
+	}
+
+	/**
+	 * inserts all items of the given arrays, skipping keys that already exist
+	 * in the tree or appear earlier in the batch. returns the total number of
+	 * rebalancing operations, which is 0 if the tree was rebuilt, if nothing
+	 * needed rebalancing or if nothing was inserted.
+	 * <p>
+	 * the batch is sorted first, so every insertion starts its search from the
+	 * node inserted just before it instead of from the root. a batch of at
+	 * least 1/BATCH_REBUILD_RATIO of the size of the tree is merged with the
+	 * sorted content of the tree instead, and the tree is rebuilt in linear
+	 * time, with no rebalancing at all. the rebuilt tree has all new nodes:
+	 * WAVLNode handles from before, such as those of iterators and lookups
+	 * like floorEntry, are no longer in the tree, Cursors have to seek again
+	 * and the finger starts from the root. the insertions one by one keep all
+	 * existing nodes in the tree.
+	 *
+	 * @throws IllegalArgumentException if the arrays differ in length
+	 */
+	public int insertAll(int[] keys, String[] infos) {
+		if (keys.length != infos.length) {
+			throw new IllegalArgumentException("got " + keys.length + " keys but " + infos.length + " infos");
+		}
+		if (keys.length == 0) {
+			return 0;
+		}
+
+		// sort by key and then by position, so the first of equal keys comes first
+		long[] order = new long[keys.length];
+		for (int j = 0; j < keys.length; j++) {
+			order[j] = ((long) keys[j] << 32) | j;
+		}
+		Arrays.sort(order);
+
+		if ((long) keys.length * BATCH_REBUILD_RATIO >= this.size) {
+			mergeAndRebuild(order, infos);
+			return 0;
+		}
+
+		int counter = 0;
+		WAVLNode finger = null;
+		for (int j = 0; j < order.length; j++) {
+			int k = (int) (order[j] >> 32);
+			WAVLNode parent = searchFrom(finger, k);
+			if (parent != null && parent.key == k) { // already in the tree, or a duplicate in the batch
+				finger = parent;
+				continue;
+			}
+			finger = new WAVLNode(k, infos[(int) order[j]]);
+			counter += insertUnder(parent, finger);
+		}
+		return counter;
+	}
+
+	/**
+	 * joins two trees and an item that goes between them into one tree, in
+	 * time proportional to the difference of the ranks of the two trees. all
+	 * keys of left must be smaller than k, and all keys of right must be
+	 * larger than k. the nodes of both trees are moved to the new tree, and
+	 * left and right are left empty.
+	 *
+	 * @throws IllegalArgumentException if the keys are not in order
+	 */
+	public static WAVLTree join(WAVLTree left, int k, String info, WAVLTree right) {
+		if ((left.max != null && left.max.key >= k) || (right.min != null && right.min.key <= k)) {
+			throw new IllegalArgumentException("keys of left must be smaller than " + k
+					+ " and keys of right must be larger");
+		}
+
+		WAVLTree tree = new WAVLTree();
+		WAVLNode node = new WAVLNode(k, info);
+		tree.join(left.root, node, right.root);
+		tree.size = left.size + right.size + 1;
+		tree.min = left.min != null ? left.min : node;
+		tree.max = right.max != null ? right.max : node;
+
+		left.clear();
+		right.clear();
+		return tree;
+	}
+
+	/**
+	 * splits the tree by key k in logarithmic time. returns two trees, the
+	 * first with all items whose keys are smaller than k, and the second with
+	 * all items whose keys are larger than k. the item with key k, if there is
+	 * one, is in neither of them. all nodes are moved to the new trees, and
+	 * this tree is left empty.
+	 */
+	public WAVLTree[] split(int k) {
+		WAVLTree less = new WAVLTree();
+		WAVLTree greater = new WAVLTree();
+		split(this.root, k, less, greater);
+		less.size = subtreeSize(less.root);
+		greater.size = subtreeSize(greater.root);
+		less.min = less.root != null ? this.min : null;
+		less.max = max(less.root);
+		greater.min = min(greater.root);
+		greater.max = greater.root != null ? this.max : null;
+
+		this.clear();
+		return new WAVLTree[] { less, greater };
+	}
+
+	/**
+	 * splits a sub-tree by key k into the given trees. every node on the
+	 * search path is joined back with the sub-tree on its other side.
+	 *
+	 * @param node    - root of the sub-tree to be split
+	 * @param less    - gets the nodes with keys smaller than k
+	 * @param greater - gets the nodes with keys larger than k
+	 */
+	private void split(WAVLNode node, int k, WAVLTree less, WAVLTree greater) {
+		if (node == null) {
+			less.setRoot(null);
+			greater.setRoot(null);
+			return;
+		}
+
+		WAVLNode leftChild = node.leftChild;
+		WAVLNode rightChild = node.rightChild;
+		if (k == node.key) {
+			less.setRoot(leftChild);
+			greater.setRoot(rightChild);
+		} else if (k < node.key) {
+			split(leftChild, k, less, greater);
+			greater.join(greater.root, node, rightChild);
+		} else {
+			split(rightChild, k, less, greater);
+			less.join(leftChild, node, less.root);
+		}
+	}
+
+	/**
+	 * joins two sub-trees and a node between them, and makes the result the
+	 * root of this tree. the node is hung on the spine of the higher sub-tree
+	 * where the ranks meet, and from there it is rebalanced like an insertion.
+	 *
+	 * @param l - root of the sub-tree with the smaller keys, or null
+	 * @param x - node with a key between the keys of both sub-trees
+	 * @param r - root of the sub-tree with the larger keys, or null
+	 */
+	private void join(WAVLNode l, WAVLNode x, WAVLNode r) {
+		int rankLeft = getRank(l);
+		int rankRight = getRank(r);
+
+		// case 1: ranks are close enough, x becomes the root
+		if (Math.abs(rankLeft - rankRight) <= 1) {
+			setLeftChild(x, l);
+			setRightChild(x, r);
+			x.rank = Math.max(rankLeft, rankRight) + 1;
+			this.setRoot(x);
+			return;
+		}
+
+		// case 2: go down the right spine of l to a node c with rank of r or
+		// one more, and put x in its place with c and r as children.
+		// case 3 is symmetrical, down the left spine of r
+		WAVLNode parent = null;
+		WAVLNode c;
+		if (rankLeft > rankRight) {
+			this.setRoot(l);
+			c = l;
+			while (getRank(c) > rankRight + 1) {
+				parent = c;
+				c = c.rightChild;
+			}
+			setLeftChild(x, c);
+			setRightChild(x, r);
+			setRightChild(parent, x);
+		} else {
+			this.setRoot(r);
+			c = r;
+			while (getRank(c) > rankLeft + 1) {
+				parent = c;
+				c = c.leftChild;
+			}
+			setRightChild(x, c);
+			setLeftChild(x, l);
+			setLeftChild(parent, x);
+		}
+
+		// x is now a 1,1 node, or a 1,2 node whose 1-child is c. if x is 1,1,
+		// the parent has rank x + 1 and nothing is violated. otherwise x might
+		// be a 0-child, just as if it had been promoted during an insertion.
+		x.rank = getRank(c) + 1;
+		updateSubtreeSizes(parent);
+		if (parent.rank == x.rank) {
+			rebalanceAbove(x);
+		}
+	}
+
+	/**
+	 * removes all items from the tree
+	 */
+	public void clear() {
+		this.setRoot(null);
+		this.size = 0;
+		this.min = null;
+		this.max = null;
+		this.finger = null;
+		this.sortedKeys = null;
+		this.sortedInfo = null;
+		discardPendingOperations();
+		this.modCount++;
+		this.version++;
+	}
+
+	/**
+	 * merges a sorted batch into the sorted content of the tree and rebuilds
+	 * the tree from the result. keys that are already in the tree keep their
+	 * info, and of equal keys in the batch only the first one is used.
+	 *
+	 * @param order - keys of the batch in the high half and their index in the
+	 *              low half, sorted
+	 */
+	private void mergeAndRebuild(long[] order, String[] batchInfos) {
+		int[] oldKeys = keysToArray();
+		String[] oldInfo = infoToArray();
+		int[] keys = new int[oldKeys.length + order.length];
+		String[] infos = new String[keys.length];
+		int i = 0;
+		int n = 0;
+		for (long entry : order) {
+			int k = (int) (entry >> 32);
+			while (i < oldKeys.length && oldKeys[i] < k) {
+				keys[n] = oldKeys[i];
+				infos[n++] = oldInfo[i++];
+			}
+			if ((i < oldKeys.length && oldKeys[i] == k) || (n > 0 && keys[n - 1] == k)) {
+				continue;
+			}
+			keys[n] = k;
+			infos[n++] = batchInfos[(int) entry];
+		}
+		while (i < oldKeys.length) {
+			keys[n] = oldKeys[i];
+			infos[n++] = oldInfo[i++];
+		}
+
+		rebuild(Arrays.copyOf(keys, n), Arrays.copyOf(infos, n));
+	}
+
+	/**
+	 * removes a sorted batch of keys from the sorted content of the tree and
+	 * rebuilds the tree from the remaining keys
+	 */
+	private void removeAndRebuild(int[] sorted) {
+		int[] oldKeys = keysToArray();
+		String[] oldInfo = infoToArray();
+		int[] keys = new int[oldKeys.length];
+		String[] infos = new String[oldKeys.length];
+		int j = 0;
+		int n = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			while (j < sorted.length && sorted[j] < oldKeys[i]) {
+				j++;
+			}
+			if (j < sorted.length && sorted[j] == oldKeys[i]) {
+				continue;
+			}
+			keys[n] = oldKeys[i];
+			infos[n++] = oldInfo[i];
+		}
+
+		rebuild(Arrays.copyOf(keys, n), Arrays.copyOf(infos, n));
+	}
+
+	/**
+	 * connects a new node as a child of the node found by searchFrom, or as
+	 * the root if the tree is empty, and rebalances the tree. returns the
+	 * number of rebalancing operations.
+	 *
+	 * @param parent  - the last node on the search path of the new key
+	 * @param newNode - the node to be inserted
+	 */
+	private int insertUnder(WAVLNode parent, WAVLNode newNode) {
+		recordPendingOperation(newNode.key, newNode.info, false);
+		this.modCount++;
+		this.version++;
+		return insertUnder(parent, newNode, parent != null && newNode.key < parent.key);
+	}
+
+	/**
+	 * searches for key k starting from a node that is already in the tree
+	 * instead of from the root. first it climbs from the finger until it
+	 * reaches a sub-tree that must contain k, then it goes down as usual.
+	 * returns the node with key k, or the last node on the search path if k is
+	 * not in the tree, or null if the tree is empty.
+	 *
+	 * @param finger - a node of the tree, or null to start from the root
+	 * @param k      - key to be searched
+	 */
+	private WAVLNode searchFrom(WAVLNode finger, int k) {
+		WAVLNode node = finger != null ? climb(finger, k) : this.root;
+		if (node == null) {
+			return null;
+		}
+
+		while (true) {
+			WAVLNode next;
+			if (node.key == k) {
+				return node;
+			} else if (k > node.key) {
+				next = node.rightChild;
+			} else {
+				next = node.leftChild;
+			}
+			if (next == null) {
+				return node;
+			}
+			node = next;
+		}
+	}
+
+	/**
+	 * returns the lowest ancestor of node, or node itself, whose sub-tree is
+	 * the one to search for k, given that k is not in the sub-trees that were
+	 * left on the way up.
+	 */
+	private static WAVLNode climb(WAVLNode node, int k) {
+		// while climbing, the key of node stays on the same side of k. once the
+		// parent is on the other side, k is between the parent and the
+		// ancestors below which node already was.
+		if (k >= node.key) {
+			while (node.parent != null && node.parent.key <= k) {
+				node = node.parent;
+			}
+		} else {
+			while (node.parent != null && node.parent.key >= k) {
+				node = node.parent;
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * deletes an item with key k from the binary tree, if it is there; the tree
+	 * must remain valid (keep its invariants). returns the number of
+	 * rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		// we need to find the node to be deleted
+		WAVLNode node;
+		if (this.fingerSearch) {
+			node = searchFrom(this.finger, k);
+			if (node != null && node.key != k) {
+				this.finger = node;
+				node = null;
+			}
+		} else {
+			node = search(k, this.root);
+		}
+		if (node == null) {
+			// the key is not in the tree
+			return -1;
+		}
+
+		return delete(node);
+	}
+
+	/**
+	 * deletes all items with the given keys from the tree, ignoring keys that
+	 * are not in it. returns the total number of rebalancing operations, which
+	 * is 0 if the tree was rebuilt, if nothing needed rebalancing or if nothing
+	 * was deleted.
+	 * <p>
+	 * like insertAll, the keys are sorted and every search starts from the
+	 * successor of the previously deleted node, and a batch of at least
+	 * 1/BATCH_REBUILD_RATIO of the size of the tree rebuilds it from the
+	 * remaining keys instead. as with insertAll, a rebuild replaces all nodes,
+	 * so WAVLNode handles, Cursors and the finger from before are no longer
+	 * valid, while the deletions one by one only remove the deleted nodes.
+	 */
+	public int deleteAll(int[] keys) {
+		if (keys.length == 0 || this.root == null) {
+			return 0;
+		}
+
+		int[] sorted = keys.clone();
+		Arrays.sort(sorted);
+
+		if ((long) sorted.length * BATCH_REBUILD_RATIO >= this.size) {
+			removeAndRebuild(sorted);
+			return 0;
+		}
+
+		int counter = 0;
+		WAVLNode finger = null;
+		for (int k : sorted) {
+			WAVLNode node = searchFrom(finger, k);
+			if (node == null || node.key != k) { // not in the tree, or already deleted
+				finger = node;
+				continue;
+			}
+
+			// the successor stays in the tree, even when it takes the place of node
+			finger = successor(node);
+			counter += delete(node);
+		}
+		return counter;
+	}
+
+	/**
+	 * deletes a node from the tree; returns the number of rebalancing
+	 * operations, or 0 if no rebalancing operations were needed.
+	 *
+	 * @param node - the node to be deleted
+	 */
+	private int delete(WAVLNode node) {
+		// rotations only move nodes around, so any node that is still in the
+		// tree is a valid finger. the deleted node is not, so the finger moves
+		// to a node next to it
+		if (this.fingerSearch) {
+			this.finger = near(node);
+		}
+
+		int res = deleteNode(node);
+		recordPendingOperation(node.key, null, true);
+		this.modCount++;
+		this.version++;
+		return res;
+	}
+
+	/**
+	 * returns a node next to a node that is about to be deleted, which stays
+	 * in the tree: the child that takes its place, or the parent of a leaf.
+	 * a node with two children is replaced by its successor, so that is the
+	 * parent of the successor, or the successor itself if it is the right
+	 * child.
+	 */
+	private WAVLNode near(WAVLNode node) {
+		if (node.leftChild == null || node.rightChild == null) {
+			WAVLNode child = node.leftChild != null ? node.leftChild : node.rightChild;
+			return child != null ? child : node.parent;
+		}
+		WAVLNode successor = min(node.rightChild);
+		return successor.parent != node ? successor.parent : successor;
+	}
+
+	/**
+	 * Returns the info of the item with the smallest key in the tree, or null
+	 * if the tree is empty
+	 */
+	public String min() {
+		if (this.min == null) {
+			return null;
+		}
+
+		return this.min.info;
+	}
+
+	/**
+	 * finds the minimal node in a sub-tree
+	 *
+	 * @param node - root of sub-tree
+	 */
+	private WAVLNode min(WAVLNode node) {
+		if (node == null) {
+			return null;
+		}
+		while (node.leftChild != null) {
+			node = node.leftChild;
+		}
+		return node;
+	}
+
+	/**
+	 * returns the node with the next larger key, or null if there is none. it
+	 * goes down to the right sub-tree or up through the parents, so walking
+	 * over m nodes costs O(m + log n), amortized O(1) per step.
+	 *
+	 * @param node - a node in this tree
+	 */
+	public WAVLNode successor(WAVLNode node) {
+		if (node.rightChild != null) {
+			return min(node.rightChild);
+		}
+		while (node.parent != null && node.parent.rightChild == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * returns the node with the next smaller key, or null if there is none.
+	 * same cost as successor.
+	 *
+	 * @param node - a node in this tree
+	 */
+	public WAVLNode predecessor(WAVLNode node) {
+		if (node.leftChild != null) {
+			return max(node.leftChild);
+		}
+		while (node.parent != null && node.parent.leftChild == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * returns the node with the smallest key that is greater than or equal to
+	 * k, or null if there is none
+	 */
+	private WAVLNode ceiling(int k) {
+		WAVLNode node = this.root;
+		WAVLNode candidate = null;
+		while (node != null) {
+			if (k == node.key) {
+				return node;
+			} else if (k < node.key) {
+				candidate = node;
+				node = node.leftChild;
+			} else {
+				node = node.rightChild;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * returns the node with the largest key that is smaller than or equal to
+	 * k, or null if there is none
+	 */
+	private WAVLNode floor(int k) {
+		WAVLNode node = this.root;
+		WAVLNode candidate = null;
+		while (node != null) {
+			if (k == node.key) {
+				return node;
+			} else if (k > node.key) {
+				candidate = node;
+				node = node.rightChild;
+			} else {
+				node = node.leftChild;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * returns the node with the smallest key that is strictly greater than k,
+	 * or null if there is none
+	 */
+	private WAVLNode higher(int k) {
+		WAVLNode node = this.root;
+		WAVLNode candidate = null;
+		while (node != null) {
+			if (k < node.key) {
+				candidate = node;
+				node = node.leftChild;
+			} else {
+				node = node.rightChild;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * returns the node with the largest key that is strictly smaller than k,
+	 * or null if there is none
+	 */
+	private WAVLNode lower(int k) {
+		WAVLNode node = this.root;
+		WAVLNode candidate = null;
+		while (node != null) {
+			if (k > node.key) {
+				candidate = node;
+				node = node.rightChild;
+			} else {
+				node = node.leftChild;
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * returns the largest key that is smaller than or equal to k, or null if
+	 * there is none
+	 */
+	public Integer floorKey(int k) {
+		return keyOf(floor(k));
+	}
+
+	/**
+	 * returns the smallest key that is greater than or equal to k, or null if
+	 * there is none
+	 */
+	public Integer ceilingKey(int k) {
+		return keyOf(ceiling(k));
+	}
+
+	/**
+	 * returns the smallest key that is strictly greater than k, or null if
+	 * there is none
+	 */
+	public Integer higherKey(int k) {
+		return keyOf(higher(k));
+	}
+
+	/**
+	 * returns the largest key that is strictly smaller than k, or null if
+	 * there is none
+	 */
+	public Integer lowerKey(int k) {
+		return keyOf(lower(k));
+	}
+
+	/**
+	 * returns the largest key that is smaller than or equal to k, or
+	 * defaultKey if there is none. unlike floorKey, it does not box the key.
+	 */
+	public int floorKeyOrDefault(int k, int defaultKey) {
+		return keyOf(floor(k), defaultKey);
+	}
+
+	/**
+	 * returns the smallest key that is greater than or equal to k, or
+	 * defaultKey if there is none
+	 */
+	public int ceilingKeyOrDefault(int k, int defaultKey) {
+		return keyOf(ceiling(k), defaultKey);
+	}
+
+	/**
+	 * returns the smallest key that is strictly greater than k, or defaultKey
+	 * if there is none
+	 */
+	public int higherKeyOrDefault(int k, int defaultKey) {
+		return keyOf(higher(k), defaultKey);
+	}
+
+	/**
+	 * returns the largest key that is strictly smaller than k, or defaultKey
+	 * if there is none
+	 */
+	public int lowerKeyOrDefault(int k, int defaultKey) {
+		return keyOf(lower(k), defaultKey);
+	}
+
+	/**
+	 * returns the node with the largest key that is smaller than or equal to
+	 * k, or null if there is none
+	 */
+	public WAVLNode floorEntry(int k) {
+		return floor(k);
+	}
+
+	/**
+	 * returns the node with the smallest key that is greater than or equal to
+	 * k, or null if there is none
+	 */
+	public WAVLNode ceilingEntry(int k) {
+		return ceiling(k);
+	}
+
+	/**
+	 * returns the node with the smallest key that is strictly greater than k,
+	 * or null if there is none
+	 */
+	public WAVLNode higherEntry(int k) {
+		return higher(k);
+	}
+
+	/**
+	 * returns the node with the largest key that is strictly smaller than k,
+	 * or null if there is none
+	 */
+	public WAVLNode lowerEntry(int k) {
+		return lower(k);
+	}
+
+	private static Integer keyOf(WAVLNode node) {
+		return node != null ? node.key : null;
+	}
+
+	private static int keyOf(WAVLNode node, int defaultKey) {
+		return node != null ? node.key : defaultKey;
+	}
+
+	/**
+	 * Returns the info of the item with the largest key in the tree, or null if
+	 * the tree is empty
+	 */
+	public String max() {
+		if (this.max == null) {
+			return null;
+		}
+
+		return this.max.info;
+	}
+
+	/**
+	 * finds the maximal node in a sub-tree
+	 *
+	 * @param node - root of sub-tree
+	 */
+	private WAVLNode max(WAVLNode node) {
+		if (node == null) {
+			return null;
+		}
+		while (node.rightChild != null) {
+			node = node.rightChild;
+		}
+		return node;
+	}
+
+	/**
+	 * calls the visitor with every item whose key k is lo <= k <= hi, in
+	 * ascending order of keys. costs O(log n + m) for m visited items, and
+	 * allocates nothing. the tree must not be modified by the visitor.
+	 */
+	public void scan(int lo, int hi, EntryVisitor visitor) {
+		if (lo > hi) {
+			return;
+		}
+		WAVLNode node = ceiling(lo);
+		while (node != null && node.key <= hi) {
+			visitor.visit(node.key, node.info);
+			node = successor(node);
+		}
+	}
+
+	/**
+	 * returns a new cursor over this tree. the cursor is not positioned until
+	 * one of its seek methods is called, and it can be reused for any number
+	 * of scans.
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * returns an iterator over the nodes of the tree in ascending order of
+	 * keys. the iterator starts at the cached minimum and walks to successors
+	 * through the parent pointers, so it needs no stack. it supports remove(),
+	 * and throws ConcurrentModificationException if the tree is modified
+	 * otherwise while iterating.
+	 */
+	@Override
+	public Iterator<WAVLNode> iterator() {
+		return new NodeIterator(this.min, false);
+	}
+
+	/**
+	 * returns an iterator over the nodes of the tree in descending order of
+	 * keys
+	 */
+	public Iterator<WAVLNode> descendingIterator() {
+		return new NodeIterator(this.max, true);
+	}
+
+	/**
+	 * returns a spliterator over the nodes of the tree in ascending order of
+	 * keys. it is sized, and fails fast like the iterator. splitting hands off
+	 * the first half of the remaining nodes, found in logarithmic time using
+	 * the sub-tree sizes, so both parts know their exact sizes.
+	 */
+	@Override
+	public Spliterator<WAVLNode> spliterator() {
+		return new NodeSpliterator(this.min, 0, this.size);
+	}
+
+	/**
+	 * returns a sequential stream of the nodes of the tree in ascending order
+	 * of keys. nodes are visited lazily, so short-circuiting operations only
+	 * walk as far as they need.
+	 */
+	public Stream<WAVLNode> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * returns a parallel stream of the nodes of the tree. the tree must not be
+	 * modified while the stream is evaluated.
+	 */
+	public Stream<WAVLNode> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
+	/**
+	 * Returns a sorted array which contains all keys in the tree, or an empty
+	 * array if the tree is empty. the tree never changes a returned array.
+	 */
+	public int[] keysToArray() {
+		updateSortedArrays();
+		return this.sortedKeys;
+	}
+
+	/**
+	 * Returns an array which contains all info in the tree, sorted by their
+	 * respective keys, or an empty array if the tree is empty. the tree never
+	 * changes a returned array.
+	 */
+	public String[] infoToArray() {
+		updateSortedArrays();
+		return this.sortedInfo;
+	}
+
+	/**
+	 * returns the sorted keys and info of the tree as one consistent snapshot,
+	 * tagged with the version of the tree it was taken at
+	 */
+	public SortedSnapshot sortedSnapshot() {
+		updateSortedArrays();
+		return new SortedSnapshot(this.sortedKeys, this.sortedInfo, this.version);
+	}
+
+	/**
+	 * returns an immutable copy of the items of the tree, laid out for fast
+	 * searches. later modifications of the tree do not change it. costs O(n).
+	 */
+	public FrozenWAVLTree freeze() {
+		updateSortedArrays();
+		return new FrozenWAVLTree(this.sortedKeys, this.sortedInfo);
+	}
+
+	/**
+	 * brings the sorted caches up to date, by merging the pending operations
+	 * into them, or by filling them from the tree if there are no caches
+	 */
+	private void updateSortedArrays() {
+		if (this.sortedKeys == null) {
+			fillSortedArrays();
+		} else if (this.pendingCount > 0) {
+			mergePendingOperations();
+		}
+	}
+
+	/**
+	 * records an insertion or deletion, to be merged into the sorted caches
+	 * later. if there are no caches, there is nothing to record, and if there
+	 * are too many pending operations, the caches are dropped instead.
+	 */
+	private void recordPendingOperation(int k, String info, boolean deleted) {
+		if (this.sortedKeys == null) {
+			return;
+		}
+		if (this.pendingCount == MAX_PENDING_OPERATIONS) {
+			this.sortedKeys = null;
+			this.sortedInfo = null;
+			discardPendingOperations();
+			return;
+		}
+		if (this.pendingKeys == null) {
+			this.pendingKeys = new int[16];
+			this.pendingInfos = new String[16];
+			this.pendingDeletes = new boolean[16];
+		} else if (this.pendingCount == this.pendingKeys.length) {
+			int capacity = this.pendingCount * 2;
+			this.pendingKeys = Arrays.copyOf(this.pendingKeys, capacity);
+			this.pendingInfos = Arrays.copyOf(this.pendingInfos, capacity);
+			this.pendingDeletes = Arrays.copyOf(this.pendingDeletes, capacity);
+		}
+		this.pendingKeys[this.pendingCount] = k;
+		this.pendingInfos[this.pendingCount] = info;
+		this.pendingDeletes[this.pendingCount] = deleted;
+		this.pendingCount++;
+	}
+
+	/**
+	 * merges the pending operations into new sorted arrays. the runs of
+	 * unchanged items between the keys of the operations are copied in bulk.
+	 * of several operations on the same key only the last one counts. the old
+	 * arrays are left untouched, since they might have been returned already.
+	 */
+	private void mergePendingOperations() {
+		int count = this.pendingCount;
+		// sort the operations by key, and by the order they were made in
+		long[] order = new long[count];
+		for (int j = 0; j < count; j++) {
+			order[j] = ((long) this.pendingKeys[j] << 32) | j;
+		}
+		Arrays.sort(order);
+
+		int[] oldKeys = this.sortedKeys;
+		String[] oldInfo = this.sortedInfo;
+		int[] keys = new int[this.size];
+		String[] infos = new String[this.size];
+		int from = 0;
+		int to = 0;
+		for (int j = 0; j < count; j++) {
+			int op = (int) order[j];
+			int k = this.pendingKeys[op];
+			if (j + 1 < count && this.pendingKeys[(int) order[j + 1]] == k) {
+				continue; // a later operation on the same key wins
+			}
+			int pos = Arrays.binarySearch(oldKeys, from, oldKeys.length, k);
+			int end = pos >= 0 ? pos : -pos - 1;
+			System.arraycopy(oldKeys, from, keys, to, end - from);
+			System.arraycopy(oldInfo, from, infos, to, end - from);
+			to += end - from;
+			from = pos >= 0 ? pos + 1 : end;
+			if (!this.pendingDeletes[op]) {
+				keys[to] = k;
+				infos[to++] = this.pendingInfos[op];
+			}
+		}
+		System.arraycopy(oldKeys, from, keys, to, oldKeys.length - from);
+		System.arraycopy(oldInfo, from, infos, to, oldKeys.length - from);
+
+		this.sortedKeys = keys;
+		this.sortedInfo = infos;
+		discardPendingOperations();
+	}
+
+	/**
+	 * forgets the pending operations. their infos are cleared, so that the
+	 * buffer does not keep infos of deleted or replaced items alive.
+	 */
+	private void discardPendingOperations() {
+		if (this.pendingInfos != null) {
+			Arrays.fill(this.pendingInfos, 0, this.pendingCount, null);
+		}
+		this.pendingCount = 0;
+	}
+
+	/**
+	 * fills both sorted caches in a single walk over the tree. large trees are
+	 * walked in parallel, every sub-tree writing into its own range of the
+	 * arrays, which starts at the index given by the sizes of the sub-trees
+	 * before it.
+	 */
+	private void fillSortedArrays() {
+		int[] keys = new int[this.size];
+		String[] infos = new String[this.size];
+		if (this.size < PARALLEL_FILL_THRESHOLD) {
+			fillArrays(this.root, keys, infos, 0);
+		} else {
+			ForkJoinPool.commonPool().invoke(new FillTask(this.root, keys, infos, 0));
+		}
+		this.sortedKeys = keys;
+		this.sortedInfo = infos;
+	}
+
+	/**
+	 * fills the arrays with all keys and info of a sub-tree, starting at index
+	 * i. returns the index after the last item of the sub-tree.
+	 */
+	private static int fillArrays(WAVLNode node, int[] keys, String[] infos, int i) {
+		if (node == null) {
+			return i;
+		} else {
+			i = fillArrays(node.leftChild, keys, infos, i);
+			keys[i] = node.key;
+			infos[i] = node.info;
+			i = fillArrays(node.rightChild, keys, infos, i + 1);
+			return i;
+		}
+	}
+
+	/**
+	 * fills the arrays with a sub-tree, forking one task for each child until
+	 * the sub-trees are small enough to be filled sequentially
+	 */
+	private static class FillTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final WAVLNode node;
+		private final int[] keys;
+		private final String[] infos;
+		private final int offset;
+
+		private FillTask(WAVLNode node, int[] keys, String[] infos, int offset) {
+			this.node = node;
+			this.keys = keys;
+			this.infos = infos;
+			this.offset = offset;
+		}
+
+		@Override
+		protected void compute() {
+			if (subtreeSize(this.node) <= SEQUENTIAL_FILL_CUTOFF) {
+				fillArrays(this.node, this.keys, this.infos, this.offset);
+				return;
+			}
+			int i = this.offset + subtreeSize(this.node.leftChild);
+			this.keys[i] = this.node.key;
+			this.infos[i] = this.node.info;
+			invokeAll(new FillTask(this.node.leftChild, this.keys, this.infos, this.offset),
+					new FillTask(this.node.rightChild, this.keys, this.infos, i + 1));
+		}
+	}
+
+	/**
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * returns the i-th smallest key in the tree, counting from 0, in
+	 * logarithmic time
+	 *
+	 * @throws IndexOutOfBoundsException if i is negative or not smaller than
+	 *                                   the size of the tree
+	 */
+	public int select(int i) {
+		if (i < 0 || i >= this.size) {
+			throw new IndexOutOfBoundsException("index: " + i + ", size: " + this.size);
+		}
+		return selectNode(i).key;
+	}
+
+	/**
+	 * finds the node with the i-th smallest key, using the sub-tree sizes to
+	 * decide at every node which side it is in
+	 */
+	private WAVLNode selectNode(int i) {
+		WAVLNode node = this.root;
+		while (true) {
+			int leftSize = subtreeSize(node.leftChild);
+			if (i < leftSize) {
+				node = node.leftChild;
+			} else if (i == leftSize) {
+				return node;
+			} else {
+				i -= leftSize + 1;
+				node = node.rightChild;
+			}
+		}
+	}
+
+	/**
+	 * returns the number of keys in the tree that are smaller than k, in
+	 * logarithmic time. if k is in the tree, this is its index in keysToArray.
+	 */
+	public int rank(int k) {
+		int count = 0;
+		WAVLNode node = this.root;
+		while (node != null) {
+			if (k > node.key) {
+				count += subtreeSize(node.leftChild) + 1;
+				node = node.rightChild;
+			} else {
+				node = node.leftChild;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * returns the number of keys k in the tree with lo <= k <= hi, in
+	 * logarithmic time
+	 */
+	public int countRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		int upTo = hi == Integer.MAX_VALUE ? this.size : rank(hi + 1);
+		return upTo - rank(lo);
+	}
+
+	/**
+	 * returns the number of nodes in the sub-tree of a node, or 0 if node is
+	 * null
+	 */
+	private static int subtreeSize(WAVLNode node) {
+		if (node == null) {
+			return 0;
+		}
+		return node.subtreeSize;
+	}
+
+	/**
+	 * recomputes the sub-tree sizes of a node and all of its ancestors, after
+	 * a node was connected below it or removed from below it
+	 */
+	private static void updateSubtreeSizes(WAVLNode node) {
+		while (node != null) {
+			node.updateSubtreeSize();
+			node = node.parent;
+		}
+	}
+
+	/**
+	 * keeps the sub-tree size of a node up to date when the core links a
+	 * child to it
+	 */
+	@Override
+	void childrenChanged(WAVLNode node) {
+		node.updateSubtreeSize();
+	}
+
+	/**
+	 * keeps the sub-tree sizes of the ancestors up to date when the core
+	 * links or unlinks a node below them
+	 */
+	@Override
+	void pathChanged(WAVLNode node) {
+		updateSubtreeSizes(node);
+	}
+
+	/**
+	 * writes a binary snapshot of the tree to a file, which load turns back
+	 * into the same tree. the file holds a header of the magic number, the
+	 * format version and the number of items, then one record per node in
+	 * preorder: the key as an int, the rank as a byte and the info as its
+	 * length in UTF-8 bytes followed by the bytes, or as -1 if it is null.
+	 * the file ends with a CRC32 of everything before it. all numbers are
+	 * big-endian.
+	 */
+	public void writeTo(Path path) throws IOException {
+		CheckedOutputStream checked = new CheckedOutputStream(Files.newOutputStream(path), new CRC32());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16))) {
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_VERSION);
+			out.writeInt(this.size);
+			writePreorder(this.root, out);
+			out.flush();
+			out.writeInt((int) checked.getChecksum().getValue());
+		}
+	}
+
+	/**
+	 * writes the records of a sub-tree in preorder
+	 */
+	private static void writePreorder(WAVLNode node, DataOutputStream out) throws IOException {
+		while (node != null) {
+			out.writeInt(node.key);
+			out.writeByte(node.rank);
+			if (node.info == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes = node.info.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+			writePreorder(node.leftChild, out);
+			node = node.rightChild;
+		}
+	}
+
+	/**
+	 * reads a tree from a snapshot file written by writeTo. the file is
+	 * memory-mapped and read once, and the tree is linked as it was written,
+	 * with the stored ranks, so there is no search and no rebalancing. costs
+	 * O(n).
+	 *
+	 * @throws IOException if the file can not be read, or if it is not a
+	 *                     valid snapshot: wrong magic number or version, a
+	 *                     checksum mismatch, or keys or ranks that do not
+	 *                     form a WAVL tree
+	 */
+	public static WAVLTree load(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			SnapshotReader in = new SnapshotReader(channel);
+			if (in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException(path + " is not a WAVL tree snapshot");
+			}
+			int version = in.readInt();
+			if (version != SNAPSHOT_VERSION) {
+				throw new IOException("unsupported snapshot version " + version);
+			}
+			int n = in.readInt();
+			if (n < 0) {
+				throw new IOException("negative item count " + n);
+			}
+
+			WAVLTree tree = new WAVLTree();
+			tree.setRoot(readPreorder(in, n));
+			in.verifyChecksum();
+			checkRanksAndSizes(tree.root);
+			tree.size = n;
+			tree.min = tree.min(tree.root);
+			tree.max = tree.max(tree.root);
+			return tree;
+		}
+	}
+
+	/**
+	 * links n nodes read in preorder and returns the root. the stack holds
+	 * the nodes whose right child is still to come, with the deepest on top.
+	 * a key that is smaller than the top is its left child, and otherwise it
+	 * is the right child of the last node it pops. it must also be greater
+	 * than the key of that node, or the keys are not in search tree order.
+	 * rank differences are checked as nodes are linked, which also bounds the
+	 * depth of the tree by the rank of the root.
+	 */
+	private static WAVLNode readPreorder(SnapshotReader in, int n) throws IOException {
+		if (n == 0) {
+			return null;
+		}
+		WAVLNode root = in.readNode();
+		WAVLNode[] stack = new WAVLNode[64];
+		stack[0] = root;
+		int depth = 1;
+		long lowerBound = Long.MIN_VALUE; // every key from now on must be greater
+		for (int i = 1; i < n; i++) {
+			WAVLNode node = in.readNode();
+			if (node.key <= lowerBound) {
+				throw new IOException("keys are not in preorder at record " + i);
+			}
+			WAVLNode parent = null;
+			while (depth > 0 && node.key > stack[depth - 1].key) {
+				parent = stack[--depth];
+			}
+			// the popped nodes are smaller, so only the new top can be equal
+			if (depth > 0 && node.key == stack[depth - 1].key) {
+				throw new IOException("duplicate key " + node.key + " at record " + i);
+			}
+			if (parent != null) {
+				parent.rightChild = node;
+				lowerBound = parent.key;
+			} else {
+				parent = stack[depth - 1];
+				parent.leftChild = node;
+			}
+			if (parent.rank - node.rank < 1 || parent.rank - node.rank > 2) {
+				throw new IOException("invalid rank " + node.rank + " at key " + node.key);
+			}
+			node.parent = parent;
+			if (depth == stack.length) {
+				stack = Arrays.copyOf(stack, depth * 2);
+			}
+			stack[depth++] = node;
+		}
+		return root;
+	}
+
+	/**
+	 * checks the rank rules in a sub-tree and sets the sub-tree sizes, which
+	 * snapshots do not store. returns the rank of node, or -1 if it is null
+	 */
+	private static int checkRanksAndSizes(WAVLNode node) throws IOException {
+		if (node == null) {
+			return -1;
+		}
+		int left = node.rank - checkRanksAndSizes(node.leftChild);
+		int right = node.rank - checkRanksAndSizes(node.rightChild);
+		if (left < 1 || left > 2 || right < 1 || right > 2 || (left == 2 && right == 2 && node.rank == 1)) {
+			throw new IOException("invalid rank " + node.rank + " at key " + node.key);
+		}
+		node.updateSubtreeSize();
+		return node.rank;
+	}
+
+	/**
+	 * reads a snapshot file through a window that is mapped into memory and
+	 * moved forward whenever the next value does not fit in it. the bytes
+	 * are added to the checksum as the window moves past them.
+	 */
+	private static final class SnapshotReader {
+		private final FileChannel channel;
+		private final long length; // the length of the file without the checksum
+		private final CRC32 crc = new CRC32();
+		private MappedByteBuffer window;
+		private long windowStart;
+		private byte[] bytes = new byte[64];
+
+		private SnapshotReader(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.length = channel.size() - 4;
+			if (this.length < 0) {
+				throw new IOException("snapshot is truncated");
+			}
+			this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(SNAPSHOT_WINDOW, this.length));
+		}
+
+		/**
+		 * makes sure the window holds the next count bytes of the file
+		 */
+		private void ensure(int count) throws IOException {
+			if (this.window.remaining() >= count) {
+				return;
+			}
+			long position = this.windowStart + this.window.position();
+			if (position + count > this.length) {
+				throw new IOException("snapshot is truncated");
+			}
+			this.window.flip();
+			this.crc.update(this.window);
+			this.windowStart = position;
+			this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position,
+					Math.min(Math.max(SNAPSHOT_WINDOW, count), this.length - position));
+		}
+
+		private int readInt() throws IOException {
+			ensure(4);
+			return this.window.getInt();
+		}
+
+		/**
+		 * reads a record into a new node, with no links yet
+		 */
+		private WAVLNode readNode() throws IOException {
+			ensure(9);
+			int key = this.window.getInt();
+			int rank = this.window.get();
+			int length = this.window.getInt();
+			String info = null;
+			if (length >= 0) {
+				ensure(length); // before allocating, in case the length is corrupt
+				if (length > this.bytes.length) {
+					this.bytes = new byte[Math.max(length, 2 * this.bytes.length)];
+				}
+				this.window.get(this.bytes, 0, length);
+				info = new String(this.bytes, 0, length, StandardCharsets.UTF_8);
+			} else if (length != -1) {
+				throw new IOException("invalid info length " + length + " at key " + key);
+			}
+			WAVLNode node = new WAVLNode(key, info);
+			node.rank = rank;
+			return node;
+		}
+
+		/**
+		 * checks that the whole file was read and that its checksum matches
+		 */
+		private void verifyChecksum() throws IOException {
+			if (this.windowStart + this.window.position() != this.length) {
+				throw new IOException("snapshot has trailing bytes");
+			}
+			this.window.flip();
+			this.crc.update(this.window);
+			ByteBuffer stored = ByteBuffer.allocate(4);
+			while (stored.hasRemaining() && this.channel.read(stored, this.length + stored.position()) >= 0) {
+			}
+			if (stored.hasRemaining() || stored.getInt(0) != (int) this.crc.getValue()) {
+				throw new IOException("snapshot checksum mismatch");
+			}
+		}
+	}
+
+	/**
+	 * the sorted keys and info of the tree at some version. the arrays are
+	 * never changed by the tree, so a snapshot stays consistent while the tree
+	 * is modified.
+	 */
+	public static class SortedSnapshot {
+		private final int[] keys;
+		private final String[] infos;
+		private final int version;
+
+		private SortedSnapshot(int[] keys, String[] infos, int version) {
+			this.keys = keys;
+			this.infos = infos;
+			this.version = version;
+		}
+
+		public int[] getKeys() {
+			return this.keys;
+		}
+
+		public String[] getInfos() {
+			return this.infos;
+		}
+
+		/**
+		 * returns the version of the tree the snapshot was taken at. it
+		 * changes with every modification of the tree, including replace.
+		 */
+		public int getVersion() {
+			return this.version;
+		}
+	}
+
+	/**
+	 * receives the items of a range scan
+	 */
+	public interface EntryVisitor {
+		void visit(int key, String info);
+	}
+
+	/**
+	 * a reusable position in the tree. seeking costs O(log n), and stepping to
+	 * the next or previous item follows the parent pointers, so a walk over m
+	 * items costs O(m) in total and allocates nothing.
+	 * <p>
+	 * the position is not valid anymore after the tree is modified, and the
+	 * cursor has to seek again.
+	 */
+	public class Cursor {
+		private WAVLNode node;
+
+		private Cursor() {
+			this.node = null;
+		}
+
+		/**
+		 * moves to the item with the smallest key that is greater than or
+		 * equal to k. returns false if there is no such item.
+		 */
+		public boolean seek(int k) {
+			this.node = ceiling(k);
+			return this.node != null;
+		}
+
+		/**
+		 * moves to the item with the largest key that is smaller than or
+		 * equal to k. returns false if there is no such item.
+		 */
+		public boolean seekFloor(int k) {
+			this.node = floor(k);
+			return this.node != null;
+		}
+
+		/**
+		 * moves to the item with the smallest key. returns false if the tree
+		 * is empty.
+		 */
+		public boolean first() {
+			this.node = min;
+			return this.node != null;
+		}
+
+		/**
+		 * moves to the item with the largest key. returns false if the tree
+		 * is empty.
+		 */
+		public boolean last() {
+			this.node = max;
+			return this.node != null;
+		}
+
+		/**
+		 * moves to the next item. returns false if the cursor went past the
+		 * largest key.
+		 */
+		public boolean next() {
+			if (this.node != null) {
+				this.node = successor(this.node);
+			}
+			return this.node != null;
+		}
+
+		/**
+		 * moves to the previous item. returns false if the cursor went past
+		 * the smallest key.
+		 */
+		public boolean prev() {
+			if (this.node != null) {
+				this.node = predecessor(this.node);
+			}
+			return this.node != null;
+		}
+
+		/**
+		 * returns true if the cursor is positioned on an item
+		 */
+		public boolean valid() {
+			return this.node != null;
+		}
+
+		/**
+		 * returns the key of the current item
+		 *
+		 * @throws NoSuchElementException if the cursor is not
+		 *                                positioned on an item
+		 */
+		public int key() {
+			return current().key;
+		}
+
+		/**
+		 * returns the info of the current item
+		 *
+		 * @throws NoSuchElementException if the cursor is not
+		 *                                positioned on an item
+		 */
+		public String info() {
+			return current().info;
+		}
+
+		private WAVLNode current() {
+			if (this.node == null) {
+				throw new NoSuchElementException("cursor is not positioned on an item");
+			}
+			return this.node;
+		}
+	}
+
+	private class NodeIterator implements Iterator<WAVLNode> {
+		private final boolean descending;
+		private WAVLNode next;
+		private WAVLNode lastReturned;
+		private int expectedModCount;
+
+		private NodeIterator(WAVLNode first, boolean descending) {
+			this.descending = descending;
+			this.next = first;
+			this.lastReturned = null;
+			this.expectedModCount = modCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		@Override
+		public WAVLNode next() {
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.next == null) {
+				throw new NoSuchElementException();
+			}
+			this.lastReturned = this.next;
+			this.next = this.descending ? predecessor(this.next) : successor(this.next);
+			return this.lastReturned;
+		}
+
+		/**
+		 * deletes the last returned node from the tree. the next node stays
+		 * valid, since deletion only moves the successor of a deleted node,
+		 * and never removes any other node from the tree.
+		 */
+		@Override
+		public void remove() {
+			if (this.lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			delete(this.lastReturned.key);
+			this.lastReturned = null;
+			this.expectedModCount = modCount;
+		}
+	}
+
+	private class NodeSpliterator implements Spliterator<WAVLNode> {
+		private WAVLNode next;
+		private int index; // the position of next in the sorted order of the tree
+		private int remaining;
+		private final int expectedModCount;
+
+		private NodeSpliterator(WAVLNode first, int index, int remaining) {
+			this.next = first;
+			this.index = index;
+			this.remaining = remaining;
+			this.expectedModCount = modCount;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super WAVLNode> action) {
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.remaining == 0) {
+				return false;
+			}
+			WAVLNode node = this.next;
+			this.next = successor(node);
+			this.index++;
+			this.remaining--;
+			action.accept(node);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super WAVLNode> action) {
+			WAVLNode node = this.next;
+			int remaining = this.remaining;
+			this.next = null;
+			this.index += remaining;
+			this.remaining = 0;
+			for (; remaining > 0 && node != null; remaining--) {
+				action.accept(node);
+				node = successor(node);
+			}
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+
+		@Override
+		public Spliterator<WAVLNode> trySplit() {
+			if (this.remaining < 2) {
+				return null;
+			}
+			if (modCount != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			int half = this.remaining >>> 1;
+			NodeSpliterator prefix = new NodeSpliterator(this.next, this.index, half);
+			this.index += half;
+			this.remaining -= half;
+			this.next = selectNode(this.index);
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SORTED | DISTINCT | NONNULL | SIZED | SUBSIZED;
+		}
+
+		@Override
+		public Comparator<? super WAVLNode> getComparator() {
+			return Comparator.comparingInt(WAVLNode::getKey);
+		}
+	}
+
+	/**
+	 * a node of the tree. the class is static, so a node does not hold on to
+	 * the tree that created it, also when join or split moved it to another
+	 * tree and the first one is gone.
+	 */
+	public static class WAVLNode extends AbstractWAVLTree.Node<WAVLNode> {
+		private int key;
+		private String info;
+		private int subtreeSize; // number of nodes in the sub-tree of this node
+
+		private WAVLNode(int key, String info) {
+			this.key = key;
+			this.info = info;
+			this.subtreeSize = 1;
+		}
+
+		int getKey() {
+			return this.key;
+		}
+
+		String getInfo() {
+			return this.info;
+		}
+
+		int getSubtreeSize() {
+			return this.subtreeSize;
+		}
+
+		/**
+		 * recomputes the sub-tree size from the sizes of the children
+		 */
+		private void updateSubtreeSize() {
+			this.subtreeSize = subtreeSize(this.leftChild) + subtreeSize(this.rightChild) + 1;
+		}
+
+	}
+
+}
@@ -0,0 +1,739 @@
+package wavl;
+
+import java.util.*;
+
+/**
+ *
+ * WAVLTreeMap
+ * <p>
+ * A NavigableMap view of a WAVLTree, for code that takes a SortedMap or a
+ * NavigableMap. it behaves like a TreeMap with natural ordering: null keys
+ * are not allowed, and entries returned by the navigation methods are
+ * snapshots, while entries of the iterators write through to the tree.
+ * <p>
+ * sub-maps, head and tail maps and descending maps are live views of the
+ * same tree, and are created in constant time. a view holds the range of
+ * keys it covers, so its lookups are single descents of the tree, and its
+ * size is counted in logarithmic time.
+ * <p>
+ * the int overloads of the lookups and of put and remove do not box their
+ * keys.
+ */
+
+public class WAVLTreeMap extends AbstractMap<Integer, String> implements NavigableMap<Integer, String> {
+
+	private final WAVLTree tree;
+
+	// the keys of the view are lo <= k <= hi. the range is empty if lo > hi
+	private final long lo;
+	private final long hi;
+
+	// an exclusive bound b is kept as b + 1 or b - 1, and the bound itself is
+	// still in the closed range that nested views may be bounded by
+	private final boolean loInclusive;
+	private final boolean hiInclusive;
+
+	private final boolean descending;
+
+	private NavigableSet<Integer> keySet;
+	private Set<Map.Entry<Integer, String>> entrySet;
+	private WAVLTreeMap descendingMap;
+
+	/**
+	 * creates an empty map over a new tree
+	 */
+	public WAVLTreeMap() {
+		this(new WAVLTree());
+	}
+
+	/**
+	 * creates a map view of the given tree
+	 */
+	public WAVLTreeMap(WAVLTree tree) {
+		this(tree, Integer.MIN_VALUE, true, Integer.MAX_VALUE, true, false);
+	}
+
+	/**
+	 * creates a view of the keys between the given bounds
+	 *
+	 * @throws IllegalArgumentException if the lower bound is greater than the
+	 *                                  upper bound
+	 */
+	private WAVLTreeMap(WAVLTree tree, long loBound, boolean loInclusive, long hiBound, boolean hiInclusive,
+			boolean descending) {
+		if (loBound > hiBound) {
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		this.tree = tree;
+		this.lo = loInclusive ? loBound : loBound + 1;
+		this.hi = hiInclusive ? hiBound : hiBound - 1;
+		this.loInclusive = loInclusive;
+		this.hiInclusive = hiInclusive;
+		this.descending = descending;
+	}
+
+	/**
+	 * returns the tree behind this map
+	 */
+	public WAVLTree getTree() {
+		return this.tree;
+	}
+
+	/* primitive overloads */
+
+	/**
+	 * returns the info of the item with key k, or null if there is none in
+	 * the range of this map
+	 */
+	public String get(int k) {
+		WAVLTree.WAVLNode node = find(k);
+		return node != null ? node.getInfo() : null;
+	}
+
+	public boolean containsKey(int k) {
+		return find(k) != null;
+	}
+
+	/**
+	 * maps k to v, and returns the previous value of k, or null if there was
+	 * none
+	 *
+	 * @throws IllegalArgumentException if k is out of the range of this map
+	 */
+	public String put(int k, String v) {
+		if (!inRange(k)) {
+			throw new IllegalArgumentException("key out of range");
+		}
+		if (this.tree.insert(k, v) >= 0) {
+			return null;
+		}
+		return this.tree.replace(k, v);
+	}
+
+	/**
+	 * removes the item with key k, and returns its value, or null if there is
+	 * none in the range of this map
+	 */
+	public String remove(int k) {
+		WAVLTree.WAVLNode node = find(k);
+		if (node == null) {
+			return null;
+		}
+		String info = node.getInfo();
+		this.tree.delete(k);
+		return info;
+	}
+
+	public Integer lowerKey(int k) {
+		return keyOf(lower(k));
+	}
+
+	public Integer floorKey(int k) {
+		return keyOf(floor(k));
+	}
+
+	public Integer ceilingKey(int k) {
+		return keyOf(ceiling(k));
+	}
+
+	public Integer higherKey(int k) {
+		return keyOf(higher(k));
+	}
+
+	/**
+	 * the nearest keys without boxing: return defaultKey where lowerKey,
+	 * floorKey, ceilingKey and higherKey return null
+	 */
+	public int lowerKeyOrDefault(int k, int defaultKey) {
+		return keyOf(lower(k), defaultKey);
+	}
+
+	public int floorKeyOrDefault(int k, int defaultKey) {
+		return keyOf(floor(k), defaultKey);
+	}
+
+	public int ceilingKeyOrDefault(int k, int defaultKey) {
+		return keyOf(ceiling(k), defaultKey);
+	}
+
+	public int higherKeyOrDefault(int k, int defaultKey) {
+		return keyOf(higher(k), defaultKey);
+	}
+
+	/* Map */
+
+	@Override
+	public int size() {
+		if (this.lo == Integer.MIN_VALUE && this.hi == Integer.MAX_VALUE) {
+			return this.tree.size();
+		}
+		return this.lo > this.hi ? 0 : this.tree.countRange((int) this.lo, (int) this.hi);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return first() == null;
+	}
+
+	@Override
+	public String get(Object key) {
+		return get(toKey(key));
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return containsKey(toKey(key));
+	}
+
+	@Override
+	public String put(Integer key, String value) {
+		return put(key.intValue(), value);
+	}
+
+	@Override
+	public String remove(Object key) {
+		return remove(toKey(key));
+	}
+
+	@Override
+	public void clear() {
+		if (this.lo == Integer.MIN_VALUE && this.hi == Integer.MAX_VALUE) {
+			this.tree.clear();
+		} else {
+			for (WAVLTree.WAVLNode node = first(); node != null; node = first()) {
+				this.tree.delete(node.getKey());
+			}
+		}
+	}
+
+	/* SortedMap and NavigableMap */
+
+	@Override
+	public Comparator<? super Integer> comparator() {
+		return this.descending ? Collections.reverseOrder() : null;
+	}
+
+	@Override
+	public Integer firstKey() {
+		return key(first());
+	}
+
+	@Override
+	public Integer lastKey() {
+		return key(last());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> firstEntry() {
+		return snapshot(first());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> lastEntry() {
+		return snapshot(last());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> pollFirstEntry() {
+		return poll(first());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> pollLastEntry() {
+		return poll(last());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> lowerEntry(Integer key) {
+		return snapshot(lower(key));
+	}
+
+	@Override
+	public Integer lowerKey(Integer key) {
+		return lowerKey(key.intValue());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> floorEntry(Integer key) {
+		return snapshot(floor(key));
+	}
+
+	@Override
+	public Integer floorKey(Integer key) {
+		return floorKey(key.intValue());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> ceilingEntry(Integer key) {
+		return snapshot(ceiling(key));
+	}
+
+	@Override
+	public Integer ceilingKey(Integer key) {
+		return ceilingKey(key.intValue());
+	}
+
+	@Override
+	public Map.Entry<Integer, String> higherEntry(Integer key) {
+		return snapshot(higher(key));
+	}
+
+	@Override
+	public Integer higherKey(Integer key) {
+		return higherKey(key.intValue());
+	}
+
+	@Override
+	public NavigableMap<Integer, String> descendingMap() {
+		if (this.descendingMap == null) {
+			this.descendingMap = new WAVLTreeMap(this.tree, loBound(), this.loInclusive, hiBound(),
+					this.hiInclusive, !this.descending);
+			this.descendingMap.descendingMap = this;
+		}
+		return this.descendingMap;
+	}
+
+	@Override
+	public NavigableSet<Integer> navigableKeySet() {
+		if (this.keySet == null) {
+			this.keySet = new KeySet(this);
+		}
+		return this.keySet;
+	}
+
+	@Override
+	public NavigableSet<Integer> keySet() {
+		return navigableKeySet();
+	}
+
+	@Override
+	public NavigableSet<Integer> descendingKeySet() {
+		return descendingMap().navigableKeySet();
+	}
+
+	@Override
+	public Set<Map.Entry<Integer, String>> entrySet() {
+		if (this.entrySet == null) {
+			this.entrySet = new EntrySet();
+		}
+		return this.entrySet;
+	}
+
+	@Override
+	public NavigableMap<Integer, String> subMap(Integer fromKey, boolean fromInclusive, Integer toKey,
+			boolean toInclusive) {
+		checkBound(fromKey, fromInclusive, "fromKey");
+		checkBound(toKey, toInclusive, "toKey");
+		if (this.descending) {
+			return new WAVLTreeMap(this.tree, toKey, toInclusive, fromKey, fromInclusive, true);
+		}
+		return new WAVLTreeMap(this.tree, fromKey, fromInclusive, toKey, toInclusive, false);
+	}
+
+	@Override
+	public NavigableMap<Integer, String> headMap(Integer toKey, boolean inclusive) {
+		checkBound(toKey, inclusive, "toKey");
+		if (this.descending) {
+			return new WAVLTreeMap(this.tree, toKey, inclusive, hiBound(), this.hiInclusive, true);
+		}
+		return new WAVLTreeMap(this.tree, loBound(), this.loInclusive, toKey, inclusive, false);
+	}
+
+	@Override
+	public NavigableMap<Integer, String> tailMap(Integer fromKey, boolean inclusive) {
+		checkBound(fromKey, inclusive, "fromKey");
+		if (this.descending) {
+			return new WAVLTreeMap(this.tree, loBound(), this.loInclusive, fromKey, inclusive, true);
+		}
+		return new WAVLTreeMap(this.tree, fromKey, inclusive, hiBound(), this.hiInclusive, false);
+	}
+
+	@Override
+	public SortedMap<Integer, String> subMap(Integer fromKey, Integer toKey) {
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	@Override
+	public SortedMap<Integer, String> headMap(Integer toKey) {
+		return headMap(toKey, false);
+	}
+
+	@Override
+	public SortedMap<Integer, String> tailMap(Integer fromKey) {
+		return tailMap(fromKey, true);
+	}
+
+	/* ranges */
+
+	private long loBound() {
+		return this.loInclusive ? this.lo : this.lo - 1;
+	}
+
+	private long hiBound() {
+		return this.hiInclusive ? this.hi : this.hi + 1;
+	}
+
+	private boolean inRange(long k) {
+		return this.lo <= k && k <= this.hi;
+	}
+
+	/**
+	 * checks that a bound of a nested view is within this view. an exclusive
+	 * bound may also be an exclusive bound of this view
+	 */
+	private void checkBound(int k, boolean inclusive, String name) {
+		if (inclusive ? !inRange(k) : k < loBound() || k > hiBound()) {
+			throw new IllegalArgumentException(name + " out of range");
+		}
+	}
+
+	/* navigation in the range, in the order of the view */
+
+	/**
+	 * returns the node with key k, or null if there is none in the range
+	 */
+	private WAVLTree.WAVLNode find(int k) {
+		if (!inRange(k)) {
+			return null;
+		}
+		WAVLTree.WAVLNode node = this.tree.floorEntry(k);
+		return node != null && node.getKey() == k ? node : null;
+	}
+
+	private WAVLTree.WAVLNode first() {
+		return this.descending ? floorInRange(this.hi) : ceilingInRange(this.lo);
+	}
+
+	private WAVLTree.WAVLNode last() {
+		return this.descending ? ceilingInRange(this.lo) : floorInRange(this.hi);
+	}
+
+	private WAVLTree.WAVLNode lower(int k) {
+		return this.descending ? ceilingInRange(k + 1L) : floorInRange(k - 1L);
+	}
+
+	private WAVLTree.WAVLNode floor(int k) {
+		return this.descending ? ceilingInRange(k) : floorInRange(k);
+	}
+
+	private WAVLTree.WAVLNode ceiling(int k) {
+		return this.descending ? floorInRange(k) : ceilingInRange(k);
+	}
+
+	private WAVLTree.WAVLNode higher(int k) {
+		return this.descending ? floorInRange(k - 1L) : ceilingInRange(k + 1L);
+	}
+
+	/**
+	 * returns the node after the given one in the order of the view, or null
+	 * if there is none in the range
+	 */
+	private WAVLTree.WAVLNode next(WAVLTree.WAVLNode node) {
+		node = this.descending ? this.tree.predecessor(node) : this.tree.successor(node);
+		return node != null && inRange(node.getKey()) ? node : null;
+	}
+
+	/**
+	 * returns the node with the smallest key in the range that is greater
+	 * than or equal to k, or null if there is none
+	 */
+	private WAVLTree.WAVLNode ceilingInRange(long k) {
+		k = Math.max(k, this.lo);
+		if (k > this.hi) {
+			return null;
+		}
+		WAVLTree.WAVLNode node = this.tree.ceilingEntry((int) k);
+		return node != null && node.getKey() <= this.hi ? node : null;
+	}
+
+	/**
+	 * returns the node with the largest key in the range that is smaller than
+	 * or equal to k, or null if there is none
+	 */
+	private WAVLTree.WAVLNode floorInRange(long k) {
+		k = Math.min(k, this.hi);
+		if (k < this.lo) {
+			return null;
+		}
+		WAVLTree.WAVLNode node = this.tree.floorEntry((int) k);
+		return node != null && node.getKey() >= this.lo ? node : null;
+	}
+
+	private Map.Entry<Integer, String> poll(WAVLTree.WAVLNode node) {
+		if (node == null) {
+			return null;
+		}
+		Map.Entry<Integer, String> entry = snapshot(node);
+		this.tree.delete(node.getKey());
+		return entry;
+	}
+
+	private static Map.Entry<Integer, String> snapshot(WAVLTree.WAVLNode node) {
+		return node != null ? new AbstractMap.SimpleImmutableEntry<>(node.getKey(), node.getInfo()) : null;
+	}
+
+	private static Integer keyOf(WAVLTree.WAVLNode node) {
+		return node != null ? node.getKey() : null;
+	}
+
+	private static int keyOf(WAVLTree.WAVLNode node, int defaultKey) {
+		return node != null ? node.getKey() : defaultKey;
+	}
+
+	private static int key(WAVLTree.WAVLNode node) {
+		if (node == null) {
+			throw new NoSuchElementException();
+		}
+		return node.getKey();
+	}
+
+	private static int toKey(Object key) {
+		return (Integer) key; // throws like TreeMap on null and on other types
+	}
+
+	/**
+	 * walks over the nodes of the view in its order. removing goes through
+	 * the tree, and the next node stays valid, since deletion only moves the
+	 * successor of a deleted node
+	 */
+	private abstract class ViewIterator<T> implements Iterator<T> {
+		private WAVLTree.WAVLNode next = first();
+		private WAVLTree.WAVLNode lastReturned;
+		private int expectedModCount = tree.getModCount();
+
+		@Override
+		public boolean hasNext() {
+			return this.next != null;
+		}
+
+		WAVLTree.WAVLNode nextNode() {
+			if (tree.getModCount() != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (this.next == null) {
+				throw new NoSuchElementException();
+			}
+			this.lastReturned = this.next;
+			this.next = WAVLTreeMap.this.next(this.next);
+			return this.lastReturned;
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (tree.getModCount() != this.expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			tree.delete(this.lastReturned.getKey());
+			this.lastReturned = null;
+			this.expectedModCount = tree.getModCount();
+		}
+	}
+
+	/**
+	 * an entry of an iterator. setValue writes through to the tree
+	 */
+	private final class NodeEntry extends AbstractMap.SimpleEntry<Integer, String> {
+		private static final long serialVersionUID = 1L;
+
+		private NodeEntry(WAVLTree.WAVLNode node) {
+			super(node.getKey(), node.getInfo());
+		}
+
+		@Override
+		public String setValue(String value) {
+			tree.replace(getKey(), value);
+			return super.setValue(value);
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<Integer, String>> {
+		@Override
+		public Iterator<Map.Entry<Integer, String>> iterator() {
+			return new ViewIterator<Map.Entry<Integer, String>>() {
+				@Override
+				public Map.Entry<Integer, String> next() {
+					return new NodeEntry(nextNode());
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return WAVLTreeMap.this.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return WAVLTreeMap.this.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			if (!(entry.getKey() instanceof Integer)) {
+				return false;
+			}
+			WAVLTree.WAVLNode node = find((Integer) entry.getKey());
+			return node != null && Objects.equals(node.getInfo(), entry.getValue());
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!contains(o)) {
+				return false;
+			}
+			tree.delete((Integer) ((Map.Entry<?, ?>) o).getKey());
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			WAVLTreeMap.this.clear();
+		}
+	}
+
+	/**
+	 * the keys of a map view, in the order of the view
+	 */
+	private static final class KeySet extends AbstractSet<Integer> implements NavigableSet<Integer> {
+		private final WAVLTreeMap map;
+
+		private KeySet(WAVLTreeMap map) {
+			this.map = map;
+		}
+
+		@Override
+		public Iterator<Integer> iterator() {
+			return this.map.new ViewIterator<Integer>() {
+				@Override
+				public Integer next() {
+					return nextNode().getKey();
+				}
+			};
+		}
+
+		@Override
+		public Iterator<Integer> descendingIterator() {
+			return descendingSet().iterator();
+		}
+
+		@Override
+		public int size() {
+			return this.map.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return this.map.isEmpty();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return this.map.containsKey(o);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			WAVLTree.WAVLNode node = this.map.find(toKey(o));
+			if (node == null) {
+				return false;
+			}
+			this.map.tree.delete(node.getKey());
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			this.map.clear();
+		}
+
+		@Override
+		public Comparator<? super Integer> comparator() {
+			return this.map.comparator();
+		}
+
+		@Override
+		public Integer first() {
+			return this.map.firstKey();
+		}
+
+		@Override
+		public Integer last() {
+			return this.map.lastKey();
+		}
+
+		@Override
+		public Integer lower(Integer e) {
+			return this.map.lowerKey(e);
+		}
+
+		@Override
+		public Integer floor(Integer e) {
+			return this.map.floorKey(e);
+		}
+
+		@Override
+		public Integer ceiling(Integer e) {
+			return this.map.ceilingKey(e);
+		}
+
+		@Override
+		public Integer higher(Integer e) {
+			return this.map.higherKey(e);
+		}
+
+		@Override
+		public Integer pollFirst() {
+			Map.Entry<Integer, String> entry = this.map.pollFirstEntry();
+			return entry != null ? entry.getKey() : null;
+		}
+
+		@Override
+		public Integer pollLast() {
+			Map.Entry<Integer, String> entry = this.map.pollLastEntry();
+			return entry != null ? entry.getKey() : null;
+		}
+
+		@Override
+		public NavigableSet<Integer> descendingSet() {
+			return this.map.descendingMap().navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<Integer> subSet(Integer fromElement, boolean fromInclusive, Integer toElement,
+				boolean toInclusive) {
+			return this.map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<Integer> headSet(Integer toElement, boolean inclusive) {
+			return this.map.headMap(toElement, inclusive).navigableKeySet();
+		}
+
+		@Override
+		public NavigableSet<Integer> tailSet(Integer fromElement, boolean inclusive) {
+			return this.map.tailMap(fromElement, inclusive).navigableKeySet();
+		}
+
+		@Override
+		public SortedSet<Integer> subSet(Integer fromElement, Integer toElement) {
+			return subSet(fromElement, true, toElement, false);
+		}
+
+		@Override
+		public SortedSet<Integer> headSet(Integer toElement) {
+			return headSet(toElement, false);
+		}
+
+		@Override
+		public SortedSet<Integer> tailSet(Integer fromElement) {
+			return tailSet(fromElement, true);
+		}
+	}
+}
@@ -0,0 +1,868 @@
+package wavl;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * compares the operations that WAVLTree has beyond insert, delete and search
+ * with java.util.TreeMap. after every step the tree is checked against the
+ * map, and its ranks, parent pointers, subtree sizes and order are checked
+ * node by node.
+ */
+public class WAVLTreeTester {
+
+	private static Random rnd = new Random(2016);
+
+	private static void check(boolean condition, String message) {
+		if (!condition) {
+			System.out.println("Problem with " + message);
+			System.exit(1);
+		}
+	}
+
+	private static int getRank(WAVLTree.WAVLNode node) {
+		if (node == null) { // external leaf
+			return -1;
+		}
+		return node.getRank();
+	}
+
+	/**
+	 * checks the rank rule, the parent pointers, the subtree sizes and the
+	 * order of the keys of a sub-tree, and returns its number of nodes
+	 */
+	private static int checkNodes(WAVLTree.WAVLNode node, WAVLTree.WAVLNode parent, String name) {
+		if (node == null) {
+			return 0;
+		}
+		WAVLTree.WAVLNode left = node.getLeftChild();
+		WAVLTree.WAVLNode right = node.getRightChild();
+		int diffLeft = getRank(node) - getRank(left);
+		int diffRight = getRank(node) - getRank(right);
+		check(node.getParent() == parent, name + ": parent of " + node.getKey());
+		check(diffLeft >= 1 && diffLeft <= 2 && diffRight >= 1 && diffRight <= 2,
+				name + ": rank differences " + diffLeft + "," + diffRight + " at " + node.getKey());
+		check(left != null || right != null || getRank(node) == 0, name + ": 2,2 leaf " + node.getKey());
+		check(left == null || left.getKey() < node.getKey(), name + ": order at " + node.getKey());
+		check(right == null || right.getKey() > node.getKey(), name + ": order at " + node.getKey());
+		int size = 1 + checkNodes(left, node, name) + checkNodes(right, node, name);
+		check(node.getSubtreeSize() == size, name + ": subtree size at " + node.getKey());
+		return size;
+	}
+
+	/**
+	 * checks the structure of the tree, and that it holds exactly the items
+	 * of the map
+	 */
+	private static void checkTree(WAVLTree tree, TreeMap<Integer, String> expected, String name) {
+		check(checkNodes(tree.getRoot(), null, name) == expected.size(), name + ": number of nodes");
+		check(tree.size() == expected.size(), name + ": size");
+		check(tree.empty() == expected.isEmpty(), name + ": empty");
+		check(Objects.equals(tree.min(), expected.isEmpty() ? null : expected.firstEntry().getValue()), name + ": min");
+		check(Objects.equals(tree.max(), expected.isEmpty() ? null : expected.lastEntry().getValue()), name + ": max");
+		check(Arrays.equals(tree.keysToArray(), expected.keySet().stream().mapToInt(k -> k).toArray()),
+				name + ": keysToArray");
+		check(Arrays.equals(tree.infoToArray(), expected.values().toArray(new String[0])), name + ": infoToArray");
+	}
+
+	/**
+	 * fills a new tree and the map with up to n random keys in [lo, hi), and
+	 * deletes a third of them, so that the ranks are not those of an AVL tree
+	 */
+	private static WAVLTree randomTree(TreeMap<Integer, String> expected, int lo, int hi, int n) {
+		WAVLTree tree = new WAVLTree();
+		for (int i = 0; i < n; i++) {
+			int k = lo + rnd.nextInt(hi - lo);
+			if (tree.insert(k, String.valueOf(k)) != -1) {
+				expected.put(k, String.valueOf(k));
+			}
+		}
+		for (int i = 0; i < n / 3; i++) {
+			int k = lo + rnd.nextInt(hi - lo);
+			tree.delete(k);
+			expected.remove(k);
+		}
+		return tree;
+	}
+
+	/**
+	 * runs random inserts and deletes of keys in [lo, hi) on the tree and the
+	 * map
+	 */
+	private static void randomOperations(WAVLTree tree, TreeMap<Integer, String> expected, int lo, int hi, int n) {
+		for (int i = 0; i < n; i++) {
+			int k = lo + rnd.nextInt(hi - lo);
+			if (rnd.nextBoolean()) {
+				check((tree.insert(k, "x" + i) == -1) == expected.containsKey(k), "insert " + k);
+				expected.putIfAbsent(k, "x" + i);
+			} else {
+				check((tree.delete(k) == -1) == !expected.containsKey(k), "delete " + k);
+				expected.remove(k);
+			}
+		}
+	}
+
+	/**
+	 * returns the height of a sub-tree, which is -1 for an external leaf
+	 */
+	private static int height(WAVLTree.WAVLNode node) {
+		if (node == null) {
+			return -1;
+		}
+		return 1 + Math.max(height(node.getLeftChild()), height(node.getRightChild()));
+	}
+
+	/**
+	 * checks that the rank of every node of a sub-tree is its height
+	 */
+	private static void checkRankIsHeight(WAVLTree.WAVLNode node) {
+		if (node == null) {
+			return;
+		}
+		check(getRank(node) == height(node), "fromSorted: rank of " + node.getKey() + " is not its height");
+		checkRankIsHeight(node.getLeftChild());
+		checkRankIsHeight(node.getRightChild());
+	}
+
+	private static void checkFromSortedRejects(int[] keys, String[] infos, String name) {
+		try {
+			WAVLTree.fromSorted(keys, infos);
+			check(false, "fromSorted, expected an exception for " + name);
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static void testFromSorted() {
+		System.out.println("Checking fromSorted");
+		for (int round = 0; round < 1000; round++) {
+			// every size up to 300 once, so that all shapes of the last level
+			// are built, and then larger random ones
+			int n = round <= 300 ? round : rnd.nextInt(20000);
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			while (expected.size() < n) {
+				int k = rnd.nextInt(4 * n) - 2 * n;
+				expected.put(k, "v" + k);
+			}
+			int[] keys = expected.keySet().stream().mapToInt(k -> k).toArray();
+			String[] infos = expected.values().toArray(new String[0]);
+			WAVLTree tree = WAVLTree.fromSorted(keys, infos);
+			checkTree(tree, expected, "fromSorted");
+			checkRankIsHeight(tree.getRoot());
+
+			// the tree copies the arrays
+			if (n > 0) {
+				keys[0] = Integer.MAX_VALUE;
+				infos[0] = "changed";
+				checkTree(tree, expected, "fromSorted after changing its arrays");
+			}
+			int keyRange = Math.max(10, 4 * n);
+			randomOperations(tree, expected, -keyRange, keyRange, 200);
+			checkTree(tree, expected, "fromSorted and then insert and delete");
+		}
+		checkFromSortedRejects(new int[] { 1, 3, 2 }, new String[3], "unsorted keys");
+		checkFromSortedRejects(new int[] { 1, 2, 2, 3 }, new String[4], "duplicate keys");
+		checkFromSortedRejects(new int[] { 1, 2 }, new String[3], "arrays of different lengths");
+	}
+
+	private static void testInsertAllDeleteAll() {
+		System.out.println("Checking insertAll and deleteAll");
+		for (int round = 0; round < 300; round++) {
+			WAVLTree tree = new WAVLTree();
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			int keyRange = 10 + rnd.nextInt(5000);
+			for (int step = 0; step < 40; step++) {
+				// mostly small batches, which are inserted one by one, and some
+				// large ones, which rebuild the tree
+				int[] keys = new int[rnd.nextInt(4) == 0 ? rnd.nextInt(2000) : rnd.nextInt(20)];
+				String[] infos = new String[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = rnd.nextInt(keyRange) - keyRange / 2;
+					infos[i] = step + "_" + i;
+				}
+				int op = rnd.nextInt(4);
+				if (op < 2) {
+					tree.insertAll(keys, infos);
+					for (int i = 0; i < keys.length; i++) {
+						expected.putIfAbsent(keys[i], infos[i]);
+					}
+				} else if (op == 2) {
+					tree.deleteAll(keys);
+					for (int k : keys) {
+						expected.remove(k);
+					}
+				} else {
+					for (int i = 0; i < keys.length; i++) {
+						if (rnd.nextBoolean()) {
+							check((tree.insert(keys[i], infos[i]) == -1) == expected.containsKey(keys[i]), "insert");
+							expected.putIfAbsent(keys[i], infos[i]);
+						} else {
+							check((tree.delete(keys[i]) == -1) == !expected.containsKey(keys[i]), "delete");
+							expected.remove(keys[i]);
+						}
+					}
+				}
+				checkTree(tree, expected, "insertAll/deleteAll");
+			}
+		}
+		try {
+			new WAVLTree().insertAll(new int[1], new String[2]);
+			check(false, "insertAll, expected an exception for arrays of different lengths");
+		} catch (IllegalArgumentException expected) {
+		}
+
+		// batches below the ratio keep the nodes of the tree, so handles stay
+		// valid. batches at the ratio rebuild the tree with new nodes
+		for (boolean rebuild : new boolean[] { false, true }) {
+			String name = rebuild ? "rebuilding " : "one by one ";
+			int[] keys = new int[1000];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = 2 * i;
+			}
+			WAVLTree tree = WAVLTree.fromSorted(keys, new String[keys.length]);
+			WAVLTree.WAVLNode handle = tree.floorEntry(500);
+
+			int[] batch = new int[batchSize(tree.size(), rebuild)];
+			for (int i = 0; i < batch.length; i++) {
+				batch[i] = 2 * i + 1;
+			}
+			int res = tree.insertAll(batch, new String[batch.length]);
+			check(!rebuild || res == 0, name + "insertAll returned " + res);
+			check((tree.floorEntry(500) == handle) != rebuild, name + "insertAll and the handle of key 500");
+			tree.checkInvariants();
+
+			handle = tree.floorEntry(500);
+			batch = new int[batchSize(tree.size(), rebuild)];
+			for (int i = 0; i < batch.length; i++) {
+				batch[i] = 2 * keys.length - 2 - 2 * i; // the largest even keys
+			}
+			res = tree.deleteAll(batch);
+			check(!rebuild || res == 0, name + "deleteAll returned " + res);
+			check((tree.floorEntry(500) == handle) != rebuild, name + "deleteAll and the handle of key 500");
+			tree.checkInvariants();
+		}
+	}
+
+	/**
+	 * returns the smallest batch size that rebuilds a tree of the given size,
+	 * or the largest one that does not
+	 */
+	private static int batchSize(int size, boolean rebuild) {
+		int smallest = (size + WAVLTree.BATCH_REBUILD_RATIO - 1) / WAVLTree.BATCH_REBUILD_RATIO;
+		return rebuild ? smallest : smallest - 1;
+	}
+
+	private static void testJoinSplit() {
+		System.out.println("Checking join and split");
+		for (int round = 0; round < 2000; round++) {
+			// trees of very different sizes, so the ranks differ a lot
+			TreeMap<Integer, String> expectedLeft = new TreeMap<>();
+			TreeMap<Integer, String> expectedRight = new TreeMap<>();
+			int sizeLeft = rnd.nextInt(3) == 0 ? 0 : rnd.nextInt(rnd.nextBoolean() ? 10 : 3000);
+			int sizeRight = rnd.nextInt(3) == 0 ? 0 : rnd.nextInt(rnd.nextBoolean() ? 10 : 3000);
+			WAVLTree left = randomTree(expectedLeft, -10000, 0, sizeLeft);
+			WAVLTree right = randomTree(expectedRight, 1, 10000, sizeRight);
+
+			WAVLTree tree = WAVLTree.join(left, 0, "0", right);
+			TreeMap<Integer, String> expected = new TreeMap<>(expectedLeft);
+			expected.putAll(expectedRight);
+			expected.put(0, "0");
+			checkTree(tree, expected, "join");
+			checkTree(left, new TreeMap<>(), "left tree after join");
+			checkTree(right, new TreeMap<>(), "right tree after join");
+			randomOperations(tree, expected, -10000, 10000, 50);
+			checkTree(tree, expected, "join and then insert and delete");
+
+			// split by a key of the tree or by a random one
+			int k = rnd.nextInt(22000) - 11000;
+			if (!expected.isEmpty() && rnd.nextBoolean()) {
+				List<Integer> keys = new ArrayList<>(expected.keySet());
+				k = keys.get(rnd.nextInt(keys.size()));
+			}
+			WAVLTree[] parts = tree.split(k);
+			TreeMap<Integer, String> expectedLess = new TreeMap<>(expected.headMap(k, false));
+			TreeMap<Integer, String> expectedGreater = new TreeMap<>(expected.tailMap(k, false));
+			checkTree(parts[0], expectedLess, "split, smaller keys");
+			checkTree(parts[1], expectedGreater, "split, larger keys");
+			checkTree(tree, new TreeMap<>(), "tree after split");
+			randomOperations(parts[0], expectedLess, k - 20000, k, 50);
+			checkTree(parts[0], expectedLess, "split and then insert and delete");
+			randomOperations(parts[1], expectedGreater, k + 1, k + 20001, 50);
+			checkTree(parts[1], expectedGreater, "split and then insert and delete");
+		}
+		try {
+			WAVLTree left = new WAVLTree();
+			left.insert(5, "5");
+			WAVLTree.join(left, 5, "5", new WAVLTree());
+			check(false, "join, expected an exception for keys out of order");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static void testOrderStatistics() {
+		System.out.println("Checking select, rank and countRange");
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			int keyRange = 10 + rnd.nextInt(3000);
+			WAVLTree tree = randomTree(expected, -keyRange, keyRange, rnd.nextInt(1000));
+			for (int step = 0; step < 10; step++) {
+				randomOperations(tree, expected, -keyRange, keyRange, rnd.nextInt(200));
+				checkTree(tree, expected, "select/rank/countRange");
+
+				List<Integer> keys = new ArrayList<>(expected.keySet());
+				for (int i = 0; i < keys.size(); i++) {
+					check(tree.select(i) == keys.get(i), "select(" + i + ")");
+				}
+				for (int i : new int[] { -1, keys.size() }) {
+					try {
+						tree.select(i);
+						check(false, "select(" + i + "), expected an exception");
+					} catch (IndexOutOfBoundsException expectedException) {
+					}
+				}
+				int smaller = 0;
+				for (int k = -keyRange - 1; k <= keyRange; k++) {
+					check(tree.rank(k) == smaller, "rank(" + k + ")");
+					if (expected.containsKey(k)) {
+						smaller++;
+					}
+				}
+				check(tree.rank(Integer.MIN_VALUE) == 0, "rank(MIN_VALUE)");
+				check(tree.rank(Integer.MAX_VALUE) == expected.size() - (expected.containsKey(Integer.MAX_VALUE) ? 1 : 0),
+						"rank(MAX_VALUE)");
+				for (int i = 0; i < 100; i++) {
+					int lo = rnd.nextInt(2 * keyRange + 2) - keyRange - 1;
+					int hi = lo + rnd.nextInt(keyRange) - 10;
+					int count = lo > hi ? 0 : expected.subMap(lo, true, hi, true).size();
+					check(tree.countRange(lo, hi) == count, "countRange(" + lo + ", " + hi + ")");
+				}
+				check(tree.countRange(Integer.MIN_VALUE, Integer.MAX_VALUE) == expected.size(), "countRange of all keys");
+			}
+		}
+	}
+
+	private static void testScanCursor() {
+		System.out.println("Checking scan and Cursor");
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			WAVLTree tree = randomTree(expected, 0, 5000, rnd.nextInt(2000));
+			checkTree(tree, expected, "scan/Cursor");
+			WAVLTree.Cursor cursor = tree.cursor();
+			check(!cursor.valid(), "a new cursor is valid");
+			for (int i = 0; i < 50; i++) {
+				int lo = rnd.nextInt(5200) - 100;
+				int hi = lo + rnd.nextInt(300) - 20;
+				List<String> scanned = new ArrayList<>();
+				tree.scan(lo, hi, (k, info) -> scanned.add(k + "=" + info));
+				List<String> inRange = new ArrayList<>();
+				if (lo <= hi) {
+					for (Map.Entry<Integer, String> entry : expected.subMap(lo, true, hi, true).entrySet()) {
+						inRange.add(entry.getKey() + "=" + entry.getValue());
+					}
+				}
+				check(scanned.equals(inRange), "scan(" + lo + ", " + hi + ")");
+
+				// seek, and then walk in random directions
+				Integer k = expected.ceilingKey(lo);
+				check(cursor.seek(lo) == (k != null) && cursor.valid() == (k != null), "seek(" + lo + ")");
+				for (int j = 0; j < 20 && k != null; j++) {
+					check(cursor.key() == k && cursor.info().equals(expected.get(k)), "cursor at " + k);
+					boolean forward = rnd.nextBoolean();
+					k = forward ? expected.higherKey(k) : expected.lowerKey(k);
+					check((forward ? cursor.next() : cursor.prev()) == (k != null), "cursor step from " + k);
+				}
+				k = expected.floorKey(lo);
+				check(cursor.seekFloor(lo) == (k != null), "seekFloor(" + lo + ")");
+				check(k == null || cursor.key() == k, "seekFloor(" + lo + ") key");
+			}
+			check(cursor.first() == !expected.isEmpty(), "cursor first");
+			check(expected.isEmpty() || cursor.key() == expected.firstKey(), "cursor first key");
+			check(cursor.last() == !expected.isEmpty(), "cursor last");
+			check(expected.isEmpty() || cursor.key() == expected.lastKey(), "cursor last key");
+			cursor.next();
+			check(!cursor.valid() && !cursor.next() && !cursor.prev(), "cursor past the last key");
+			try {
+				cursor.key();
+				check(false, "key of an invalid cursor, expected an exception");
+			} catch (NoSuchElementException expectedException) {
+			}
+		}
+	}
+
+	private static List<Integer> keysOf(Iterator<WAVLTree.WAVLNode> iterator) {
+		List<Integer> keys = new ArrayList<>();
+		while (iterator.hasNext()) {
+			keys.add(iterator.next().getKey());
+		}
+		return keys;
+	}
+
+	private static void testIterators() {
+		System.out.println("Checking iterators and streams");
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			WAVLTree tree = randomTree(expected, 0, 5000, rnd.nextInt(2000));
+			check(keysOf(tree.iterator()).equals(new ArrayList<>(expected.keySet())), "iterator");
+			check(keysOf(tree.descendingIterator()).equals(new ArrayList<>(expected.descendingKeySet())),
+					"descendingIterator");
+			check(tree.stream().map(WAVLTree.WAVLNode::getKey).collect(Collectors.toList())
+					.equals(new ArrayList<>(expected.keySet())), "stream");
+			check(tree.stream().count() == expected.size(), "count of stream");
+			check(tree.spliterator().getExactSizeIfKnown() == expected.size(), "size of spliterator");
+			Integer first = tree.stream().map(WAVLTree.WAVLNode::getKey).filter(k -> k > 2500).findFirst().orElse(null);
+			check(Objects.equals(first, expected.higherKey(2500)), "findFirst of stream");
+
+			// removes random items through an iterator
+			Iterator<WAVLTree.WAVLNode> iterator = rnd.nextBoolean() ? tree.iterator() : tree.descendingIterator();
+			try {
+				iterator.remove();
+				check(false, "remove before next, expected an exception");
+			} catch (IllegalStateException expectedException) {
+			}
+			while (iterator.hasNext()) {
+				int k = iterator.next().getKey();
+				if (rnd.nextInt(3) == 0) {
+					iterator.remove();
+					expected.remove(k);
+				}
+			}
+			checkTree(tree, expected, "iterator remove");
+
+			// modifications of the tree while iterating
+			if (expected.size() > 1) {
+				iterator = tree.iterator();
+				iterator.next();
+				tree.insert(-1, "-1");
+				expected.put(-1, "-1");
+				try {
+					iterator.next();
+					check(false, "iterator, expected a ConcurrentModificationException");
+				} catch (ConcurrentModificationException expectedException) {
+				}
+				int last = expected.lastKey();
+				try {
+					tree.stream().forEach(node -> {
+						if (node.getKey() == last) {
+							tree.delete(last);
+						}
+					});
+					check(false, "stream, expected a ConcurrentModificationException");
+				} catch (ConcurrentModificationException expectedException) {
+					expected.remove(last);
+				}
+			}
+			checkTree(tree, expected, "iterators");
+		}
+	}
+
+	/**
+	 * splits the spliterator recursively at random, advancing some of the
+	 * parts by single items, and collects the keys of all parts in order
+	 */
+	private static void splitRandomly(Spliterator<WAVLTree.WAVLNode> spliterator, List<Integer> keys) {
+		long size = spliterator.estimateSize();
+		if (rnd.nextInt(4) == 0 && spliterator.tryAdvance(node -> keys.add(node.getKey()))) {
+			size--;
+		}
+		Spliterator<WAVLTree.WAVLNode> prefix = rnd.nextInt(5) == 0 ? null : spliterator.trySplit();
+		if (prefix != null) {
+			check(prefix.estimateSize() + spliterator.estimateSize() == size, "sizes after trySplit");
+			splitRandomly(prefix, keys);
+			splitRandomly(spliterator, keys);
+		} else {
+			int before = keys.size();
+			spliterator.forEachRemaining(node -> keys.add(node.getKey()));
+			check(keys.size() - before == size, "estimateSize of a part");
+		}
+	}
+
+	private static void testParallelStreams() {
+		System.out.println("Checking parallel streams");
+		for (int round = 0; round < 200; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			WAVLTree tree = randomTree(expected, 0, 50000, rnd.nextInt(20000));
+			List<Integer> keys = new ArrayList<>(expected.keySet());
+			check(tree.parallelStream().map(WAVLTree.WAVLNode::getKey).collect(Collectors.toList()).equals(keys),
+					"parallelStream");
+			check(tree.parallelStream().mapToLong(WAVLTree.WAVLNode::getKey).sum() == keys.stream()
+					.mapToLong(k -> k).sum(), "sum of parallelStream");
+			check(tree.parallelStream().filter(node -> node.getKey() % 3 == 0).count() == keys.stream()
+					.filter(k -> k % 3 == 0).count(), "count of parallelStream");
+			List<Integer> splitKeys = new ArrayList<>();
+			splitRandomly(tree.spliterator(), splitKeys);
+			check(splitKeys.equals(keys), "trySplit");
+		}
+	}
+
+	private static void testLargeArrays() {
+		System.out.println("Checking keysToArray and infoToArray of large trees");
+		// sizes below and above the size from which the arrays are filled in parallel
+		for (int n : new int[] { 0, 1, 5000, 140000, 600000 }) {
+			WAVLTree tree = new WAVLTree();
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			for (int i = 0; i < n; i++) {
+				int k = rnd.nextInt();
+				String info = rnd.nextInt(10) == 0 ? null : String.valueOf(k);
+				if (tree.insert(k, info) != -1) {
+					expected.put(k, info);
+				}
+			}
+			for (int round = 0; round < 3; round++) {
+				checkTree(tree, expected, "arrays of " + n + " keys");
+				for (int i = 0; i < n / 10; i++) {
+					Integer k = expected.higherKey(rnd.nextInt());
+					if (k != null) {
+						tree.delete(k);
+						expected.remove(k);
+					}
+				}
+			}
+		}
+	}
+
+	private static void testSortedSnapshots() {
+		System.out.println("Checking sorted snapshots");
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			WAVLTree tree = randomTree(expected, 0, 6000, rnd.nextInt(3000));
+			List<WAVLTree.SortedSnapshot> snapshots = new ArrayList<>();
+			List<TreeMap<Integer, String>> contents = new ArrayList<>();
+			for (int step = 0; step < 30; step++) {
+				// a few operations are merged into the cached arrays, and more
+				// than the pending operations can hold make the tree fill them again
+				int operations = rnd.nextInt(4) == 0 ? rnd.nextInt(2000) : rnd.nextInt(5);
+				randomOperations(tree, expected, 0, rnd.nextBoolean() ? 40 : 6000, operations);
+				if (rnd.nextInt(10) == 0) {
+					int[] keys = new int[rnd.nextInt(50)];
+					for (int i = 0; i < keys.length; i++) {
+						keys[i] = rnd.nextInt(6000);
+					}
+					tree.deleteAll(keys);
+					for (int k : keys) {
+						expected.remove(k);
+					}
+				}
+				if (rnd.nextInt(3) == 0) {
+					// a new info for a key, which does not change the structure
+					int k = rnd.nextInt(6000);
+					String info = "r" + step;
+					check(Objects.equals(tree.replace(k, info), expected.get(k)), "replace " + k);
+					expected.computeIfPresent(k, (key, old) -> info);
+				}
+				checkTree(tree, expected, "sorted snapshots");
+
+				WAVLTree.SortedSnapshot snapshot = tree.sortedSnapshot();
+				int last = snapshots.size() - 1;
+				check(last < 0 || snapshots.get(last).getVersion() != snapshot.getVersion()
+						|| contents.get(last).equals(expected), "version of a changed tree");
+				snapshots.add(snapshot);
+				contents.add(new TreeMap<>(expected));
+			}
+			if (!expected.isEmpty()) {
+				// replacing an info only must change the version too
+				int version = tree.sortedSnapshot().getVersion();
+				int k = expected.firstKey();
+				tree.replace(k, "replaced");
+				expected.put(k, "replaced");
+				check(tree.sortedSnapshot().getVersion() != version, "version after replace");
+				checkTree(tree, expected, "replace");
+			}
+			// later operations must not change earlier snapshots
+			for (int i = 0; i < snapshots.size(); i++) {
+				TreeMap<Integer, String> content = contents.get(i);
+				check(Arrays.equals(snapshots.get(i).getKeys(), content.keySet().stream().mapToInt(k -> k).toArray()),
+						"keys of snapshot " + i);
+				check(Arrays.equals(snapshots.get(i).getInfos(), content.values().toArray(new String[0])),
+						"infos of snapshot " + i);
+			}
+		}
+	}
+
+	private static void testSearchAll() {
+		System.out.println("Checking searchAll");
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			int n = round < 20 ? round : rnd.nextInt(5000);
+			WAVLTree tree = randomTree(expected, 0, 3 * n + 1, n);
+			for (int step = 0; step < 5; step++) {
+				// sorted and unsorted batches, with duplicates and missing keys,
+				// into arrays longer than the batch
+				int[] keys = new int[rnd.nextInt(300)];
+				for (int i = 0; i < keys.length; i++) {
+					keys[i] = rnd.nextInt(3 * n + 5) - 2;
+				}
+				if (rnd.nextBoolean()) {
+					Arrays.sort(keys);
+				}
+				String[] out = new String[keys.length + rnd.nextInt(3)];
+				Arrays.fill(out, "old");
+				tree.searchAll(keys, out);
+				for (int i = 0; i < keys.length; i++) {
+					check(Objects.equals(out[i], expected.get(keys[i])), "searchAll of key " + keys[i]);
+				}
+				for (int i = keys.length; i < out.length; i++) {
+					check("old".equals(out[i]), "searchAll wrote past the keys");
+				}
+				randomOperations(tree, expected, 0, 3 * n + 1, rnd.nextInt(100));
+				checkTree(tree, expected, "searchAll");
+			}
+		}
+		try {
+			new WAVLTree().searchAll(new int[2], new String[1]);
+			check(false, "searchAll, expected an exception for a short array");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	private static void testFingerSearch() {
+		System.out.println("Checking finger search");
+		for (int round = 0; round < 200; round++) {
+			WAVLTree tree = new WAVLTree();
+			tree.setFingerSearch(true);
+			check(tree.isFingerSearch(), "isFingerSearch");
+			// a tree without the finger must rebalance the same way, until a
+			// split and join changes the shape of the finger tree
+			WAVLTree reference = new WAVLTree();
+			boolean sameShape = true;
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			int keyRange = 1 + rnd.nextInt(round < 20 ? 10 : 3000);
+			int current = 0;
+			for (int i = 0; i < 4000; i++) {
+				// keys that drift, with a jump now and then
+				current += rnd.nextInt(7) - 3;
+				if (rnd.nextInt(50) == 0) {
+					current = rnd.nextInt(keyRange);
+				}
+				int k = Math.floorMod(current, keyRange);
+				int op = rnd.nextInt(10);
+				if (op < 4) {
+					String info = k + "_" + i;
+					int result = tree.insert(k, info);
+					int counter = reference.insert(k, info);
+					check((result == -1) == expected.containsKey(k), "finger insert " + k);
+					check(!sameShape || result == counter, "rebalancing of finger insert " + k);
+					expected.putIfAbsent(k, info);
+				} else if (op < 7) {
+					int result = tree.delete(k);
+					int counter = reference.delete(k);
+					check((result == -1) == !expected.containsKey(k), "finger delete " + k);
+					check(!sameShape || result == counter, "rebalancing of finger delete " + k);
+					expected.remove(k);
+				} else if (op < 9) {
+					check(Objects.equals(tree.search(k), expected.get(k)), "finger search " + k);
+				} else if (rnd.nextInt(40) == 0 && rnd.nextBoolean()) {
+					// a rebuild moves the nodes under the finger
+					int[] keys = new int[20];
+					String[] infos = new String[20];
+					for (int j = 0; j < keys.length; j++) {
+						keys[j] = rnd.nextInt(keyRange);
+						infos[j] = "b" + keys[j];
+						expected.putIfAbsent(keys[j], infos[j]);
+					}
+					tree.insertAll(keys, infos);
+					reference.insertAll(keys, infos);
+				} else if (rnd.nextInt(40) == 0) {
+					// so do split and join
+					sameShape = false;
+					WAVLTree[] parts = tree.split(k);
+					String info = expected.get(k);
+					if (info != null) {
+						tree = WAVLTree.join(parts[0], k, info, parts[1]);
+					} else {
+						tree = parts[0];
+						for (Map.Entry<Integer, String> entry : expected.tailMap(k, false).entrySet()) {
+							tree.insert(entry.getKey(), entry.getValue());
+						}
+					}
+					tree.setFingerSearch(true);
+				}
+				if (i % 50 == 0) {
+					checkTree(tree, expected, "finger search");
+					Iterator<WAVLTree.WAVLNode> iterator = tree.iterator();
+					while (iterator.hasNext()) {
+						int key = iterator.next().getKey();
+						if (rnd.nextInt(30) == 0) {
+							iterator.remove();
+							reference.delete(key);
+							expected.remove(key);
+						}
+					}
+					for (int key = 0; key < keyRange; key += 1 + keyRange / 50) {
+						check(Objects.equals(tree.search(key), expected.get(key)), "finger search " + key);
+					}
+				}
+			}
+			tree.setFingerSearch(false);
+			check(!tree.isFingerSearch(), "isFingerSearch after turning it off");
+			checkTree(tree, expected, "finger search turned off");
+		}
+	}
+
+	private static Integer keyOf(WAVLTree.WAVLNode node) {
+		return node == null ? null : node.getKey();
+	}
+
+	private static void testNearestKeys() {
+		System.out.println("Checking floor, ceiling, higher, lower, successor and predecessor");
+		for (int round = 0; round < 300; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			int keyRange = 1 + rnd.nextInt(round % 10 == 0 ? 10 : 2000);
+			WAVLTree tree = randomTree(expected, -keyRange, keyRange, rnd.nextInt(2 * keyRange));
+			for (int step = 0; step < 5; step++) {
+				randomOperations(tree, expected, -keyRange, keyRange, rnd.nextInt(100));
+				checkTree(tree, expected, "nearest keys");
+				List<Integer> queries = new ArrayList<>(Arrays.asList(Integer.MIN_VALUE, Integer.MAX_VALUE));
+				for (int k = -keyRange - 2; k <= keyRange + 1; k++) {
+					queries.add(k);
+				}
+				for (int k : queries) {
+					check(Objects.equals(tree.floorKey(k), expected.floorKey(k)), "floorKey(" + k + ")");
+					check(Objects.equals(tree.ceilingKey(k), expected.ceilingKey(k)), "ceilingKey(" + k + ")");
+					check(Objects.equals(tree.higherKey(k), expected.higherKey(k)), "higherKey(" + k + ")");
+					check(Objects.equals(tree.lowerKey(k), expected.lowerKey(k)), "lowerKey(" + k + ")");
+					check(Objects.equals(keyOf(tree.floorEntry(k)), expected.floorKey(k)), "floorEntry(" + k + ")");
+					check(Objects.equals(keyOf(tree.ceilingEntry(k)), expected.ceilingKey(k)), "ceilingEntry(" + k + ")");
+					check(Objects.equals(keyOf(tree.higherEntry(k)), expected.higherKey(k)), "higherEntry(" + k + ")");
+					check(Objects.equals(keyOf(tree.lowerEntry(k)), expected.lowerKey(k)), "lowerEntry(" + k + ")");
+					WAVLTree.WAVLNode node = tree.floorEntry(k);
+					check(node == null || Objects.equals(node.getInfo(), expected.get(node.getKey())),
+							"info of floorEntry(" + k + ")");
+				}
+				for (int k : expected.keySet()) {
+					WAVLTree.WAVLNode node = tree.ceilingEntry(k);
+					check(Objects.equals(keyOf(tree.successor(node)), expected.higherKey(k)), "successor of " + k);
+					check(Objects.equals(keyOf(tree.predecessor(node)), expected.lowerKey(k)), "predecessor of " + k);
+				}
+			}
+		}
+		WAVLTree empty = new WAVLTree();
+		check(empty.floorKey(0) == null && empty.ceilingKey(0) == null && empty.higherKey(0) == null
+				&& empty.lowerKey(0) == null, "nearest keys of an empty tree");
+		check(empty.floorEntry(0) == null && empty.ceilingEntry(0) == null && empty.higherEntry(0) == null
+				&& empty.lowerEntry(0) == null, "nearest entries of an empty tree");
+		check(empty.min() == null && empty.max() == null, "min and max of an empty tree");
+		empty.insert(7, "7");
+		WAVLTree.WAVLNode only = empty.ceilingEntry(7);
+		check(empty.successor(only) == null && empty.predecessor(only) == null, "successor of the only node");
+	}
+
+	private static boolean sameShape(WAVLTree.WAVLNode a, WAVLTree.WAVLNode b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		return a.getKey() == b.getKey() && a.getRank() == b.getRank() && Objects.equals(a.getInfo(), b.getInfo())
+				&& sameShape(a.getLeftChild(), b.getLeftChild()) && sameShape(a.getRightChild(), b.getRightChild());
+	}
+
+	/**
+	 * writes the bytes to the file and checks that load rejects them
+	 */
+	private static void checkRejected(Path path, byte[] bytes, String name) throws IOException {
+		Files.write(path, bytes);
+		try {
+			WAVLTree.load(path);
+			check(false, "load of a " + name + " snapshot, expected an exception");
+		} catch (IOException expected) {
+		}
+	}
+
+	/**
+	 * returns a snapshot of the given preorder records, with null infos and a
+	 * valid checksum
+	 */
+	private static byte[] snapshotOf(int[] keys, int[] ranks) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0x5741564C);
+		out.writeInt(1);
+		out.writeInt(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			out.writeInt(keys[i]);
+			out.writeByte(ranks[i]);
+			out.writeInt(-1);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		out.writeInt((int) crc.getValue());
+		return bytes.toByteArray();
+	}
+
+	private static void testSnapshotFiles() throws IOException {
+		System.out.println("Checking writeTo and load");
+		Path path = Files.createTempFile("wavl", ".snapshot");
+		try {
+			for (int round = 0; round < 200; round++) {
+				TreeMap<Integer, String> expected = new TreeMap<>();
+				WAVLTree tree = new WAVLTree();
+				int n = round < 5 ? round : rnd.nextInt(round < 195 ? 3000 : 200000);
+				for (int i = 0; i < n; i++) {
+					int k = rnd.nextInt();
+					String info = rnd.nextInt(10) == 0 ? null : i % 7 == 0 ? k + "\u00e9\u4e2d" : String.valueOf(k);
+					if (tree.insert(k, info) != -1) {
+						expected.put(k, info);
+					}
+					if (rnd.nextInt(5) == 0) {
+						int first = expected.firstKey();
+						tree.delete(first);
+						expected.remove(first);
+					}
+				}
+				tree.writeTo(path);
+				WAVLTree loaded = WAVLTree.load(path);
+				checkTree(loaded, expected, "loaded snapshot");
+				check(sameShape(tree.getRoot(), loaded.getRoot()), "shape of the loaded tree");
+				randomOperations(loaded, expected, -1000, 1000, 100);
+				checkTree(loaded, expected, "loaded snapshot after inserts and deletes");
+
+				// a flipped bit anywhere, a truncated file, trailing bytes, and a
+				// wrong magic number or version
+				byte[] bytes = Files.readAllBytes(path);
+				byte[] corrupt = bytes.clone();
+				corrupt[rnd.nextInt(bytes.length)] ^= 1 << rnd.nextInt(8);
+				checkRejected(path, corrupt, "corrupt");
+				checkRejected(path, Arrays.copyOf(bytes, rnd.nextInt(bytes.length)), "truncated");
+				checkRejected(path, Arrays.copyOf(bytes, bytes.length + 1 + rnd.nextInt(5)), "too long");
+				corrupt = bytes.clone();
+				corrupt[0] = 0;
+				checkRejected(path, corrupt, "foreign");
+				corrupt = bytes.clone();
+				corrupt[7] = 2;
+				checkRejected(path, corrupt, "newer");
+			}
+
+			// valid checksums, but keys that do not form a search tree
+			checkRejected(path, snapshotOf(new int[] { 10, 5, 3, 10, 20 }, new int[] { 2, 1, 0, 0, 0 }),
+					"duplicate right key");
+			checkRejected(path, snapshotOf(new int[] { 10, 10 }, new int[] { 1, 0 }), "duplicate left key");
+			checkRejected(path, snapshotOf(new int[] { 10, 5, 7, 6 }, new int[] { 2, 1, 0, 0 }), "unordered");
+			checkRejected(path, snapshotOf(new int[] { 10, 5 }, new int[] { 3, 0 }), "wrong rank");
+			Files.write(path, snapshotOf(new int[] { 10, 5, 3, 7, 20 }, new int[] { 2, 1, 0, 0, 0 }));
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			for (int k : new int[] { 3, 5, 7, 10, 20 }) {
+				expected.put(k, null);
+			}
+			checkTree(WAVLTree.load(path), expected, "handmade snapshot");
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		testFromSorted();
+		testInsertAllDeleteAll();
+		testJoinSplit();
+		testOrderStatistics();
+		testScanCursor();
+		testIterators();
+		testParallelStreams();
+		testLargeArrays();
+		testSortedSnapshots();
+		testSearchAll();
+		testFingerSearch();
+		testNearestKeys();
+		testSnapshotFiles();
+		System.out.println("done. all operations match TreeMap");
+	}
+}